@@ -67,14 +67,14 @@ public abstract class Agent {
       String agentName = "agent" + id++;
       log.config(LogBuilder.createSystemMessage().addAction("started new agent")
           .addParameter("name", agentName)
-          .addParameter("ID", id).toString());
+          .addParameter("ID", id));
     }
 
     try {
       doRun();
     } catch (Exception e) {
       log.config(LogBuilder.createSystemMessage().addParameter("agent name", name).addException(
-          "Problem when executing task", e).toString());
+          "Problem when executing task", e));
     }
   }
 
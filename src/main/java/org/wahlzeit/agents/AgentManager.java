@@ -81,8 +81,7 @@ public class AgentManager {
       name = agent.getName();
       agents.put(name, agent);
     }
-    log.config(LogBuilder.createSystemMessage().addMessage("agent added").addParameter("name", name)
-        .toString());
+    log.config(LogBuilder.createSystemMessage().addMessage("agent added").addParameter("name", name));
   }
 
   /**
@@ -6,6 +6,7 @@ import com.google.appengine.api.taskqueue.Queue;
 import com.google.appengine.api.taskqueue.QueueFactory;
 import com.google.appengine.api.taskqueue.RetryOptions;
 import com.google.appengine.api.taskqueue.TaskOptions;
+import java.util.Collection;
 import java.util.logging.Logger;
 import org.wahlzeit.model.Photo;
 
@@ -30,4 +31,25 @@ public class AsyncTaskExecutor {
     queue.add(TaskOptions.Builder.withUrl("/persistPhoto").param(Photo.ID, photoId)
         .retryOptions(retryOptions));
   }
+
+  /**
+   * @methodtype command
+   *
+   * Starts a single task in the default queue to save all photos with the specified IDs.
+   */
+  public static void savePhotosAsync(Collection<String> photoIds) {
+    if (photoIds.isEmpty()) {
+      return;
+    }
+
+    log.info("Calling async push task to persist " + photoIds.size() + " photos");
+    Queue queue = QueueFactory.getDefaultQueue();
+    RetryOptions retryOptions = withTaskRetryLimit(3);
+    TaskOptions taskOptions = TaskOptions.Builder.withUrl("/persistPhoto")
+        .retryOptions(retryOptions);
+    for (String photoId : photoIds) {
+      taskOptions.param(Photo.ID, photoId);
+    }
+    queue.add(taskOptions);
+  }
 }
@@ -46,13 +46,13 @@ public class NotifyUsersAboutPraiseAgent extends Agent {
       if (photo != null && photo.isVisible() && photo.hasNewPraise()) {
         String ownerId = photo.getOwnerId();
         if (ownerId != null) {
-          log.config(LogBuilder.createSystemMessage().addParameter("ownerId", ownerId).toString());
+          log.config(LogBuilder.createSystemMessage().addParameter("ownerId", ownerId));
           if (ownerIdPhotosMap.containsKey(ownerId)) {
             log.config(
-                LogBuilder.createSystemMessage().addAction("add to existing owner").toString());
+                LogBuilder.createSystemMessage().addAction("add to existing owner"));
             arrayListOfPhotos = ownerIdPhotosMap.get(ownerId);
           } else {
-            log.config(LogBuilder.createSystemMessage().addAction("add to new owner").toString());
+            log.config(LogBuilder.createSystemMessage().addAction("add to new owner"));
             arrayListOfPhotos = new ArrayList<Photo>();
           }
           arrayListOfPhotos.add(photo);
@@ -64,7 +64,7 @@ public class NotifyUsersAboutPraiseAgent extends Agent {
     }
 
     log.config(LogBuilder.createSystemMessage().addAction("notify owner")
-        .addParameter("number of user to notify", ownerIdPhotosMap.size()).toString());
+        .addParameter("number of user to notify", ownerIdPhotosMap.size()));
 
     for (String ownerId : ownerIdPhotosMap.keySet()) {
       notifyOwner(ownerId, ownerIdPhotosMap.get(ownerId));
@@ -87,7 +87,7 @@ public class NotifyUsersAboutPraiseAgent extends Agent {
     String emailBody = cfg.getNotifyAboutPraiseEmailBody() + "\n\n";
 
     log.config(LogBuilder.createSystemMessage().addAction("sending email")
-        .addParameter("recipient", to.asString()).toString());
+        .addParameter("recipient", to.asString()));
 
     for (Photo current : allPhotosOfUser) {
       String id = current.getId().asString();
@@ -98,7 +98,7 @@ public class NotifyUsersAboutPraiseAgent extends Agent {
       emailBody += link;
 
       log.config(LogBuilder.createSystemMessage().addParameter("appid", appId)
-          .addParameter("link", link).toString());
+          .addParameter("link", link));
 
     }
     emailBody += "\n";
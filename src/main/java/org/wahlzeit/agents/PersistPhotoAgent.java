@@ -1,6 +1,8 @@
 package org.wahlzeit.agents;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -9,6 +11,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.wahlzeit.model.Photo;
 import org.wahlzeit.model.PhotoManager;
 import org.wahlzeit.services.LogBuilder;
+import org.wahlzeit.utils.StringUtil;
 
 /**
  * Servlet to persist Photos that are only in the Cache.
@@ -27,14 +30,21 @@ public class PersistPhotoAgent extends HttpServlet {
   protected void doPost(HttpServletRequest request, HttpServletResponse response)
       throws ServletException, IOException {
 
+    String[] ids = request.getParameterValues(Photo.ID);
+    if (ids != null && ids.length > 1) {
+      persistPhotos(ids);
+      response.setStatus(200);
+      return;
+    }
+
     String id = request.getParameter(Photo.ID);
     log.config(
-        LogBuilder.createSystemMessage().addParameter("Try to persist PhotoId", id).toString());
+        LogBuilder.createSystemMessage().addParameter("Try to persist PhotoId", id));
     if (id != null && !"".equals(id)) {
       Photo photo = PhotoManager.getInstance().getPhoto(id);
       if (photo != null) {
         PhotoManager.getInstance().savePhoto(photo);
-        log.config(LogBuilder.createSystemMessage().addMessage("Photo saved.").toString());
+        log.config(LogBuilder.createSystemMessage().addMessage("Photo saved."));
       } else {
         response.setStatus(299);
         throw new IllegalArgumentException("Could not find Photo with ID " + id);
@@ -42,4 +52,26 @@ public class PersistPhotoAgent extends HttpServlet {
     }
     response.setStatus(200);
   }
+
+  /**
+   * Saves all photos of a bulk task with one datastore call, unknown ids are skipped
+   *
+   * @methodtype command
+   */
+  protected void persistPhotos(String[] ids) {
+    log.config(LogBuilder.createSystemMessage().addParameter("Try to persist photos", ids.length));
+    List<Photo> photos = new ArrayList<Photo>(ids.length);
+    for (String id : ids) {
+      Photo photo = StringUtil.isNullOrEmptyString(id) ? null
+          : PhotoManager.getInstance().getPhoto(id);
+      if (photo != null) {
+        photos.add(photo);
+      } else {
+        log.warning(LogBuilder.createSystemMessage().
+            addParameter("Could not find Photo with ID", id));
+      }
+    }
+    PhotoManager.getInstance().savePhotos(photos);
+    log.config(LogBuilder.createSystemMessage().addParameter("Photos saved", photos.size()));
+  }
 }
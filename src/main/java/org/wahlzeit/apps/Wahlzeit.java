@@ -46,18 +46,18 @@ public class Wahlzeit implements ServletContextListener {
       String contextPath = sc.getContextPath();
       System.setProperty("contextPath", contextPath);
       log.config(LogBuilder.createSystemMessage().
-          addParameter("System property context path", contextPath).toString());
+          addParameter("System property context path", contextPath));
 
       // determines file system root path to resources
       File dummyFile = new File(sc.getRealPath("dummy.txt"));
       String rootDir = dummyFile.getParent();
       log.config(LogBuilder.createSystemMessage().
-          addParameter("Root directory", rootDir).toString());
+          addParameter("Root directory", rootDir));
 
       ServiceMain.getInstance().startUp(true, rootDir);
     } catch (Exception ex) {
       log.warning(LogBuilder.createSystemMessage().
-          addException("Initializing context failed", ex).toString());
+          addException("Initializing context failed", ex));
       throw new RuntimeException("End of story!", ex);
     }
   }
@@ -70,7 +70,7 @@ public class Wahlzeit implements ServletContextListener {
       ServiceMain.getInstance().shutDown();
     } catch (Exception ex) {
       log.warning(LogBuilder.createSystemMessage().
-          addException("Shutting instance down failed", ex).toString());
+          addException("Shutting instance down failed", ex));
     }
   }
 
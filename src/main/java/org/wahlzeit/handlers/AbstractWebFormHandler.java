@@ -64,13 +64,13 @@ public abstract class AbstractWebFormHandler extends AbstractWebPartHandler impl
     String emailAddress = us.getClient().getEmailAddress().asString();
     if (!hasAccessRights(us, args)) {
       log.warning(LogBuilder.createSystemMessage().
-          addParameter("insufficient rights for POST from", emailAddress).toString());
+          addParameter("insufficient rights for POST from", emailAddress));
       return getIllegalAccessErrorPage(us);
     }
 
     if (!isWellFormedPost(us, args)) {
       log.warning(LogBuilder.createSystemMessage().
-          addParameter("received ill-formed POST from", emailAddress).toString());
+          addParameter("received ill-formed POST from", emailAddress));
       return getIllegalArgumentErrorPage(us);
     }
 
@@ -79,7 +79,7 @@ public abstract class AbstractWebFormHandler extends AbstractWebPartHandler impl
       return doHandlePost(us, args);
     } catch (Throwable t) {
       log.warning(
-          LogBuilder.createSystemMessage().addException("Handle post failed", t).toString());
+          LogBuilder.createSystemMessage().addException("Handle post failed", t));
       return getInternalProcessingErrorPage(us);
     }
   }
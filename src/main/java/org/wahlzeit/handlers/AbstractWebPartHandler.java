@@ -35,9 +35,11 @@ import org.wahlzeit.services.LogBuilder;
 import org.wahlzeit.services.SysConfig;
 import org.wahlzeit.utils.HtmlUtil;
 import org.wahlzeit.utils.StringUtil;
+import org.wahlzeit.webparts.FragmentCache;
 import org.wahlzeit.webparts.WebPart;
 import org.wahlzeit.webparts.WebPartTemplate;
 import org.wahlzeit.webparts.WebPartTemplateService;
+import org.wahlzeit.webparts.Writable;
 
 /**
  * A superclass for handling parts of web pages.
@@ -73,10 +75,36 @@ public abstract class AbstractWebPartHandler implements WebPartHandler {
    * @methodtype factory
    */
   protected final WebPart createWebPart(UserSession us, String name) {
+    return new WebPart(getTemplate(us, name));
+  }
+
+  /**
+   * Creates a part without values which looks the same for all users of a language; it is
+   * rendered once and then taken from the fragment cache
+   *
+   * @methodtype factory
+   */
+  protected final Writable createCachedWebPart(UserSession us, String name) {
+    return FragmentCache.getInstance().getFragment(getTemplate(us, name));
+  }
+
+  /**
+   * Like createCachedWebPart(us, name), but with values which must be the only ones the part
+   * depends on
+   *
+   * @methodtype factory
+   */
+  protected final Writable createCachedWebPart(UserSession us, String name,
+      Map<String, String> values) {
+    return FragmentCache.getInstance().getFragment(getTemplate(us, name), values);
+  }
+
+  /**
+   * @methodtype get
+   */
+  protected WebPartTemplate getTemplate(UserSession us, String name) {
     WebPartTemplateService wpts = WebPartTemplateService.getInstance();
-    WebPartTemplate tmpl = wpts
-        .getTemplate(us.getClient().getLanguageConfiguration().getLanguageCode(), name);
-    return new WebPart(tmpl);
+    return wpts.getTemplate(us.getClient().getLanguageConfiguration().getLanguageCode(), name);
   }
 
   /**
@@ -163,13 +191,13 @@ public abstract class AbstractWebPartHandler implements WebPartHandler {
   public final String handleGet(UserSession us, String link, Map args) {
     if (!hasAccessRights(us, args)) {
       log.warning(LogBuilder.createSystemMessage().
-          addMessage("insufficient rights for GET").toString());
+          addMessage("insufficient rights for GET"));
       return getIllegalAccessErrorPage(us);
     }
 
     if (!isWellFormedGet(us, link, args)) {
       log.warning(LogBuilder.createSystemMessage().
-          addMessage("received ill-formed GET").toString());
+          addMessage("received ill-formed GET"));
       return getIllegalArgumentErrorPage(us);
     }
 
@@ -177,7 +205,7 @@ public abstract class AbstractWebPartHandler implements WebPartHandler {
       // may throw Exception
       return doHandleGet(us, link, args);
     } catch (Throwable t) {
-      log.warning(LogBuilder.createSystemMessage().addException("Handle get failed", t).toString());
+      log.warning(LogBuilder.createSystemMessage().addException("Handle get failed", t));
       return getInternalProcessingErrorPage(us);
     }
   }
@@ -78,7 +78,7 @@ public class AdminUserPhotoFormHandler extends AbstractWebFormHandler {
 
     log.info(LogBuilder.createUserMessage().
         addAction("AdminUserPhoto").
-        addParameter("Photo", photo.getId().asString()).toString());
+        addParameter("Photo", photo.getId().asString()));
 
     us.setMessage(us.getClient().getLanguageConfiguration().getPhotoUpdateSucceeded());
 
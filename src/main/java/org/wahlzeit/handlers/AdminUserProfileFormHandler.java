@@ -108,7 +108,7 @@ public class AdminUserProfileFormHandler extends AbstractWebFormHandler {
 
     log.info(LogBuilder.createUserMessage().
         addAction("AdminUserProfile").
-        addParameter("User ID", user.getId()).toString());
+        addParameter("User ID", user.getId()));
 
     us.setMessage(us.getClient().getLanguageConfiguration().getProfileUpdateSucceeded());
 
@@ -101,14 +101,14 @@ public class EditPhotoCaseFormHandler extends AbstractWebFormHandler {
 
     log.info(LogBuilder.createUserMessage().
         addAction("EditPhotoCase").
-        addParameter("Photo", photo.getId().asString()).toString());
+        addParameter("Photo", photo.getId().asString()));
 
     photoCase.setDecided();
     pcm.removePhotoCase(photoCase);
 
     log.info(LogBuilder.createUserMessage().
         addAction("EditPhotoCase").
-        addParameter("PhotoCase", photoCase.getId()).toString());
+        addParameter("PhotoCase", photoCase.getId()));
 
     return PartUtil.SHOW_PHOTO_CASES_PAGE_NAME;
   }
@@ -106,7 +106,7 @@ public class EditUserPhotoFormHandler extends AbstractWebFormHandler {
 
     log.info(LogBuilder.createUserMessage().
         addAction("EditUserPhoto").
-        addParameter("Photo", photo.getId().asString()).toString());
+        addParameter("Photo", photo.getId().asString()));
 
     ModelConfig config = us.getClient().getLanguageConfiguration();
     us.setTwoLineMessage(config.getPhotoUpdateSucceeded(), config.getContinueWithShowUserHome());
@@ -96,14 +96,14 @@ public class EditUserProfileFormHandler extends AbstractWebFormHandler {
     if (!StringUtil.isNullOrEmptyString(gender)) {
       user.setGender(Gender.getFromString(gender));
       log.info(LogBuilder.createUserMessage().
-          addParameter("Gender", gender).toString());
+          addParameter("Gender", gender));
     }
 
     if (!StringUtil.isNullOrEmptyString(language)) {
       Language langValue = Language.getFromString(language);
       user.setLanguage(langValue);
       log.info(LogBuilder.createUserMessage().
-          addParameter("Language", langValue.asString()).toString());
+          addParameter("Language", langValue.asString()));
     }
 
     ModelConfig config = us.getClient().getLanguageConfiguration();
@@ -88,7 +88,7 @@ public class EmailUserNameFormHandler extends AbstractWebFormHandler {
 
     log.info(LogBuilder.createUserMessage().
         addAction("Username send per E-Mail").
-        addParameter("Target address", to.asString()).toString());
+        addParameter("Target address", to.asString()));
 
     us.setTwoLineMessage(config.getUserNameWasEmailed(), config.getContinueWithShowPhoto());
 
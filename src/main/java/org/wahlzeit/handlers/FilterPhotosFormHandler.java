@@ -59,7 +59,7 @@ public class FilterPhotosFormHandler extends AbstractWebFormHandler {
    *
    */
   protected String doHandlePost(UserSession us, Map args) {
-    PhotoFilter filter = us.getPhotoFilter();
+    PhotoFilter filter = us.getPhotoFilterForUpdate();
 
     String un = us.getAsString(args, PhotoFilter.USER_NAME);
     if (StringUtil.isLegalUserName(un)) {
@@ -73,7 +73,7 @@ public class FilterPhotosFormHandler extends AbstractWebFormHandler {
 
     log.info(LogBuilder.createUserMessage().
         addAction("Filter Photos").
-        addParameter("Tags", filter.getTags().asString()).toString());
+        addParameter("Tags", filter.getTags().asString()));
 
     return PartUtil.SHOW_PHOTO_PAGE_NAME;
   }
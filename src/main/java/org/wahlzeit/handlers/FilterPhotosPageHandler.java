@@ -54,7 +54,7 @@ public class FilterPhotosPageHandler extends AbstractWebPageHandler {
    *
    */
   protected String doHandleGet(UserSession us, String link, Map args) {
-    PhotoFilter filter = us.getPhotoFilter();
+    PhotoFilter filter = us.getPhotoFilterForUpdate();
 
     String un = us.getAsString(args, PhotoFilter.USER_NAME);
     if (StringUtil.isLegalUserName(un)) {
@@ -123,7 +123,7 @@ public class FlagPhotoFormHandler extends AbstractWebFormHandler {
 
     log.info(LogBuilder.createUserMessage()
         .addAction("Flag Photo")
-        .addParameter("Photo", photo.getId().asString()).toString());
+        .addParameter("Photo", photo.getId().asString()));
 
     us.setTwoLineMessage(config.getModeratorWasInformed(), config.getContinueWithShowPhoto());
 
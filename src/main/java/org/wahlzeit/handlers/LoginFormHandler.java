@@ -46,7 +46,7 @@ public class LoginFormHandler extends AbstractWebFormHandler {
       // googleUser logged in
       log.config(LogBuilder.createSystemMessage().
           addMessage("Google user exists").
-          addParameter("E-Mail", googleUser.getEmail()).toString());
+          addParameter("E-Mail", googleUser.getEmail()));
       String userId = googleUser.getUserId();
       UserManager userManager = UserManager.getInstance();
       User user = userManager.getUserById(userId);
@@ -55,7 +55,7 @@ public class LoginFormHandler extends AbstractWebFormHandler {
         us.setClient(user);
         log.config(LogBuilder.createSystemMessage().
             addMessage("Wahlzeit user exists").
-            addParameter("id", user.getId()).toString());
+            addParameter("id", user.getId()));
       } else {
         // create new Wahlzeit user
         String emailAddress = googleUser.getEmail();
@@ -70,7 +70,7 @@ public class LoginFormHandler extends AbstractWebFormHandler {
         userManager.emailWelcomeMessage(us, user);
         us.setClient(user);
 
-        log.info(LogBuilder.createUserMessage().addAction("Signup").toString());
+        log.info(LogBuilder.createUserMessage().addAction("Signup"));
       }
 
 //              TODO
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.handlers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import org.wahlzeit.agents.AsyncTaskExecutor;
+import org.wahlzeit.model.AccessRights;
+import org.wahlzeit.model.CaseId;
+import org.wahlzeit.model.Photo;
+import org.wahlzeit.model.PhotoCase;
+import org.wahlzeit.model.PhotoCaseManager;
+import org.wahlzeit.model.PhotoStatus;
+import org.wahlzeit.model.UserSession;
+import org.wahlzeit.services.LogBuilder;
+import org.wahlzeit.webparts.WebPart;
+
+
+/**
+ * A handler class for deciding many photo cases at once. All selected cases get the same decision,
+ * the cases are deleted with one datastore call and the photos are saved by a single task.
+ */
+public class ModeratePhotoCasesFormHandler extends AbstractWebFormHandler {
+
+  private static final Logger log = Logger.getLogger(
+      ModeratePhotoCasesFormHandler.class.getName());
+
+  /**
+   *
+   */
+  public ModeratePhotoCasesFormHandler() {
+    initialize(PartUtil.NULL_FORM_FILE, AccessRights.MODERATOR);
+  }
+
+  /**
+   * The form is part of the cases page, see {@link ShowPhotoCasesPageHandler}
+   */
+  protected void doMakeWebPart(UserSession us, WebPart part) {
+    // do nothing
+  }
+
+  /**
+   *
+   */
+  protected boolean isWellFormedPost(UserSession us, Map args) {
+    return us.isFormType(args, "unflag") || us.isFormType(args, "moderate");
+  }
+
+  /**
+   *
+   */
+  protected String doHandlePost(UserSession us, Map args) {
+    boolean isUnflag = us.isFormType(args, "unflag");
+    PhotoCaseManager pcm = PhotoCaseManager.getInstance();
+
+    List<PhotoCase> photoCases = new ArrayList<PhotoCase>();
+    Set<String> photoIds = new LinkedHashSet<String>();
+    for (String id : getAsStrings(args, PhotoCase.ID)) {
+      PhotoCase photoCase = getOpenPhotoCase(pcm, id);
+      if (photoCase == null) {
+        continue;
+      }
+
+      Photo photo = photoCase.getPhoto();
+      PhotoStatus status = photo.getStatus();
+      photo.setStatus(isUnflag ? status.asFlagged(false) : status.asModerated(true));
+      photoIds.add(photo.getId().asString());
+      photoCases.add(photoCase);
+    }
+
+    pcm.removePhotoCases(photoCases);
+    AsyncTaskExecutor.savePhotosAsync(photoIds);
+
+    log.info(LogBuilder.createUserMessage().
+        addAction("ModeratePhotoCases").
+        addParameter("Decision", isUnflag ? "unflag" : "moderate").
+        addParameter("PhotoCases", photoCases.size()).
+        addParameter("Photos", photoIds.size()));
+
+    return PartUtil.SHOW_PHOTO_CASES_PAGE_NAME;
+  }
+
+  /**
+   * @return the open case of the id, null if the id is malformed or the case was decided
+   */
+  protected PhotoCase getOpenPhotoCase(PhotoCaseManager pcm, String id) {
+    try {
+      return pcm.getPhotoCase(new CaseId(Integer.parseInt(id.trim())));
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * @methodtype conversion
+   */
+  protected String[] getAsStrings(Map args, String key) {
+    Object value = args.get(key);
+    if (value instanceof String[]) {
+      return (String[]) value;
+    } else if (value != null) {
+      return new String[]{value.toString()};
+    } else {
+      return new String[0];
+    }
+  }
+
+}
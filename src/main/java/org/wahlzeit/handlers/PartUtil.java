@@ -141,6 +141,8 @@ public interface PartUtil {
   String SHOW_PHOTO_CASES_PAGE_FILE = "pages/ShowPhotoCasesPage";
   String EDIT_PHOTO_CASE_FORM_NAME = "editPhotoCaseForm";
   String EDIT_PHOTO_CASE_FORM_FILE = "forms/EditPhotoCaseForm";
+  String PHOTO_CASE_INFO_FILE = "infos/PhotoCaseInfo";
+  String MODERATE_PHOTO_CASES_FORM_NAME = "moderatePhotoCasesForm";
 
   String SHOW_ADMIN_PAGE_NAME = "admin";
   String SHOW_ADMIN_PAGE_FILE = "pages/ShowAdminPage";
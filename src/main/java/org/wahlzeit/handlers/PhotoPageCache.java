@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.handlers;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.wahlzeit.model.Photo;
+import org.wahlzeit.model.PhotoId;
+import org.wahlzeit.model.PhotoSize;
+import org.wahlzeit.model.PhotoStatus;
+import org.wahlzeit.utils.ParameterUtil;
+import org.wahlzeit.webparts.WebPartTemplate;
+import org.wahlzeit.webparts.WebPartTemplateService;
+
+/**
+ * Keeps the pages of specific photos as guests see them, rendered into templates with only the
+ * processing time left open. A page is keyed by photo id, language, photo size and site URL. It
+ * becomes invalid as soon as the praise, the tags or the status of its photo change, or a template
+ * is reloaded.
+ */
+public class PhotoPageCache {
+
+  /**
+   * Default maximum number of pages; more are rendered but not kept
+   */
+  public static final int DEFAULT_MAX_PAGES = 1000;
+
+  /**
+   * Separates the parts of a key
+   */
+  protected static final char KEY_SEPARATOR = '\u0000';
+
+  /**
+   *
+   */
+  protected static final PhotoPageCache instance = new PhotoPageCache();
+
+  /**
+   *
+   */
+  protected final Map<String, Entry> pages = new ConcurrentHashMap<String, Entry>();
+
+  protected volatile boolean isEnabled = true;
+  protected volatile int maxPages = DEFAULT_MAX_PAGES;
+
+  /**
+   * @methodtype get
+   */
+  public static PhotoPageCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * @methodtype conversion
+   */
+  public static String asKey(PhotoId photoId, String languageCode, PhotoSize photoSize,
+      String siteUrl) {
+    return photoId.asString() + KEY_SEPARATOR + languageCode + KEY_SEPARATOR
+        + photoSize.asString() + KEY_SEPARATOR + siteUrl;
+  }
+
+  /**
+   * @return the page, null if there is none or the photo has changed since
+   */
+  public WebPartTemplate getPage(String key, Photo photo) {
+    Entry entry = pages.get(key);
+    if (entry == null) {
+      return null;
+    }
+
+    if (!entry.isValidFor(photo)) {
+      pages.remove(key, entry);
+      return null;
+    }
+
+    return entry.page;
+  }
+
+  /**
+   * @methodtype command
+   */
+  public void putPage(String key, Photo photo, WebPartTemplate page) {
+    ParameterUtil.assertNotNull(photo, "photo");
+    ParameterUtil.assertNotNull(page, "page");
+
+    if (pages.size() < maxPages || pages.containsKey(key)) {
+      pages.put(key, new Entry(photo, page));
+    }
+  }
+
+  /**
+   * Drops the pages of the photo
+   *
+   * @methodtype command
+   */
+  public void invalidate(PhotoId photoId) {
+    String prefix = photoId.asString() + KEY_SEPARATOR;
+    for (Iterator<String> i = pages.keySet().iterator(); i.hasNext(); ) {
+      if (i.next().startsWith(prefix)) {
+        i.remove();
+      }
+    }
+  }
+
+  /**
+   * Drops all pages, e.g. when templates or configuration have changed
+   *
+   * @methodtype command
+   */
+  public void invalidateAll() {
+    pages.clear();
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int size() {
+    return pages.size();
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  public boolean isEnabled() {
+    return isEnabled;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setEnabled(boolean enabled) {
+    isEnabled = enabled;
+    if (!enabled) {
+      invalidateAll();
+    }
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setMaxPages(int maxPages) {
+    ParameterUtil.assertNumberInRange((double) maxPages, 0.0, (double) Integer.MAX_VALUE,
+        "maxPages");
+    this.maxPages = maxPages;
+  }
+
+  /**
+   * A page with the state of its photo when it was rendered
+   */
+  protected static class Entry {
+
+    protected final WebPartTemplate page;
+    protected final double praise;
+    protected final String tags;
+    protected final PhotoStatus status;
+    protected final long templatesRevision;
+
+    protected Entry(Photo photo, WebPartTemplate page) {
+      this.page = page;
+      this.templatesRevision = WebPartTemplateService.getInstance().getRevision();
+      this.praise = photo.getPraise();
+      this.tags = photo.getTags().asString();
+      this.status = photo.getStatus();
+    }
+
+    /**
+     * @methodtype boolean-query
+     */
+    protected boolean isValidFor(Photo photo) {
+      return Double.compare(praise, photo.getPraise()) == 0 && status == photo.getStatus()
+          && tags.equals(photo.getTags().asString())
+          && templatesRevision == WebPartTemplateService.getInstance().getRevision();
+    }
+  }
+
+}
@@ -27,6 +27,7 @@ import org.wahlzeit.model.Client;
 import org.wahlzeit.model.Photo;
 import org.wahlzeit.model.PhotoId;
 import org.wahlzeit.model.PhotoManager;
+import org.wahlzeit.model.UserManager;
 import org.wahlzeit.model.UserSession;
 import org.wahlzeit.services.LogBuilder;
 import org.wahlzeit.utils.StringUtil;
@@ -81,14 +82,19 @@ public class PraisePhotoFormHandler extends AbstractWebFormHandler {
       if (!us.hasPraisedPhoto(photo)) {
         int value = Integer.parseInt(praise);
         photo.addToPraise(value);
+        UserManager userManager = UserManager.getInstance();
+        boolean wasEphemeral = userManager.isEphemeral(client);
         client.addPraisedPhotoId(photo.getId());
+        if (wasEphemeral) {
+          // the praise history of the guest is worth keeping now
+          userManager.saveClient(client);
+        }
         us.addProcessedPhoto(photo);
         wasPraised = true;
       }
     }
 
-    log.info(LogBuilder.createUserMessage().addAction(wasPraised ? "PraisePhoto" : "SkipPhoto")
-        .toString());
+    log.info(LogBuilder.createUserMessage().addAction(wasPraised ? "PraisePhoto" : "SkipPhoto"));
 
     return PartUtil.SHOW_PHOTO_PAGE_NAME;
   }
@@ -133,7 +133,7 @@ public class SendEmailFormHandler extends AbstractWebFormHandler {
 
     log.info(LogBuilder.createUserMessage().
         addAction("Send E-Mail").
-        addParameter("Recipient", toUser.getNickName()).toString());
+        addParameter("Recipient", toUser.getNickName()));
 
     us.setMessage(config.getEmailWasSent() + toUser.getNickName() + "!");
 
@@ -81,7 +81,7 @@ public class SetOptionsFormHandler extends AbstractWebFormHandler {
     log.info(LogBuilder.createUserMessage().
         addAction("Set options").
         addParameter("language", language).
-        addParameter("photo size", photoSize).toString());
+        addParameter("photo size", photoSize));
 
     ModelConfig config = us.getClient().getLanguageConfiguration();
     String msg1 = config.getOptionsWereSet();
@@ -106,7 +106,7 @@ public class ShowAdminPageHandler extends AbstractWebPageHandler implements WebF
   public String handlePost(UserSession us, Map args) {
     if (!hasAccessRights(us, args)) {
       log.warning(LogBuilder.createSystemMessage().
-          addMessage("insufficient rights for POST").toString());
+          addMessage("insufficient rights for POST"));
       return getIllegalAccessErrorPage(us);
     }
 
@@ -157,13 +157,12 @@ public class ShowAdminPageHandler extends AbstractWebPageHandler implements WebF
    *
    */
   protected String performSaveAllRequest(UserSession us) {
-    log.info(LogBuilder.createSystemMessage().addAction("save all objects").toString());
+    log.info(LogBuilder.createSystemMessage().addAction("save all objects"));
 
     try {
       ServiceMain.getInstance().saveAll();
     } catch (Exception ex) {
-      log.warning(LogBuilder.createSystemMessage().addException("saving all objects failed", ex)
-          .toString());
+      log.warning(LogBuilder.createSystemMessage().addException("saving all objects failed", ex));
     }
 
     us.setMessage("Saved objects...");
@@ -174,12 +173,12 @@ public class ShowAdminPageHandler extends AbstractWebPageHandler implements WebF
    *
    */
   protected String performShutdownRequest(UserSession us) {
-    log.info(LogBuilder.createSystemMessage().addAction("shutting system down").toString());
+    log.info(LogBuilder.createSystemMessage().addAction("shutting system down"));
     try {
       ServiceMain.getInstance().requestStop();
     } catch (Exception ex) {
       log.warning(
-          LogBuilder.createSystemMessage().addException("requesting stop failed", ex).toString());
+          LogBuilder.createSystemMessage().addException("requesting stop failed", ex));
     }
 
     us.setMessage("Shutting down...");
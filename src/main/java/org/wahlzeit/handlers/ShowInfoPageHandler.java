@@ -47,7 +47,7 @@ public class ShowInfoPageHandler extends AbstractWebPageHandler {
    *
    */
   protected void makeWebPageBody(UserSession us, WebPart page) {
-    page.addWritable("info", createWebPart(us, infoTmplName));
+    page.addWritable("info", createCachedWebPart(us, infoTmplName));
   }
 
 }
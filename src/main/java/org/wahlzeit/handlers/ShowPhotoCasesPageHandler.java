@@ -20,8 +20,10 @@
 
 package org.wahlzeit.handlers;
 
+import java.util.List;
 import java.util.Map;
 import org.wahlzeit.model.AccessRights;
+import org.wahlzeit.model.Photo;
 import org.wahlzeit.model.PhotoCase;
 import org.wahlzeit.model.PhotoCaseManager;
 import org.wahlzeit.model.UserSession;
@@ -36,6 +38,18 @@ import org.wahlzeit.webparts.WritableList;
  */
 public class ShowPhotoCasesPageHandler extends AbstractWebPageHandler {
 
+  /**
+   * Request argument holding the cursor of the page
+   *
+   * @see PhotoCaseManager#getCursor(PhotoCase)
+   */
+  public static final String CURSOR = "cursor";
+
+  /**
+   * Maximum number of cases shown on one page
+   */
+  public static final int CASES_PER_PAGE = 25;
+
   /**
    *
    */
@@ -46,31 +60,73 @@ public class ShowPhotoCasesPageHandler extends AbstractWebPageHandler {
   /**
    *
    */
+  protected String doHandleGet(UserSession us, String link, Map args) {
+    if (args != null) {
+      us.setSavedArg(CURSOR, us.getAsString(args, CURSOR));
+    }
+    return super.doHandleGet(us, link, args);
+  }
+
+  /**
+   * Shows one page of the open cases, oldest first. Only the cases of the page are touched.
+   */
   protected void makeWebPageBody(UserSession us, WebPart page) {
     Map args = us.getSavedArgs();
     page.addStringFromArgs(args, UserSession.MESSAGE);
 
     PhotoCaseManager pcm = PhotoCaseManager.getInstance();
-    PhotoCase[] flaggedCases = pcm.getOpenPhotoCasesByAscendingAge();
-    if (flaggedCases.length != 0) {
+    String cursor = us.getAsString(args, CURSOR);
+    // one more case than shown tells if there is a next page
+    List<PhotoCase> flaggedCases = pcm.getOpenPhotoCasesByDescendingAge(cursor,
+        CASES_PER_PAGE + 1);
+    boolean hasMoreCases = flaggedCases.size() > CASES_PER_PAGE;
+    if (hasMoreCases) {
+      flaggedCases = flaggedCases.subList(0, CASES_PER_PAGE);
+    }
+
+    if (!flaggedCases.isEmpty()) {
       WritableList openCases = new WritableList();
-      for (int i = 0; i < flaggedCases.length; i++) {
-        openCases.append(makePhotoCaseForm(us, flaggedCases[i]));
+      for (PhotoCase photoCase : flaggedCases) {
+        openCases.append(makePhotoCaseSummary(us, photoCase));
       }
       page.addWritable("openCases", openCases);
     } else {
       page.addString("openCases",
           HtmlUtil.asP(us.getClient().getLanguageConfiguration().getNoFlaggedPhotoCases()));
     }
+
+    if (hasMoreCases) {
+      String nextCursor = PhotoCaseManager.getCursor(flaggedCases.get(flaggedCases.size() - 1));
+      page.addString("moreCases", HtmlUtil.asHref(
+          getResourceAsRelativeHtmlPathString(PartUtil.SHOW_PHOTO_CASES_PAGE_NAME) + "?" + CURSOR
+              + "=" + nextCursor,
+          us.getClient().getLanguageConfiguration().getMorePhotoCases()));
+    } else {
+      page.addString("moreCases", "");
+    }
   }
 
   /**
-   *
+   * Renders a single summary row of the case, without touching the session
    */
-  protected Writable makePhotoCaseForm(UserSession us, PhotoCase photoCase) {
-    us.setPhotoCase(photoCase);
-    WebFormHandler handler = getFormHandler(PartUtil.EDIT_PHOTO_CASE_FORM_NAME);
-    return handler.makeWebPart(us);
+  protected Writable makePhotoCaseSummary(UserSession us, PhotoCase photoCase) {
+    WebPart result = createWebPart(us, PartUtil.PHOTO_CASE_INFO_FILE);
+    Photo photo = photoCase.getPhoto();
+
+    result.addString(PhotoCase.ID, String.valueOf(photoCase.getId()));
+    result.addString(Photo.THUMB, getPhotoThumb(us, photo));
+    if (photo != null) {
+      String photoId = photo.getId().asString();
+      result.addString(Photo.LINK,
+          HtmlUtil.asHref(getResourceAsRelativeHtmlPathString(photoId), photoId));
+    } else {
+      result.addString(Photo.LINK, "");
+    }
+    result.maskAndAddString(PhotoCase.FLAGGER, photoCase.getFlagger());
+    result.addString(PhotoCase.REASON,
+        us.getClient().getLanguageConfiguration().asValueString(photoCase.getReason()));
+
+    return result;
   }
 
 }
@@ -30,8 +30,11 @@ import org.wahlzeit.model.PhotoManager;
 import org.wahlzeit.model.PhotoSize;
 import org.wahlzeit.model.Tags;
 import org.wahlzeit.model.UserSession;
+import org.wahlzeit.services.Session;
 import org.wahlzeit.utils.HtmlUtil;
+import org.wahlzeit.utils.StringUtil;
 import org.wahlzeit.webparts.WebPart;
+import org.wahlzeit.webparts.WebPartTemplate;
 import org.wahlzeit.webparts.Writable;
 import org.wahlzeit.webparts.WritableList;
 
@@ -63,11 +66,12 @@ public class ShowPhotoPageHandler extends AbstractWebPageHandler implements WebF
       String skippedPhotoIdString = us.getAsString(args, "prior");
       PhotoId skippedPhotoId = PhotoId.getIdFromString(skippedPhotoIdString);
       us.getClient().addSkippedPhotoId(skippedPhotoId);
-      us.getPhotoFilter().addSkippedPhotoId(skippedPhotoId);
+      us.getPhotoFilterForUpdate().addSkippedPhotoId(skippedPhotoId);
     }
 
     if (photo == null) {
-      PhotoFilter filter = us.getPhotoFilter();
+      // choosing a photo generates the displayable photos of the filter
+      PhotoFilter filter = us.getPhotoFilterForUpdate();
       photo = photoManager.getVisiblePhoto(filter);
       if (photo != null) {
         link = photo.getId().asString();
@@ -82,6 +86,44 @@ public class ShowPhotoPageHandler extends AbstractWebPageHandler implements WebF
     return link;
   }
 
+  /**
+   * Takes the page from the page cache if a guest sees it like any other guest
+   */
+  public WebPart makeWebPage(UserSession us) {
+    Photo photo = PhotoManager.getInstance().getPhoto(us.getPhotoId());
+    if (photo == null || !isCacheablePage(us)) {
+      return super.makeWebPage(us);
+    }
+
+    Client client = us.getClient();
+    String languageCode = client.getLanguageConfiguration().getLanguageCode();
+    String key = PhotoPageCache.asKey(photo.getId(), languageCode, client.getPhotoSize(),
+        us.getSiteUrl());
+
+    PhotoPageCache cache = PhotoPageCache.getInstance();
+    WebPartTemplate page = cache.getPage(key, photo);
+    if (page == null) {
+      page = new WebPartTemplate(tmplName);
+      page.initialize(super.makeWebPage(us), Session.PROCESSING_TIME);
+      cache.putPage(key, photo, page);
+    }
+
+    return new WebPart(page);
+  }
+
+  /**
+   * A guest without praised photos and filter sees the same page as any other such guest
+   *
+   * @methodtype boolean-query
+   */
+  protected boolean isCacheablePage(UserSession us) {
+    Client client = us.getClient();
+    PhotoFilter filter = us.getPhotoFilter();
+    return PhotoPageCache.getInstance().isEnabled() && !client.hasUserRights()
+        && !client.hasPraisedPhotos()
+        && StringUtil.isNullOrEmptyString(filter.getUserName()) && filter.getTags().getSize() == 0;
+  }
+
   /**
    *
    */
@@ -127,14 +169,14 @@ public class ShowPhotoPageHandler extends AbstractWebPageHandler implements WebF
     if (lastPraisedPhoto != null) {
       parts.append(makePriorPhotoInfo(us, lastPraisedPhoto));
     } else {
-      parts.append(createWebPart(us, PartUtil.BLURP_INFO_FILE));
+      parts.append(createCachedWebPart(us, PartUtil.BLURP_INFO_FILE));
     }
 
     WebFormHandler handler = getFormHandler(PartUtil.FILTER_PHOTOS_FORM_NAME);
     Writable filterPhotos = handler.makeWebPart(us);
     parts.append(filterPhotos);
 
-    parts.append(createWebPart(us, PartUtil.LINKS_INFO_FILE));
+    parts.append(createCachedWebPart(us, PartUtil.LINKS_INFO_FILE));
 
     page.addWritable("sidebar", parts);
   }
@@ -151,15 +193,13 @@ public class ShowPhotoPageHandler extends AbstractWebPageHandler implements WebF
 
     if (photo == null) {
       page.addString("mainWidth", String.valueOf(pagePhotoSize.getMaxPhotoWidth()));
-      WebPart done = createWebPart(us, PartUtil.DONE_INFO_FILE);
-      page.addWritable(Photo.IMAGE, done);
+      page.addWritable(Photo.IMAGE, createCachedWebPart(us, PartUtil.DONE_INFO_FILE));
       return;
     }
 
     if (!photo.isVisible() && !client.hasModeratorRights() && !us.isPhotoOwner(photo)) {
       page.addString("mainWidth", String.valueOf(pagePhotoSize.getMaxPhotoWidth()));
-      WebPart done = createWebPart(us, PartUtil.HIDDEN_INFO_FILE);
-      page.addWritable(Photo.IMAGE, done);
+      page.addWritable(Photo.IMAGE, createCachedWebPart(us, PartUtil.HIDDEN_INFO_FILE));
       return;
     }
 
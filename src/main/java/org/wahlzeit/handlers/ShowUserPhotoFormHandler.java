@@ -106,7 +106,7 @@ public class ShowUserPhotoFormHandler extends AbstractWebFormHandler {
       userManager.saveClient(user);
       log.info(LogBuilder.createUserMessage().
           addAction("Select user photo").
-          addParameter("Photo", id).toString());
+          addParameter("Photo", id));
     } else if (us.isFormType(args, "delete")) {
       photo.setStatus(photo.getStatus().asDeleted(true));
       PhotoManager.getInstance().savePhoto(photo);
@@ -115,7 +115,7 @@ public class ShowUserPhotoFormHandler extends AbstractWebFormHandler {
         userManager.saveClient(user);
       }
       log.info(LogBuilder.createUserMessage().
-          addAction("Deselect user photo").toString());
+          addAction("Deselect user photo"));
     }
 
     return result;
@@ -112,7 +112,7 @@ public class TellFriendFormHandler extends AbstractWebFormHandler {
 
     log.info(LogBuilder.createUserMessage().
         addAction("TellFriend").
-        addParameter("recipient", to.asString()).toString());
+        addParameter("recipient", to.asString()));
 
     us.setTwoLineMessage(config.getEmailWasSent() + friendsEmailAddress + "! ",
         config.getKeepGoing());
@@ -85,17 +85,17 @@ public class UploadPhotoFormHandler extends AbstractWebFormHandler {
       log.config(LogBuilder.createUserMessage().
           addAction("Upload Photo").
           addParameter("Photo", photo.getId().asString()).
-          addParameter("tags", photo.getTags().asString()).toString());
+          addParameter("tags", photo.getTags().asString()));
 
       us.setTwoLineMessage(config.getPhotoUploadSucceeded(), config.getKeepGoing());
       log.config(LogBuilder.createSystemMessage().
           addAction("Calling async task to save Photo").
-          addParameter("ID", photo.getId().asString()).toString());
+          addParameter("ID", photo.getId().asString()));
 
       AsyncTaskExecutor.savePhotoAsync(photo.getId().asString());
     } catch (Exception ex) {
       log.warning(
-          LogBuilder.createSystemMessage().addException("uploading photo failed", ex).toString());
+          LogBuilder.createSystemMessage().addException("uploading photo failed", ex));
       us.setMessage(config.getPhotoUploadFailed());
     }
 
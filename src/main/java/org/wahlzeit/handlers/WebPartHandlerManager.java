@@ -20,14 +20,21 @@
 
 package org.wahlzeit.handlers;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
+import org.wahlzeit.model.PhotoId;
 import org.wahlzeit.services.LogBuilder;
 
 
 /**
  * A manager class for web parts.
+ *
+ * Page and form handlers are kept in separate maps. Request URIs are resolved by routing tables, a
+ * trie over the handler names for pages and one for forms, which find the handler and its name
+ * without cutting the name out of the URI. Photo ids are recognized by their form and routed to
+ * the default page handler with the string of the id.
  */
 public class WebPartHandlerManager {
 
@@ -36,10 +43,25 @@ public class WebPartHandlerManager {
    */
   protected static final WebPartHandlerManager instance = new WebPartHandlerManager();
   private static final Logger log = Logger.getLogger(WebPartHandler.class.getName());
+
+  /**
+   *
+   */
+  protected static final String PAGE_ENDING = ".html";
+  protected static final String FORM_ENDING = ".form";
+
   /**
    *
    */
   protected Map<String, WebPartHandler> handler = new HashMap<String, WebPartHandler>();
+  protected Map<String, WebPageHandler> pageHandlers = new HashMap<String, WebPageHandler>();
+  protected Map<String, WebFormHandler> formHandlers = new HashMap<String, WebFormHandler>();
+
+  /**
+   * Routing tables, rebuilt when handlers are added
+   */
+  protected volatile Trie<Route<WebPageHandler>> pageRoutes = new Trie<Route<WebPageHandler>>();
+  protected volatile Trie<Route<WebFormHandler>> formRoutes = new Trie<Route<WebFormHandler>>();
 
   /**
    *
@@ -73,42 +95,98 @@ public class WebPartHandlerManager {
    *
    */
   public WebPageHandler getWebPageHandlerFor(String name) {
-    WebPartHandler result = handler.get(name);
-    if (result == null || !(result instanceof WebPageHandler)) {
-      result = getDefaultWebPageHandler();
+    WebPageHandler result = pageHandlers.get(name);
+    if (result == null) {
+      result = getDefaultPageHandler();
     }
 
-    return (WebPageHandler) result;
+    return result;
   }
 
   /**
    *
    */
   public WebPartHandler getDefaultWebPageHandler() {
-    return handler.get("index");
+    return handler.get(PartUtil.DEFAULT_PAGE_NAME);
   }
 
   /**
    *
    */
   public WebFormHandler getWebFormHandlerFor(String name) {
-    WebPartHandler result = handler.get(name);
-    if (result == null || !(result instanceof WebFormHandler)) {
-      result = getDefaultWebPageHandler();
+    WebFormHandler result = formHandlers.get(name);
+    if (result == null) {
+      result = getDefaultFormHandler();
     }
 
-    return (WebFormHandler) result;
+    return result;
   }
 
   /**
+   * Resolves the URI of a GET request, "/name.html" or "/name"
    *
+   * @return the handler with the link it is requested by
    */
-  public WebPartHandler addWebPartHandler(String name, WebPartHandler myHandler) {
+  public Route<WebPageHandler> resolvePage(String uri) {
+    int start = uri.lastIndexOf('/') + 1;
+    int end = uri.indexOf(PAGE_ENDING, start);
+    if (end == -1) {
+      end = uri.length();
+    }
+
+    Route<WebPageHandler> result = pageRoutes.get(uri, start, end);
+    if (result == null) {
+      // photo ids and unknown links are handled by the default page
+      PhotoId photoId = PhotoId.getIdFromString(uri, start, end);
+      String link = photoId != null ? photoId.asString() : uri.substring(start, end);
+      result = new Route<WebPageHandler>(getDefaultPageHandler(), PartUtil.DEFAULT_PAGE_NAME,
+          link);
+    }
+    return result;
+  }
+
+  /**
+   * Resolves the URI of a POST request, "/name.form"
+   *
+   * @return the handler with the link it is requested by, the null form if there is no form
+   */
+  public Route<WebFormHandler> resolveForm(String uri) {
+    int start = uri.lastIndexOf('/') + 1;
+    int end = uri.indexOf(FORM_ENDING, start);
+    if (end == -1) {
+      return new Route<WebFormHandler>(getWebFormHandlerFor(PartUtil.NULL_FORM_NAME),
+          PartUtil.NULL_FORM_NAME, PartUtil.NULL_FORM_NAME);
+    }
+
+    Route<WebFormHandler> result = formRoutes.get(uri, start, end);
+    if (result == null) {
+      result = new Route<WebFormHandler>(getDefaultFormHandler(), PartUtil.DEFAULT_PAGE_NAME,
+          uri.substring(start, end));
+    }
+    return result;
+  }
+
+  /**
+   *
+   */
+  public synchronized WebPartHandler addWebPartHandler(String name, WebPartHandler myHandler) {
     handler.put(name, myHandler);
+    if (myHandler instanceof WebPageHandler) {
+      pageHandlers.put(name, (WebPageHandler) myHandler);
+    } else {
+      pageHandlers.remove(name);
+    }
+    if (myHandler instanceof WebFormHandler) {
+      formHandlers.put(name, (WebFormHandler) myHandler);
+    } else {
+      formHandlers.remove(name);
+    }
+    buildRoutes();
+
     log.config(LogBuilder.createSystemMessage().
         addAction("add WebPartHandler").
         addParameter("name", name).
-        addParameter("handler", myHandler).toString());
+        addParameter("handler", myHandler));
     return myHandler;
   }
 
@@ -119,4 +197,148 @@ public class WebPartHandlerManager {
     return handler.get("null");
   }
 
+  /**
+   * The default page handler if it also handles forms, like the original lookup fell back to
+   *
+   * @methodtype get
+   */
+  protected WebFormHandler getDefaultFormHandler() {
+    WebPartHandler result = getDefaultWebPageHandler();
+    return result instanceof WebFormHandler ? (WebFormHandler) result : null;
+  }
+
+  /**
+   * @methodtype get
+   */
+  protected WebPageHandler getDefaultPageHandler() {
+    WebPartHandler result = getDefaultWebPageHandler();
+    return result instanceof WebPageHandler ? (WebPageHandler) result : null;
+  }
+
+  /**
+   * Builds new routing tables; requests keep using the old ones until they are replaced
+   *
+   * @methodtype helper
+   */
+  protected void buildRoutes() {
+    Trie<Route<WebPageHandler>> newPageRoutes = new Trie<Route<WebPageHandler>>();
+    for (Map.Entry<String, WebPageHandler> entry : pageHandlers.entrySet()) {
+      newPageRoutes.put(entry.getKey(),
+          new Route<WebPageHandler>(entry.getValue(), entry.getKey(), entry.getKey()));
+    }
+
+    Trie<Route<WebFormHandler>> newFormRoutes = new Trie<Route<WebFormHandler>>();
+    for (Map.Entry<String, WebFormHandler> entry : formHandlers.entrySet()) {
+      newFormRoutes.put(entry.getKey(),
+          new Route<WebFormHandler>(entry.getValue(), entry.getKey(), entry.getKey()));
+    }
+
+    pageRoutes = newPageRoutes;
+    formRoutes = newFormRoutes;
+  }
+
+  /**
+   * A handler with the name it is registered by and the link it is requested by
+   */
+  public static class Route<H extends WebPartHandler> {
+
+    protected final H handler;
+    protected final String name;
+    protected final String link;
+
+    protected Route(H handler, String name, String link) {
+      this.handler = handler;
+      this.name = name;
+      this.link = link;
+    }
+
+    /**
+     * @return the handler, null if there is no default handler for an unknown link
+     */
+    public H getHandler() {
+      return handler;
+    }
+
+    /**
+     * @return the name of the handler, of the default one for photo ids and unknown links
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @methodtype get
+     */
+    public String getLink() {
+      return link;
+    }
+  }
+
+  /**
+   * Maps names to values; a lookup walks a part of a string character by character
+   */
+  protected static class Trie<V> {
+
+    protected char[] labels = new char[0];
+    protected Trie<V>[] children = newChildren(0);
+    protected V value = null;
+
+    /**
+     * @methodtype command
+     */
+    protected void put(String key, V newValue) {
+      Trie<V> node = this;
+      for (int i = 0; i < key.length(); i++) {
+        node = node.getOrAddChild(key.charAt(i));
+      }
+      node.value = newValue;
+    }
+
+    /**
+     * @return the value of the characters from start to end, null if there is none
+     */
+    protected V get(CharSequence s, int start, int end) {
+      Trie<V> node = this;
+      for (int i = start; i < end && node != null; i++) {
+        node = node.getChild(s.charAt(i));
+      }
+      return node != null ? node.value : null;
+    }
+
+    /**
+     * @methodtype get
+     */
+    protected Trie<V> getChild(char label) {
+      for (int i = 0; i < labels.length; i++) {
+        if (labels[i] == label) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    /**
+     * @methodtype helper
+     */
+    protected Trie<V> getOrAddChild(char label) {
+      Trie<V> result = getChild(label);
+      if (result == null) {
+        result = new Trie<V>();
+        labels = Arrays.copyOf(labels, labels.length + 1);
+        children = Arrays.copyOf(children, children.length + 1);
+        labels[labels.length - 1] = label;
+        children[children.length - 1] = result;
+      }
+      return result;
+    }
+
+    /**
+     * @methodtype factory
+     */
+    @SuppressWarnings("unchecked")
+    protected static <V> Trie<V>[] newChildren(int length) {
+      return (Trie<V>[]) new Trie<?>[length];
+    }
+  }
+
 }
@@ -50,27 +50,27 @@ public abstract class ModelMain extends AbstractMain {
     super.startUp(rootDir);
     log.info("AbstractMain.startUp completed");
 
-    log.config(LogBuilder.createSystemMessage().addAction("load image storage").toString());
+    log.config(LogBuilder.createSystemMessage().addAction("load image storage"));
     //GcsAdapter.Builder gcsAdapterBuilder = new GcsAdapter.Builder();
     ImageStorage.setInstance(new DatastoreAdapter());
 
-    log.config(LogBuilder.createSystemMessage().addAction("load globals").toString());
+    log.config(LogBuilder.createSystemMessage().addAction("load globals"));
     GlobalsManager.getInstance().loadGlobals();
 
-    log.config(LogBuilder.createSystemMessage().addAction("load user").toString());
+    log.config(LogBuilder.createSystemMessage().addAction("load user"));
     UserManager.getInstance().init();
 
-    log.config(LogBuilder.createSystemMessage().addAction("init PhotoFactory").toString());
+    log.config(LogBuilder.createSystemMessage().addAction("init PhotoFactory"));
     PhotoFactory.initialize();
 
     log.config(
-        LogBuilder.createSystemMessage().addAction("init CheesefoodPhotoFactory").toString());
+        LogBuilder.createSystemMessage().addAction("init CheesefoodPhotoFactory"));
     CheesefoodPhotoFactory.initialize();
 
-    log.config(LogBuilder.createSystemMessage().addAction("load Photos").toString());
+    log.config(LogBuilder.createSystemMessage().addAction("load Photos"));
     PhotoManager.getInstance().init();
 
-    log.config(LogBuilder.createSystemMessage().addAction("load cheesefood Photos").toString());
+    log.config(LogBuilder.createSystemMessage().addAction("load cheesefood Photos"));
     CheesefoodPhotoManager.getInstance().init();
   }
 
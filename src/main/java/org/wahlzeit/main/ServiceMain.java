@@ -20,6 +20,9 @@
 
 package org.wahlzeit.main;
 
+import com.google.appengine.api.utils.SystemProperty;
+import java.io.IOException;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 import org.wahlzeit.handlers.AdminUserPhotoFormHandler;
 import org.wahlzeit.handlers.AdminUserProfileFormHandler;
@@ -31,8 +34,10 @@ import org.wahlzeit.handlers.FilterPhotosPageHandler;
 import org.wahlzeit.handlers.FlagPhotoFormHandler;
 import org.wahlzeit.handlers.LoginFormHandler;
 import org.wahlzeit.handlers.LogoutPageHandler;
+import org.wahlzeit.handlers.ModeratePhotoCasesFormHandler;
 import org.wahlzeit.handlers.NullFormHandler;
 import org.wahlzeit.handlers.PartUtil;
+import org.wahlzeit.handlers.PhotoPageCache;
 import org.wahlzeit.handlers.PraisePhotoFormHandler;
 import org.wahlzeit.handlers.ResetSessionPageHandler;
 import org.wahlzeit.handlers.SendEmailFormHandler;
@@ -56,10 +61,12 @@ import org.wahlzeit.model.AccessRights;
 import org.wahlzeit.model.EnglishModelConfig;
 import org.wahlzeit.model.GermanModelConfig;
 import org.wahlzeit.model.LanguageConfigs;
+import org.wahlzeit.services.AsyncLogHandler;
 import org.wahlzeit.services.ConfigDir;
 import org.wahlzeit.services.Language;
 import org.wahlzeit.services.LogBuilder;
 import org.wahlzeit.services.SysConfig;
+import org.wahlzeit.webparts.FragmentCache;
 import org.wahlzeit.webparts.WebPartTemplateService;
 
 /**
@@ -84,6 +91,11 @@ public class ServiceMain extends ModelMain {
    */
   protected boolean isInProduction = false;
 
+  /**
+   *
+   */
+  protected AsyncLogHandler logHandler = null;
+
   /**
    *
    */
@@ -120,20 +132,40 @@ public class ServiceMain extends ModelMain {
   public void startUp(boolean inProduction, String rootDir) throws Exception {
     isInProduction = inProduction;
 
-    log.config(LogBuilder.createSystemMessage().addAction("Start up ModelMain").toString());
+    configureLogging();
+
+    log.config(LogBuilder.createSystemMessage().addAction("Start up ModelMain"));
     super.startUp(rootDir);
 
     log.config(
-        LogBuilder.createSystemMessage().addAction("Configure WebPartTemplateService").toString());
+        LogBuilder.createSystemMessage().addAction("Configure WebPartTemplateService"));
     configureWebPartTemplateService();
 
-    log.config(LogBuilder.createSystemMessage().addAction("Configure WebPartHandler").toString());
+    log.config(LogBuilder.createSystemMessage().addAction("Configure WebPartHandler"));
     configureWebPartHandlers();
 
-    log.config(LogBuilder.createSystemMessage().addAction("Configure LanguageModels").toString());
+    log.config(LogBuilder.createSystemMessage().addAction("Configure LanguageModels"));
     configureLanguageModels();
 
-    log.config(LogBuilder.createSystemMessage().addMessage("StartUp complete.").toString());
+    log.config(LogBuilder.createSystemMessage().addMessage("StartUp complete."));
+  }
+
+  /**
+   * Moves writing log records off the request threads, except on App Engine: there a thread of
+   * the default factory is bound to the request, and records published off the request thread are
+   * not associated with its request log.
+   */
+  public void configureLogging() {
+    if (logHandler == null && !isOnAppEngine()) {
+      logHandler = AsyncLogHandler.install(Logger.getLogger(""), Executors.defaultThreadFactory());
+    }
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  protected boolean isOnAppEngine() {
+    return SystemProperty.environment.value() == SystemProperty.Environment.Value.Production;
   }
 
   /**
@@ -141,7 +173,21 @@ public class ServiceMain extends ModelMain {
    */
   public void configureWebPartTemplateService() {
     ConfigDir templatesDir = SysConfig.getTemplatesDir();
-    WebPartTemplateService.getInstance().setTemplatesDir(templatesDir);
+    WebPartTemplateService templateService = WebPartTemplateService.getInstance();
+    templateService.setTemplatesDir(templatesDir);
+    FragmentCache.getInstance().invalidateAll();
+    PhotoPageCache.getInstance().invalidateAll();
+
+    templateService.preloadTemplates(Executors.defaultThreadFactory());
+    if (!isInProduction) {
+      // template tweaks show without restart
+      try {
+        templateService.startWatching(Executors.defaultThreadFactory());
+      } catch (IOException | RuntimeException ex) {
+        log.warning(LogBuilder.createSystemMessage().
+            addException("Cannot watch templates", ex));
+      }
+    }
   }
 
   /**
@@ -236,6 +282,8 @@ public class ServiceMain extends ModelMain {
 
     manager.addWebPartHandler(PartUtil.EDIT_PHOTO_CASE_FORM_NAME, new EditPhotoCaseFormHandler());
     manager.addWebPartHandler(PartUtil.SHOW_PHOTO_CASES_PAGE_NAME, new ShowPhotoCasesPageHandler());
+    manager.addWebPartHandler(PartUtil.MODERATE_PHOTO_CASES_FORM_NAME,
+        new ModeratePhotoCasesFormHandler());
 
     // Admin page incl. AdminUserProfile and AdminUserPhoto
     temp = new ShowAdminPageHandler();
@@ -252,6 +300,8 @@ public class ServiceMain extends ModelMain {
   public void configureLanguageModels() {
     LanguageConfigs.put(Language.ENGLISH, new EnglishModelConfig());
     LanguageConfigs.put(Language.GERMAN, new GermanModelConfig());
+    FragmentCache.getInstance().invalidateAll();
+    PhotoPageCache.getInstance().invalidateAll();
   }
 
   /**
@@ -261,7 +311,14 @@ public class ServiceMain extends ModelMain {
     //AgentManager am = AgentManager.getInstance();
     //am.stopAllThreads();
 
+    WebPartTemplateService.getInstance().stopWatching();
+
     super.shutDown();
+
+    if (logHandler != null) {
+      AsyncLogHandler.uninstall(Logger.getLogger(""), logHandler);
+      logHandler = null;
+    }
   }
 
 }
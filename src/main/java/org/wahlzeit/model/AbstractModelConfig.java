@@ -91,8 +91,7 @@ public abstract class AbstractModelConfig extends AbstractConfig implements Mode
       }
     } catch (IOException ioex) {
       log.warning(
-          LogBuilder.createSystemMessage().addException("initializing directories failed", ioex)
-              .toString());
+          LogBuilder.createSystemMessage().addException("initializing directories failed", ioex));
     }
 
     String menuDash = "&nbsp;" + doGetValue("MenuDash") + "&nbsp;";
@@ -603,6 +602,13 @@ public abstract class AbstractModelConfig extends AbstractConfig implements Mode
     return doGetValue("NoFlaggedPhotoCases");
   }
 
+  /**
+   *
+   */
+  public String getMorePhotoCases() {
+    return doGetValue("MorePhotoCases");
+  }
+
   /**
    *
    */
@@ -22,12 +22,7 @@
 package org.wahlzeit.model;
 
 
-import static org.wahlzeit.utils.HashUtil.hash3;
-
-import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import org.wahlzeit.model.converter.CoordinateConverter;
 import org.wahlzeit.utils.ParameterUtil;
 import org.wahlzeit.utils.doc.DesignPattern;
 import org.wahlzeit.utils.doc.pattern.PatternType;
@@ -54,9 +49,26 @@ public class CartesianCoordinate extends AbstractCoordinate {
   private final double z;
 
   /**
-   * This map stores all instances of cartesian coordinates
+   * Lazily converted spheric counterpart of this coordinate. The race when setting it is benign,
+   * as coordinates are immutable value objects.
    */
-  private static final HashMap<Integer, List<WeakReference<CartesianCoordinate>>> INSTANCES = new HashMap<>();
+  private SphericCoordinate sphericCoordinate = null;
+
+  /**
+   * This cache stores all instances of cartesian coordinates
+   */
+  private static final CoordinateCache<CartesianCoordinate> INSTANCES =
+      new CoordinateCache<CartesianCoordinate>() {
+    @Override
+    protected boolean hasComponents(CartesianCoordinate coordinate, double x, double y, double z) {
+      return coordinate.x == x && coordinate.y == y && coordinate.z == z;
+    }
+
+    @Override
+    protected CartesianCoordinate doCreate(double x, double y, double z) {
+      return new CartesianCoordinate(x, y, z);
+    }
+  };
 
   /**
    * Creates a new CartesianCoordinate with given x, y and z
@@ -67,73 +79,13 @@ public class CartesianCoordinate extends AbstractCoordinate {
    * @throws IllegalArgumentException throws an exception if the provided components are non
    * numeric
    */
-  public synchronized static CartesianCoordinate create(double x, double y, double z) {
-    // ensure a object get not persist twice
-    synchronized (INSTANCES) {
-      ParameterUtil.assertValidNumber(x, "x");
-      ParameterUtil.assertValidNumber(y, "y");
-      ParameterUtil.assertValidNumber(z, "z");
-
-      // look if we already have a instance with the provided coordinates
-      int hash = hash3(x, y, z);
-      CartesianCoordinate coord;
-      if (INSTANCES.containsKey(hash)) {
-        // there is already a list of objects with this hash
-        List<WeakReference<CartesianCoordinate>> coords = INSTANCES.get(hash);
-        for (WeakReference<CartesianCoordinate> refCoord : coords) {
-          coord = refCoord.get();
-          if (coord == null) {
-            // the finalizer will clean it up probably
-            continue;
-          }
-          if (coord.getX() == x && coord.getY() == y && coord.getZ() == z) {
-            return coord;
-          }
-        }
-      /*
-       The reference was deleted by the gc or we have no matching
-       => Delete the invalid reference and create a new reference
-       */
-        coord = new CartesianCoordinate(x, y, z);
-        coords.add(new WeakReference<>(coord));
-        // return the created reference
-        return coord;
-      } else {
-        // the hash is not existent => create a list of objects with this hash
-        List<WeakReference<CartesianCoordinate>> coords = new ArrayList<>();
-        // create our new coordinate
-        coord = new CartesianCoordinate(x, y, z);
-        // store a reference to our coordinate
-        coords.add(new WeakReference<>(coord));
-        INSTANCES.put(hash, coords);
-        // return the created reference
-        return coord;
-      }
-    }
-  }
+  public static CartesianCoordinate create(double x, double y, double z) {
+    ParameterUtil.assertValidNumber(x, "x");
+    ParameterUtil.assertValidNumber(y, "y");
+    ParameterUtil.assertValidNumber(z, "z");
 
-  @Override
-  protected void finalize() throws Throwable {
-    super.finalize();
-    // our object gets finalized => remove it from instances
-
-    int hash = hash3(x, y, z);
-
-    synchronized (INSTANCES) {
-      List<WeakReference<CartesianCoordinate>> coords = INSTANCES.get(hash);
-
-      for (WeakReference<CartesianCoordinate> refCoord : coords) {
-        // check if we are the entry in the list
-        if (refCoord.get() == this) {
-          // jaj we are the entry in the list lets remove us
-          // acquire the lock and remove us
-
-          coords.remove(refCoord);
-          // work done
-          return;
-        }
-      }
-    }
+    // look up the instance with the provided components or create it
+    return INSTANCES.get(x, y, z);
   }
 
   /**
@@ -216,6 +168,45 @@ public class CartesianCoordinate extends AbstractCoordinate {
   }
 
 
+  /**
+   * Returns this coordinate, there is nothing to convert
+   *
+   * @return this coordinate
+   */
+  @Override
+  public CartesianCoordinate asCartesianCoordinate() {
+    return this;
+  }
+
+  /**
+   * Converts the coordinate to a {@link SphericCoordinate}. The conversion is done once, the
+   * result is linked with this coordinate in both directions.
+   *
+   * @return the spheric counterpart of this coordinate
+   * @see CoordinateConverter#convertToSpheric(CartesianCoordinate)
+   */
+  @Override
+  public SphericCoordinate asSphericCoordinate() {
+    SphericCoordinate result = sphericCoordinate;
+    if (result == null) {
+      result = CoordinateConverter.convertToSpheric(this);
+      result.linkCartesianCoordinate(this);
+      sphericCoordinate = result;
+    }
+    return result;
+  }
+
+  /**
+   * Sets the spheric counterpart if it is not known yet
+   *
+   * @param coordinate this coordinate was converted from
+   */
+  void linkSphericCoordinate(SphericCoordinate coordinate) {
+    if (sphericCoordinate == null) {
+      sphericCoordinate = coordinate;
+    }
+  }
+
   /**
    * Converts the coordinate to an string
    *
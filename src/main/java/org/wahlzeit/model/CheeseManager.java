@@ -1,7 +1,9 @@
 package org.wahlzeit.model;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.wahlzeit.utils.ParameterUtil;
 
 public class CheeseManager {
@@ -13,7 +15,13 @@ public class CheeseManager {
   }
 
 
-  private static final Map<String, CheeseType> types = new HashMap<>();
+  private static final ConcurrentMap<String, CheeseType> types = new ConcurrentHashMap<>();
+
+  // All types which have a supertype or subtypes, guarded by the manager
+  private final Set<CheeseType> linkedTypes = new HashSet<>();
+
+  // Snapshot of the current hierarchy, replaced on every change
+  private volatile CheeseTypeHierarchy hierarchy = CheeseTypeHierarchy.EMPTY;
 
 
   /**
@@ -27,13 +35,15 @@ public class CheeseManager {
     ParameterUtil.assertNotNull(name, "Name");
     ParameterUtil.assertNotNull(origin, "Origin");
 
-    if(!types.containsKey(name)) {
-      CheeseType type = new CheeseType(origin, name);
-      types.put(name, type);
-      return type;
-    }else{
-      return types.get(name);
+    CheeseType type = types.get(name);
+    if (type == null) {
+      CheeseType newType = new CheeseType(origin, name);
+      type = types.putIfAbsent(name, newType);
+      if (type == null) {
+        type = newType;
+      }
     }
+    return type;
   }
 
   /**
@@ -46,13 +56,58 @@ public class CheeseManager {
     return getCheeseType("", name);
   }
 
+  /**
+   * Looks up a cheesefood type without creating it
+   *
+   * @param name of the type
+   * @return the type, null if there is none of that name
+   */
+  public CheeseType findCheeseType(String name) {
+    ParameterUtil.assertNotNull(name, "Name");
+    return types.get(name);
+  }
+
   public CheeseType getCheeseType(String name, CheeseType supertype) {
     ParameterUtil.assertNotNull(supertype, "Supertype");
     CheeseType cheeseType = getCheeseType(name);
-    cheeseType.setSupertype(supertype);
-    supertype.getSubtypes().add(cheeseType);
+    setSupertype(cheeseType, supertype);
     return cheeseType;
   }
 
+  /**
+   * Moves the type below the given supertype and publishes a new hierarchy snapshot
+   *
+   * @param type to move
+   * @param supertype new supertype or null to make it a root type
+   * @throws IllegalArgumentException if the supertype is in the hierarchy below the type
+   */
+  public synchronized void setSupertype(CheeseType type, CheeseType supertype) {
+    ParameterUtil.assertNotNull(type, "Type");
+
+    if (type.getSupertype() == supertype) {
+      return;
+    }
+    if (supertype != null && hierarchy.isSubtype(type, supertype)) {
+      throw new IllegalArgumentException(
+          "Cannot set " + supertype.getCheeseName() + " as supertype of " + type.getCheeseName()
+              + ", it is one of its subtypes");
+    }
+
+    type.doSetSupertype(supertype);
+    linkedTypes.add(type);
+    if (supertype != null) {
+      linkedTypes.add(supertype);
+    }
+
+    hierarchy = CheeseTypeHierarchy.create(hierarchy.getVersion() + 1, linkedTypes);
+  }
+
+  /**
+   * Returns the current snapshot of the hierarchy, it never changes once returned
+   */
+  public CheeseTypeHierarchy getHierarchy() {
+    return hierarchy;
+  }
+
 
 }
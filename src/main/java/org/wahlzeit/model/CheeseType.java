@@ -1,24 +1,39 @@
 package org.wahlzeit.model;
 
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.wahlzeit.utils.ParameterUtil;
 
 public class CheeseType {
 
+  private static final AtomicInteger nextId = new AtomicInteger();
+
+  // Identifies the type within the CheeseTypeHierarchy
+  private final int id = nextId.getAndIncrement();
+
   private String cheeseOrigin;
 
   private String cheeseName;
 
-  private CheeseType supertype;
+  // The hierarchy is only modified by the CheeseManager
+  private volatile CheeseType supertype;
 
-  private Set<CheeseType> subtypes = new HashSet<>();
+  private final Set<CheeseType> subtypes = new CopyOnWriteArraySet<>();
 
   public CheeseType(String cheeseOrigin, String cheeseName) {
     this.cheeseOrigin = cheeseOrigin;
     this.cheeseName = cheeseName;
   }
 
+  /**
+   * Returns the id of the type, ids are handed out in order of creation
+   */
+  public int getId() {
+    return id;
+  }
+
   /**
    * Returns the origin of the Cheese
    */
@@ -51,12 +66,21 @@ public class CheeseType {
     return supertype;
   }
 
+  /**
+   * Moves the type below the given supertype
+   *
+   * @param supertype new supertype or null to make it a root type
+   * @see CheeseManager#setSupertype(CheeseType, CheeseType)
+   */
   public void setSupertype(CheeseType supertype) {
-    this.supertype = supertype;
+    CheeseManager.getInstance().setSupertype(this, supertype);
   }
 
+  /**
+   * Returns the direct subtypes, the returned set cannot be modified
+   */
   public Set<CheeseType> getSubtypes() {
-    return subtypes;
+    return Collections.unmodifiableSet(subtypes);
   }
 
   /**
@@ -64,23 +88,24 @@ public class CheeseType {
    *
    * @param type to find in the tree
    * @return true if the type is in the hierarchy
+   * @see CheeseTypeHierarchy#isSubtype(CheeseType, CheeseType)
    */
   public boolean isSubtype(CheeseType type) {
     ParameterUtil.assertNotNull(type, "type");
 
-    // base case
-    if (this == type) {
-      return true;
-    }
+    return CheeseManager.getInstance().getHierarchy().isSubtype(this, type);
+  }
 
-    for (CheeseType t : subtypes) {
-      // recursion call
-      if (t.isSubtype(type)) {
-        return true;
-      }
+  /**
+   * Links the type with its new supertype, has to be called by the CheeseManager only
+   */
+  void doSetSupertype(CheeseType newSupertype) {
+    if (supertype != null) {
+      supertype.subtypes.remove(this);
+    }
+    supertype = newSupertype;
+    if (newSupertype != null) {
+      newSupertype.subtypes.add(this);
     }
-
-    // not found in our tree
-    return false;
   }
 }
@@ -0,0 +1,118 @@
+package org.wahlzeit.model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Immutable snapshot of the cheese type hierarchy. Every type is numbered in pre- and post-order
+ * of a depth first traversal, so a type is in the subtree of another type exactly if its interval
+ * lies within the interval of the other. Subtype checks are two integer comparisons.
+ *
+ * A new snapshot with a higher version is created by the {@link CheeseManager} whenever the
+ * hierarchy changes.
+ */
+public class CheeseTypeHierarchy {
+
+  /**
+   * Hierarchy without any relations
+   */
+  public static final CheeseTypeHierarchy EMPTY = new CheeseTypeHierarchy(0, new int[0],
+      new int[0]);
+
+  private final int version;
+
+  /**
+   * Pre- and post-order numbers indexed by the id of the type, -1 for unknown types
+   */
+  private final int[] preOrder;
+  private final int[] postOrder;
+
+  private CheeseTypeHierarchy(int version, int[] preOrder, int[] postOrder) {
+    this.version = version;
+    this.preOrder = preOrder;
+    this.postOrder = postOrder;
+  }
+
+  /**
+   * Numbers the given types and all their subtypes
+   *
+   * @param version of the new snapshot
+   * @param types of the hierarchy, the roots are the types without supertype
+   * @return the snapshot
+   */
+  public static CheeseTypeHierarchy create(int version, Collection<CheeseType> types) {
+    int maxId = -1;
+    for (CheeseType type : types) {
+      maxId = Math.max(maxId, type.getId());
+    }
+
+    int[] preOrder = new int[maxId + 1];
+    int[] postOrder = new int[maxId + 1];
+    Arrays.fill(preOrder, -1);
+    Arrays.fill(postOrder, -1);
+
+    int counter = 0;
+    Deque<CheeseType> path = new ArrayDeque<>();
+    Deque<Iterator<CheeseType>> pending = new ArrayDeque<>();
+    for (CheeseType root : types) {
+      if (root.getSupertype() != null) {
+        continue;
+      }
+
+      preOrder[root.getId()] = counter++;
+      path.push(root);
+      pending.push(root.getSubtypes().iterator());
+      while (!path.isEmpty()) {
+        Iterator<CheeseType> subtypes = pending.peek();
+        if (subtypes.hasNext()) {
+          CheeseType subtype = subtypes.next();
+          if (subtype.getId() < preOrder.length && preOrder[subtype.getId()] < 0) {
+            preOrder[subtype.getId()] = counter++;
+            path.push(subtype);
+            pending.push(subtype.getSubtypes().iterator());
+          }
+        } else {
+          postOrder[path.pop().getId()] = counter++;
+          pending.pop();
+        }
+      }
+    }
+
+    return new CheeseTypeHierarchy(version, preOrder, postOrder);
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Checks if subtype is the type itself or lies in the subtree of the type
+   *
+   * @param type root of the subtree
+   * @param subtype to look for
+   * @return true if subtype is in the hierarchy below type
+   */
+  public boolean isSubtype(CheeseType type, CheeseType subtype) {
+    if (type == subtype) {
+      return true;
+    }
+
+    int typeId = type.getId();
+    int subtypeId = subtype.getId();
+    if (typeId >= preOrder.length || subtypeId >= preOrder.length) {
+      return false;
+    }
+
+    int typePre = preOrder[typeId];
+    int subtypePre = preOrder[subtypeId];
+    return typePre >= 0 && subtypePre >= 0 && typePre <= subtypePre
+        && postOrder[subtypeId] <= postOrder[typeId];
+  }
+
+}
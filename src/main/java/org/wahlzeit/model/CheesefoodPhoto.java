@@ -27,6 +27,10 @@ import java.util.List;
 @Subclass()
 public class CheesefoodPhoto extends Photo {
 
+  // Bounds of the difficulty level
+  public static final int MIN_DIFFICULTY = 1;
+  public static final int MAX_DIFFICULTY = 6;
+
   // Stores if the photo represents a cookable food
   protected boolean cookable;
 
@@ -152,7 +156,7 @@ public class CheesefoodPhoto extends Photo {
    * @methodtype set
    */
   public void setDifficulty(Integer difficulty) {
-    if (difficulty != null && (difficulty < 1 || difficulty > 6)) {
+    if (difficulty != null && (difficulty < MIN_DIFFICULTY || difficulty > MAX_DIFFICULTY)) {
       throw new IllegalArgumentException("difficulty out of range");
     }
     this.difficulty = difficulty;
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.wahlzeit.utils.ParameterUtil;
+
+/**
+ * A selection criterion on the attributes of cheesefood photos, answered by the {@link
+ * CheesefoodPhotoIndex}. Conditions are combined with {@link #allOf(CheesefoodPhotoCondition...)}
+ * and {@link #anyOf(CheesefoodPhotoCondition...)}, e.g. easy recipes with a blue cheese that take
+ * at most 30 minutes:
+ *
+ * <pre>
+ * allOf(withCheeseType("Blue cheese"), withDifficulty(1, 2), withCookingDuration(0, 30))
+ * </pre>
+ *
+ * Conditions are immutable and serializable, so they can be kept in the {@link PhotoFilter} of a
+ * session. Cheese types are therefore referenced by their name.
+ *
+ * @see CheesefoodPhotoFilter
+ */
+public abstract class CheesefoodPhotoCondition implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Returns the ids of all photos in the index matching the condition
+   *
+   * @param index to search
+   * @return new set of the matching photo ids
+   */
+  public abstract Set<PhotoId> select(CheesefoodPhotoIndex index);
+
+  /**
+   * Returns a short textual representation of the condition
+   */
+  public abstract String asString();
+
+  /**
+   * Matches photos using a cheese of the type or of one of its subtypes
+   *
+   * @param cheeseName name of the type
+   * @see CheeseManager#findCheeseType(String)
+   */
+  public static CheesefoodPhotoCondition withCheeseType(String cheeseName) {
+    ParameterUtil.assertNotNull(cheeseName, "cheeseName");
+    return new CheeseTypeCondition(cheeseName);
+  }
+
+  /**
+   * Matches photos with a difficulty level within the range
+   *
+   * @param minDifficulty lowest level, inclusive
+   * @param maxDifficulty highest level, inclusive
+   */
+  public static CheesefoodPhotoCondition withDifficulty(int minDifficulty, int maxDifficulty) {
+    return new DifficultyCondition(minDifficulty, maxDifficulty);
+  }
+
+  /**
+   * Matches photos with a cooking duration within the range
+   *
+   * @param minDuration shortest duration in minutes, inclusive
+   * @param maxDuration longest duration in minutes, inclusive
+   */
+  public static CheesefoodPhotoCondition withCookingDuration(int minDuration, int maxDuration) {
+    return new CookingDurationCondition(minDuration, maxDuration);
+  }
+
+  /**
+   * Matches photos which are known to need, respectively not to need, an oven
+   */
+  public static CheesefoodPhotoCondition withOvenNeeded(boolean ovenNeeded) {
+    return new EquipmentCondition(true, ovenNeeded);
+  }
+
+  /**
+   * Matches photos which are known to need, respectively not to need, a stove
+   */
+  public static CheesefoodPhotoCondition withStoveNeeded(boolean stoveNeeded) {
+    return new EquipmentCondition(false, stoveNeeded);
+  }
+
+  /**
+   * Matches photos matching all of the conditions
+   */
+  public static CheesefoodPhotoCondition allOf(CheesefoodPhotoCondition... conditions) {
+    return new CompositeCondition(true, conditions);
+  }
+
+  /**
+   * Matches photos matching any of the conditions
+   */
+  public static CheesefoodPhotoCondition anyOf(CheesefoodPhotoCondition... conditions) {
+    return new CompositeCondition(false, conditions);
+  }
+
+  /**
+   * Intersects the sets, starting with the smallest one so every step can only shrink the result
+   *
+   * @param sets to intersect, may be reordered
+   * @return intersection, null if sets is empty
+   */
+  protected static Set<PhotoId> intersect(List<Set<PhotoId>> sets) {
+    if (sets.isEmpty()) {
+      return null;
+    }
+
+    Collections.sort(sets, new Comparator<Set<PhotoId>>() {
+      @Override
+      public int compare(Set<PhotoId> a, Set<PhotoId> b) {
+        return Integer.compare(a.size(), b.size());
+      }
+    });
+
+    Set<PhotoId> result = sets.get(0);
+    for (int i = 1; i < sets.size() && !result.isEmpty(); i++) {
+      result.retainAll(sets.get(i));
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return asString();
+  }
+
+  /**
+   *
+   */
+  protected static class CheeseTypeCondition extends CheesefoodPhotoCondition {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final String cheeseName;
+
+    protected CheeseTypeCondition(String cheeseName) {
+      this.cheeseName = cheeseName;
+    }
+
+    /**
+     * A name without a type matches no photo; it is not made a type, as anybody can query it
+     */
+    @Override
+    public Set<PhotoId> select(CheesefoodPhotoIndex index) {
+      CheeseType type = CheeseManager.getInstance().findCheeseType(cheeseName);
+      return type != null ? index.findByCheeseType(type) : new HashSet<PhotoId>();
+    }
+
+    @Override
+    public String asString() {
+      return "ch:" + cheeseName;
+    }
+  }
+
+  /**
+   *
+   */
+  protected static class DifficultyCondition extends CheesefoodPhotoCondition {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final int minDifficulty;
+    protected final int maxDifficulty;
+
+    protected DifficultyCondition(int minDifficulty, int maxDifficulty) {
+      this.minDifficulty = minDifficulty;
+      this.maxDifficulty = maxDifficulty;
+    }
+
+    @Override
+    public Set<PhotoId> select(CheesefoodPhotoIndex index) {
+      return index.findByDifficulty(minDifficulty, maxDifficulty);
+    }
+
+    @Override
+    public String asString() {
+      return "df:" + minDifficulty + "-" + maxDifficulty;
+    }
+  }
+
+  /**
+   *
+   */
+  protected static class CookingDurationCondition extends CheesefoodPhotoCondition {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final int minDuration;
+    protected final int maxDuration;
+
+    protected CookingDurationCondition(int minDuration, int maxDuration) {
+      this.minDuration = minDuration;
+      this.maxDuration = maxDuration;
+    }
+
+    @Override
+    public Set<PhotoId> select(CheesefoodPhotoIndex index) {
+      return index.findByCookingDuration(minDuration, maxDuration);
+    }
+
+    @Override
+    public String asString() {
+      return "du:" + minDuration + "-" + maxDuration;
+    }
+  }
+
+  /**
+   *
+   */
+  protected static class EquipmentCondition extends CheesefoodPhotoCondition {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final boolean isOven;
+    protected final boolean isNeeded;
+
+    protected EquipmentCondition(boolean isOven, boolean isNeeded) {
+      this.isOven = isOven;
+      this.isNeeded = isNeeded;
+    }
+
+    @Override
+    public Set<PhotoId> select(CheesefoodPhotoIndex index) {
+      return isOven ? index.findByOvenNeeded(isNeeded) : index.findByStoveNeeded(isNeeded);
+    }
+
+    @Override
+    public String asString() {
+      return (isOven ? "ov:" : "st:") + isNeeded;
+    }
+  }
+
+  /**
+   *
+   */
+  protected static class CompositeCondition extends CheesefoodPhotoCondition {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final boolean isConjunction;
+    protected final List<CheesefoodPhotoCondition> conditions;
+
+    protected CompositeCondition(boolean isConjunction, CheesefoodPhotoCondition[] conditions) {
+      ParameterUtil.assertNotNull(conditions, "conditions");
+      for (CheesefoodPhotoCondition condition : conditions) {
+        ParameterUtil.assertNotNull(condition, "condition");
+      }
+      this.isConjunction = isConjunction;
+      this.conditions = new ArrayList<CheesefoodPhotoCondition>(Arrays.asList(conditions));
+    }
+
+    @Override
+    public Set<PhotoId> select(CheesefoodPhotoIndex index) {
+      List<Set<PhotoId>> sets = new ArrayList<Set<PhotoId>>(conditions.size());
+      for (CheesefoodPhotoCondition condition : conditions) {
+        Set<PhotoId> ids = condition.select(index);
+        if (isConjunction && ids.isEmpty()) {
+          return ids;
+        }
+        sets.add(ids);
+      }
+
+      if (isConjunction) {
+        Set<PhotoId> result = intersect(sets);
+        return result == null ? new HashSet<PhotoId>() : result;
+      }
+
+      Set<PhotoId> result = new HashSet<PhotoId>();
+      for (Set<PhotoId> ids : sets) {
+        result.addAll(ids);
+      }
+      return result;
+    }
+
+    @Override
+    public String asString() {
+      StringBuilder result = new StringBuilder("(");
+      for (CheesefoodPhotoCondition condition : conditions) {
+        if (result.length() > 1) {
+          result.append(isConjunction ? " & " : " | ");
+        }
+        result.append(condition.asString());
+      }
+      return result.append(")").toString();
+    }
+  }
+
+}
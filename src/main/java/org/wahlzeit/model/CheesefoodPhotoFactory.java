@@ -58,7 +58,7 @@ public class CheesefoodPhotoFactory extends PhotoFactory {
   public static synchronized CheesefoodPhotoFactory getInstance() {
     if (instance == null) {
       log.config(
-          LogBuilder.createSystemMessage().addAction("setting CheesefoodPhotoFactory").toString());
+          LogBuilder.createSystemMessage().addAction("setting CheesefoodPhotoFactory"));
       setInstance(new CheesefoodPhotoFactory());
     }
 
@@ -96,4 +96,12 @@ public class CheesefoodPhotoFactory extends PhotoFactory {
     return new CheesefoodPhoto(photoId);
   }
 
+  /**
+   * @methodtype factory
+   */
+  @Override
+  public CheesefoodPhotoFilter createPhotoFilter() {
+    return new CheesefoodPhotoFilter();
+  }
+
 }
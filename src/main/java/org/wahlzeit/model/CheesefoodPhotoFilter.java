@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.wahlzeit.utils.ParameterUtil;
+import org.wahlzeit.utils.doc.DesignPattern;
+import org.wahlzeit.utils.doc.pattern.PatternType;
+
+/**
+ * A photo filter which additionally selects cheesefood photos by their attributes. All conditions
+ * have to match; they are answered by the {@link CheesefoodPhotoIndex} and then combined with the
+ * tag and location conditions of the {@link PhotoFilter}. Without cheesefood conditions it filters
+ * exactly like the {@link PhotoFilter}.
+ */
+@DesignPattern(value = PatternType.FILTER, participants = CheesefoodPhoto.class)
+public class CheesefoodPhotoFilter extends PhotoFilter {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   *
+   */
+  protected List<CheesefoodPhotoCondition> cheesefoodConditions =
+      new ArrayList<CheesefoodPhotoCondition>();
+
+  /**
+   *
+   */
+  public CheesefoodPhotoFilter() {
+    super();
+  }
+
+  /**
+   * Adds a condition the photos have to match
+   *
+   * @param condition to add
+   * @see CheesefoodPhotoCondition
+   */
+  public void addCheesefoodCondition(CheesefoodPhotoCondition condition) {
+    ParameterUtil.assertNotNull(condition, "condition");
+    cheesefoodConditions.add(condition);
+    resetDisplayablePhotoIds();
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void clearCheesefoodConditions() {
+    cheesefoodConditions.clear();
+    resetDisplayablePhotoIds();
+  }
+
+  /**
+   * @methodtype get
+   */
+  public List<CheesefoodPhotoCondition> getCheesefoodConditions() {
+    return Collections.unmodifiableList(cheesefoodConditions);
+  }
+
+  /**
+   *
+   */
+  @Override
+  public void clear() {
+    cheesefoodConditions.clear();
+    super.clear();
+  }
+
+  /**
+   * Selects the photos matching the cheesefood conditions from the index, restricted to those
+   * matching the tag and location conditions if there are any
+   */
+  @Override
+  protected Collection<PhotoId> getCandidatePhotoIds() {
+    if (cheesefoodConditions.isEmpty()) {
+      return super.getCandidatePhotoIds();
+    }
+
+    CheesefoodPhotoCondition[] conditions = cheesefoodConditions.toArray(
+        new CheesefoodPhotoCondition[cheesefoodConditions.size()]);
+    Set<PhotoId> candidates = CheesefoodPhotoCondition.allOf(conditions)
+        .select(CheesefoodPhotoManager.getInstance().getCheesefoodIndex());
+
+    if (!candidates.isEmpty() && !getFilterConditions().isEmpty()) {
+      candidates.retainAll(new HashSet<PhotoId>(getTaggedPhotoIds()));
+    }
+    if (!candidates.isEmpty() && hasLocationCondition()) {
+      return getPhotoIdsNearLocation(candidates);
+    }
+    return candidates;
+  }
+
+}
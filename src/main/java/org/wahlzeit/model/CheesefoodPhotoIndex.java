@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import org.wahlzeit.utils.ParameterUtil;
+
+/**
+ * In-memory secondary indexes over the attributes of cheesefood photos. Every attribute maps its
+ * values to the ids of the photos having them, so a query only touches the matching photos instead
+ * of every photo in the cache.
+ *
+ * Photos without a value for an attribute (e.g. an unknown difficulty) are not found by queries on
+ * that attribute. The index is updated by the {@link CheesefoodPhotoManager} whenever a photo is
+ * added or saved.
+ *
+ * @see CheesefoodPhotoCondition
+ */
+public class CheesefoodPhotoIndex {
+
+  /**
+   * Indexed values of every photo, used to remove the old postings on update
+   */
+  protected final Map<PhotoId, Entry> entries = new HashMap<PhotoId, Entry>();
+
+  /**
+   * Photos by the types of their cheeses, only the type itself, not its supertypes
+   */
+  protected final Map<CheeseType, Set<PhotoId>> byCheeseType =
+      new HashMap<CheeseType, Set<PhotoId>>();
+
+  /**
+   * Photos by difficulty level, indexed by the level
+   */
+  protected final Map<Integer, Set<PhotoId>> byDifficulty = new TreeMap<Integer, Set<PhotoId>>();
+
+  /**
+   * Photos by cooking duration in minutes, ordered for range queries
+   */
+  protected final NavigableMap<Integer, Set<PhotoId>> byCookingDuration =
+      new TreeMap<Integer, Set<PhotoId>>();
+
+  /**
+   * Photos by their equipment flags
+   */
+  protected final Map<Boolean, Set<PhotoId>> byOvenNeeded = new HashMap<Boolean, Set<PhotoId>>();
+  protected final Map<Boolean, Set<PhotoId>> byStoveNeeded = new HashMap<Boolean, Set<PhotoId>>();
+
+  /**
+   * Adds the photo or replaces its indexed values by the current ones
+   *
+   * @param photo to update
+   */
+  public synchronized void update(CheesefoodPhoto photo) {
+    ParameterUtil.assertNotNull(photo, "photo");
+
+    PhotoId id = photo.getId();
+    Entry entry = new Entry(photo);
+    Entry oldEntry = entries.put(id, entry);
+    if (oldEntry != null) {
+      removePostings(id, oldEntry);
+    }
+
+    for (CheeseType type : entry.cheeseTypes) {
+      addPosting(byCheeseType, type, id);
+    }
+    addPosting(byDifficulty, entry.difficulty, id);
+    addPosting(byCookingDuration, entry.cookingDuration, id);
+    addPosting(byOvenNeeded, entry.ovenNeeded, id);
+    addPosting(byStoveNeeded, entry.stoveNeeded, id);
+  }
+
+  /**
+   * Removes the photo from the index
+   *
+   * @param id of the photo
+   */
+  public synchronized void remove(PhotoId id) {
+    Entry oldEntry = entries.remove(id);
+    if (oldEntry != null) {
+      removePostings(id, oldEntry);
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Finds the photos using a cheese of the given type or of one of its subtypes
+   *
+   * @param type of the cheese
+   * @return ids of the found photos
+   * @see CheeseTypeHierarchy#isSubtype(CheeseType, CheeseType)
+   */
+  public synchronized Set<PhotoId> findByCheeseType(CheeseType type) {
+    ParameterUtil.assertNotNull(type, "type");
+
+    CheeseTypeHierarchy hierarchy = CheeseManager.getInstance().getHierarchy();
+    Set<PhotoId> result = new HashSet<PhotoId>();
+    for (Map.Entry<CheeseType, Set<PhotoId>> posting : byCheeseType.entrySet()) {
+      if (hierarchy.isSubtype(type, posting.getKey())) {
+        result.addAll(posting.getValue());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finds the photos with a difficulty level within the given range
+   *
+   * @param minDifficulty lowest level, inclusive
+   * @param maxDifficulty highest level, inclusive
+   * @return ids of the found photos
+   */
+  public synchronized Set<PhotoId> findByDifficulty(int minDifficulty, int maxDifficulty) {
+    Set<PhotoId> result = new HashSet<PhotoId>();
+    int min = Math.max(CheesefoodPhoto.MIN_DIFFICULTY, minDifficulty);
+    int max = Math.min(CheesefoodPhoto.MAX_DIFFICULTY, maxDifficulty);
+    for (int difficulty = min; difficulty <= max; difficulty++) {
+      Set<PhotoId> ids = byDifficulty.get(difficulty);
+      if (ids != null) {
+        result.addAll(ids);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finds the photos with a cooking duration within the given range
+   *
+   * @param minDuration shortest duration in minutes, inclusive
+   * @param maxDuration longest duration in minutes, inclusive
+   * @return ids of the found photos
+   */
+  public synchronized Set<PhotoId> findByCookingDuration(int minDuration, int maxDuration) {
+    Set<PhotoId> result = new HashSet<PhotoId>();
+    if (minDuration > maxDuration) {
+      return result;
+    }
+
+    for (Set<PhotoId> ids : byCookingDuration.subMap(minDuration, true, maxDuration, true)
+        .values()) {
+      result.addAll(ids);
+    }
+    return result;
+  }
+
+  /**
+   * Finds the photos which are known to need, respectively not to need, an oven
+   *
+   * @methodtype get
+   */
+  public synchronized Set<PhotoId> findByOvenNeeded(boolean ovenNeeded) {
+    return copyPosting(byOvenNeeded, ovenNeeded);
+  }
+
+  /**
+   * Finds the photos which are known to need, respectively not to need, a stove
+   *
+   * @methodtype get
+   */
+  public synchronized Set<PhotoId> findByStoveNeeded(boolean stoveNeeded) {
+    return copyPosting(byStoveNeeded, stoveNeeded);
+  }
+
+  /**
+   * @methodtype command
+   */
+  protected void removePostings(PhotoId id, Entry entry) {
+    for (CheeseType type : entry.cheeseTypes) {
+      removePosting(byCheeseType, type, id);
+    }
+    removePosting(byDifficulty, entry.difficulty, id);
+    removePosting(byCookingDuration, entry.cookingDuration, id);
+    removePosting(byOvenNeeded, entry.ovenNeeded, id);
+    removePosting(byStoveNeeded, entry.stoveNeeded, id);
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected static <K> void addPosting(Map<K, Set<PhotoId>> postings, K key, PhotoId id) {
+    if (key == null) {
+      return;
+    }
+
+    Set<PhotoId> ids = postings.get(key);
+    if (ids == null) {
+      ids = new HashSet<PhotoId>();
+      postings.put(key, ids);
+    }
+    ids.add(id);
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected static <K> void removePosting(Map<K, Set<PhotoId>> postings, K key, PhotoId id) {
+    if (key == null) {
+      return;
+    }
+
+    Set<PhotoId> ids = postings.get(key);
+    if (ids != null && ids.remove(id) && ids.isEmpty()) {
+      postings.remove(key);
+    }
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected static <K> Set<PhotoId> copyPosting(Map<K, Set<PhotoId>> postings, K key) {
+    Set<PhotoId> ids = postings.get(key);
+    return ids == null ? new HashSet<PhotoId>() : new HashSet<PhotoId>(ids);
+  }
+
+  /**
+   * Indexed values of a photo at the time of its last update
+   */
+  protected static class Entry {
+
+    protected final Set<CheeseType> cheeseTypes = new HashSet<CheeseType>();
+    protected final Integer difficulty;
+    protected final Integer cookingDuration;
+    protected final Boolean ovenNeeded;
+    protected final Boolean stoveNeeded;
+
+    protected Entry(CheesefoodPhoto photo) {
+      if (photo.getCheeses() != null) {
+        for (Cheese cheese : photo.getCheeses()) {
+          if (cheese != null && cheese.getCheeseType() != null) {
+            cheeseTypes.add(cheese.getCheeseType());
+          }
+        }
+      }
+      difficulty = photo.getDifficulty();
+      cookingDuration = photo.getCookingDuration();
+      ovenNeeded = photo.getOvenNeeded();
+      stoveNeeded = photo.getStoveNeeded();
+    }
+  }
+
+}
@@ -41,7 +41,10 @@
 
 package org.wahlzeit.model;
 
+import java.util.Set;
 import java.util.logging.Logger;
+import org.wahlzeit.services.Persistent;
+import org.wahlzeit.utils.ParameterUtil;
 
 /**
  * A photo manager provides access to and manages photos.
@@ -52,8 +55,63 @@ public class CheesefoodPhotoManager extends PhotoManager {
 
   private static final Logger log = Logger.getLogger(CheesefoodPhotoManager.class.getName());
 
+  /**
+   * Secondary indexes over the attributes of the cached cheesefood photos
+   */
+  protected CheesefoodPhotoIndex cheesefoodIndex = new CheesefoodPhotoIndex();
+
   public static CheesefoodPhotoManager getInstance() {
     return instance;
   }
 
+  /**
+   * @methodtype command
+   * @methodproperties primitive
+   */
+  @Override
+  protected void doAddPhoto(Photo myPhoto) {
+    super.doAddPhoto(myPhoto);
+    if (myPhoto instanceof CheesefoodPhoto) {
+      cheesefoodIndex.update((CheesefoodPhoto) myPhoto);
+    }
+  }
+
+  @Override
+  protected void updateDependents(Persistent obj) {
+    if (obj instanceof CheesefoodPhoto) {
+      updateCheesefoodIndex((CheesefoodPhoto) obj);
+    }
+    super.updateDependents(obj);
+  }
+
+  /**
+   * Updates the indexes after the attributes of a cached photo changed; saving the photo does this
+   * as well
+   *
+   * @methodtype command
+   */
+  public void updateCheesefoodIndex(CheesefoodPhoto photo) {
+    if (doHasPhoto(photo.getId())) {
+      cheesefoodIndex.update(photo);
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public CheesefoodPhotoIndex getCheesefoodIndex() {
+    return cheesefoodIndex;
+  }
+
+  /**
+   * Finds the cached photos matching the condition without looking at the other photos
+   *
+   * @methodtype get
+   * @see CheesefoodPhotoCondition#select(CheesefoodPhotoIndex)
+   */
+  public Set<PhotoId> findPhotoIds(CheesefoodPhotoCondition condition) {
+    ParameterUtil.assertNotNull(condition, "condition");
+    return condition.select(cheesefoodIndex);
+  }
+
 }
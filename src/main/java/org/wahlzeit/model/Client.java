@@ -24,6 +24,7 @@ import com.google.appengine.api.datastore.Key;
 import com.googlecode.objectify.annotation.Entity;
 import com.googlecode.objectify.annotation.Id;
 import com.googlecode.objectify.annotation.Ignore;
+import com.googlecode.objectify.annotation.Index;
 import com.googlecode.objectify.annotation.Parent;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -47,6 +48,7 @@ public abstract class Client implements Serializable, Persistent {
   @Id
   protected String id;
 
+  @Index // looked up when users are loaded on demand
   protected String nickName;
 
   @Parent
@@ -280,6 +282,13 @@ public abstract class Client implements Serializable, Persistent {
     this.praisedPhotoIds = praisedPhotoIds;
   }
 
+  /**
+   * @methodtype boolean-query
+   */
+  public boolean hasPraisedPhotos() {
+    return !praisedPhotoIds.isEmpty();
+  }
+
   /**
    * @methodtype set
    */
@@ -1,12 +1,13 @@
 package org.wahlzeit.model;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import org.wahlzeit.services.LogBuilder;
 import org.wahlzeit.services.ObjectManager;
+import org.wahlzeit.services.Persistent;
 
 /**
  * Abstract super class for UserManager. Contains all members and methods that can be offered for all Clients.
@@ -25,11 +26,20 @@ public abstract class ClientManager extends ObjectManager {
   /**
    * Maps IDs to user
    */
-  protected Map<String, Client> idClientMap = new HashMap<String, Client>();
+  protected Map<String, Client> idClientMap = new ConcurrentHashMap<String, Client>();
 
-  protected HashMap<String, Client> httpSessionIdToClientMap = new HashMap<String, Client>();
+  protected Map<String, Client> httpSessionIdToClientMap = new ConcurrentHashMap<String, Client>();
 
-  protected List<String> listOfUsedNicknames = new ArrayList<String>();
+  /**
+   * Nicknames of all known clients, a nickname is reserved by adding it
+   */
+  protected Set<String> usedNicknames =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  /**
+   * Guests are kept in memory only until they have praised a photo, most of them are crawlers
+   */
+  protected volatile boolean isKeepingGuestsInMemory = true;
 
   // add methods -----------------------------------------------------------------------------------------------------
 
@@ -40,7 +50,12 @@ public abstract class ClientManager extends ObjectManager {
   public void addClient(Client client) throws IllegalArgumentException {
     assertIsNonNullArgument(client);
     assertIsUnknownClientAsIllegalArgument(client);
-    assertNicknameIsNotUsed(client.getNickName());
+    reserveNickname(client.getNickName());
+
+    if (idClientMap.putIfAbsent(client.getId(), client) != null) {
+      releaseNickname(client.getNickName());
+      throw new IllegalArgumentException(client.getId() + "is already known");
+    }
 
     doAddClient(client);
   }
@@ -58,11 +73,39 @@ public abstract class ClientManager extends ObjectManager {
    * @methodtype assertion
    */
   protected void assertNicknameIsNotUsed(String nickName) {
-    if (listOfUsedNicknames.contains(nickName)) {
+    if (nickName != null && usedNicknames.contains(nickName)) {
       throw new IllegalArgumentException("Nickname " + nickName + " is already used.");
     }
   }
 
+  /**
+   * Reserves the nickname, checking and reserving is one atomic step
+   *
+   * @methodtype command
+   * @throws IllegalArgumentException if the nickname is already used
+   */
+  protected void reserveNickname(String nickName) throws IllegalArgumentException {
+    if (nickName != null && !usedNicknames.add(nickName)) {
+      throw new IllegalArgumentException("Nickname " + nickName + " is already used.");
+    }
+  }
+
+  /**
+   * @methodtype command
+   */
+  protected void releaseNickname(String nickName) {
+    if (nickName != null) {
+      usedNicknames.remove(nickName);
+    }
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  public boolean isNicknameUsed(String nickName) {
+    return nickName != null && usedNicknames.contains(nickName);
+  }
+
   /**
    * @methodtype set
    * @methodproperty primitive
@@ -70,9 +113,11 @@ public abstract class ClientManager extends ObjectManager {
   protected void doAddClient(Client client) {
     idClientMap.put(client.getId(), client);
     writeObject(client);
-    listOfUsedNicknames.add(client.getNickName());
+    if (client.getNickName() != null) {
+      usedNicknames.add(client.getNickName());
+    }
     log.config(
-        LogBuilder.createSystemMessage().addParameter("Added new user", client.getId()).toString());
+        LogBuilder.createSystemMessage().addParameter("Added new user", client.getId()));
   }
 
   /**
@@ -126,7 +171,38 @@ public abstract class ClientManager extends ObjectManager {
     client.setHttpSessionId(httpSessionId);
     log.config(LogBuilder.createSystemMessage().
         addParameter("client name", client.getNickName()).
-        addParameter("httpSessionId", httpSessionId).toString());
+        addParameter("httpSessionId", httpSessionId));
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setKeepingGuestsInMemory(boolean isKeepingGuestsInMemory) {
+    this.isKeepingGuestsInMemory = isKeepingGuestsInMemory;
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  public boolean isKeepingGuestsInMemory() {
+    return isKeepingGuestsInMemory;
+  }
+
+  /**
+   * A client is ephemeral if it only lives in memory and is never written to the datastore
+   *
+   * @methodtype boolean-query
+   */
+  public boolean isEphemeral(Client client) {
+    return isKeepingGuestsInMemory && client instanceof Guest && !client.hasPraisedPhotos();
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  @Override
+  protected boolean isToBePersisted(Persistent object) {
+    return !(object instanceof Client) || !isEphemeral((Client) object);
   }
 
   // has client method -----------------------------------------------------------------------------------------------
@@ -207,10 +283,14 @@ public abstract class ClientManager extends ObjectManager {
    * @methodtype set
    */
   private void removeHttpSessionIdToClientMapping(String httpSessionId) {
-    Client client = httpSessionIdToClientMap.get(httpSessionId);
-    client.removeHttpSessionId();
+    if (httpSessionId == null) {
+      return;
+    }
 
-    httpSessionIdToClientMap.remove(httpSessionId);
+    Client client = httpSessionIdToClientMap.remove(httpSessionId);
+    if (client != null) {
+      client.removeHttpSessionId();
+    }
   }
 
   /**
@@ -219,7 +299,10 @@ public abstract class ClientManager extends ObjectManager {
    */
   protected void doDeleteClient(Client client) {
     idClientMap.remove(client.getId());
-    deleteObject(client);
+    releaseNickname(client.getNickName());
+    if (!isEphemeral(client)) {
+      deleteObject(client);
+    }
   }
 
   /**
@@ -238,9 +321,7 @@ public abstract class ClientManager extends ObjectManager {
    */
   public void changeNickname(String oldNickName, String newNickName)
       throws IllegalArgumentException {
-    assertNicknameIsNotUsed(newNickName);
-
-    listOfUsedNicknames.remove(oldNickName);
-    listOfUsedNicknames.add(newNickName);
+    reserveNickname(newNickName);
+    releaseNickname(oldNickName);
   }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.model;
+
+import java.util.Arrays;
+import org.wahlzeit.model.converter.UnsupportedConversionException;
+import org.wahlzeit.utils.ParameterUtil;
+
+/**
+ * Stores many coordinates as primitive arrays (one array per component) to calculate the
+ * distances from one origin to all of them at once.
+ *
+ * The trigonometric terms of spheric coordinates are evaluated once when a coordinate is added,
+ * the distance loop itself only does arithmetic on the arrays. As the formula of {@link
+ * DistanceCalculator#sphericDistance(SphericCoordinate, SphericCoordinate)} is the law of cosines,
+ * it equals the euclidean distance of the points, so all coordinates are stored by their
+ * cartesian components.
+ *
+ * @see DistanceCalculator#distances(Coordinate, CoordinateBatch, double[])
+ */
+public class CoordinateBatch {
+
+  /**
+   * Initial capacity of the arrays
+   */
+  private static final int DEFAULT_CAPACITY = 64;
+
+  /**
+   * Cartesian components of the stored coordinates
+   */
+  private double[] xs;
+  private double[] ys;
+  private double[] zs;
+
+  /**
+   * Number of stored coordinates
+   */
+  private int size = 0;
+
+  /**
+   * Number of stored {@link NoWhereCoordinate}s, their components are NaN
+   */
+  private int noWhereCount = 0;
+
+  /**
+   * Creates an empty batch
+   */
+  public CoordinateBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates an empty batch for the expected number of coordinates
+   *
+   * @param capacity expected number of coordinates
+   */
+  public CoordinateBatch(int capacity) {
+    ParameterUtil.assertNumberInRange((double) capacity, 0.0, (double) Integer.MAX_VALUE,
+        "capacity");
+    xs = new double[capacity];
+    ys = new double[capacity];
+    zs = new double[capacity];
+  }
+
+  /**
+   * Adds a coordinate to the batch
+   *
+   * @param coordinate to add, a {@link NoWhereCoordinate} is infinitely far away from any origin
+   * @return index of the coordinate in the batch
+   * @throws IllegalArgumentException if the coordinate is null or cannot be converted
+   */
+  public int add(Coordinate coordinate) {
+    ParameterUtil.assertNotNull(coordinate, "coordinate");
+
+    if (coordinate instanceof NoWhereCoordinate) {
+      noWhereCount++;
+      return doAdd(Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    if (coordinate instanceof SphericCoordinate) {
+      SphericCoordinate spheric = (SphericCoordinate) coordinate;
+      // same conversion as the CoordinateConverter, but without creating a coordinate
+      double latitude = Math.toRadians(spheric.getLatitude());
+      double longitude = Math.toRadians(spheric.getLongitude());
+      double radius = spheric.getRadius();
+      double cosLatitude = Math.cos(latitude);
+      return doAdd(radius * cosLatitude * Math.sin(longitude), radius * Math.sin(latitude),
+          -radius * cosLatitude * Math.cos(longitude));
+    }
+
+    CartesianCoordinate cartesian = asCartesian(coordinate);
+    return doAdd(cartesian.getX(), cartesian.getY(), cartesian.getZ());
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Calculates the distances from the origin to all stored coordinates
+   *
+   * @param origin to calculate the distances from
+   * @param result array of at least {@link #size()} elements, null to allocate a new one
+   * @return result, the distance of the coordinate at index i is stored at i
+   */
+  public double[] getDistances(Coordinate origin, double[] result) {
+    ParameterUtil.assertNotNull(origin, "origin");
+    if (result == null || result.length < size) {
+      result = new double[size];
+    }
+
+    if (origin instanceof NoWhereCoordinate) {
+      Arrays.fill(result, 0, size, Double.POSITIVE_INFINITY);
+      return result;
+    }
+
+    CartesianCoordinate cartesian = asCartesian(origin);
+    double ox = cartesian.getX();
+    double oy = cartesian.getY();
+    double oz = cartesian.getZ();
+
+    double[] xs = this.xs;
+    double[] ys = this.ys;
+    double[] zs = this.zs;
+    for (int i = 0; i < size; i++) {
+      double dx = xs[i] - ox;
+      double dy = ys[i] - oy;
+      double dz = zs[i] - oz;
+      result[i] = Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    if (noWhereCount > 0) {
+      for (int i = 0; i < size; i++) {
+        if (Double.isNaN(result[i])) {
+          result[i] = Double.POSITIVE_INFINITY;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the indexes of all stored coordinates ordered by ascending distance from the origin
+   *
+   * @param origin to calculate the distances from
+   * @return indexes of the coordinates, closest first
+   */
+  public int[] getIndexesByDistance(Coordinate origin) {
+    return getIndexesByDistance(getDistances(origin, null), size);
+  }
+
+  /**
+   * Returns the indexes 0 to size - 1 ordered by ascending distance, equal distances by index
+   *
+   * @param distances non-negative distances, positive infinity for coordinates without location
+   * @param size number of distances to order
+   * @return indexes of the distances, smallest first
+   */
+  static int[] getIndexesByDistance(double[] distances, int size) {
+    // non-negative doubles are ordered like their bits, so the index is packed into the lowest
+    // bits of the distance and the keys are sorted as primitives
+    int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(size - 1, 1));
+    long indexMask = (1L << indexBits) - 1;
+    long[] keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = (Double.doubleToRawLongBits(distances[i]) & ~indexMask) | i;
+    }
+    Arrays.sort(keys);
+
+    int[] result = new int[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = (int) (keys[i] & indexMask);
+    }
+
+    // the keys dropped the lowest bits of the distances, an insertion pass restores the exact
+    // order of nearly equal distances; as the indexes are almost sorted it is linear in practice
+    for (int i = 1; i < size; i++) {
+      int index = result[i];
+      double distance = distances[index];
+      int j = i - 1;
+      while (j >= 0 && distances[result[j]] > distance) {
+        result[j + 1] = result[j];
+        j--;
+      }
+      result[j + 1] = index;
+    }
+    return result;
+  }
+
+  /**
+   * @methodtype command
+   */
+  private int doAdd(double x, double y, double z) {
+    if (size == xs.length) {
+      int capacity = Math.max(DEFAULT_CAPACITY, xs.length << 1);
+      xs = Arrays.copyOf(xs, capacity);
+      ys = Arrays.copyOf(ys, capacity);
+      zs = Arrays.copyOf(zs, capacity);
+    }
+    xs[size] = x;
+    ys[size] = y;
+    zs[size] = z;
+    return size++;
+  }
+
+  /**
+   * @methodtype conversion
+   */
+  private static CartesianCoordinate asCartesian(Coordinate coordinate) {
+    try {
+      return coordinate.asCartesianCoordinate();
+    } catch (UnsupportedConversionException ex) {
+      throw new IllegalArgumentException(
+          "Cannot convert " + coordinate + " for distance calculation", ex);
+    }
+  }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.model;
+
+import static org.wahlzeit.utils.HashUtil.hash3;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import org.wahlzeit.utils.doc.DesignPattern;
+import org.wahlzeit.utils.doc.pattern.PatternType;
+
+/**
+ * Stores the instances of a coordinate value object type, identified by their three components.
+ * The cache is split into segments that are locked independently, lookups of existing instances
+ * do not lock at all. Instances are only weakly referenced, entries of collected instances are
+ * removed using a reference queue of each segment.
+ *
+ * @param <T> type of the stored coordinates
+ * @see CartesianCoordinate
+ * @see SphericCoordinate
+ */
+@DesignPattern(value = PatternType.FLYWEIGHT,
+    participants = {CartesianCoordinate.class, SphericCoordinate.class})
+public abstract class CoordinateCache<T extends Coordinate> {
+
+  /**
+   * Number of segments, has to be a power of two
+   */
+  private static final int SEGMENT_COUNT = 16;
+
+  /**
+   * Initial number of buckets per segment, has to be a power of two
+   */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * Stores the segments, a segment is selected by the upper bits of the hash
+   */
+  private final Segment<T>[] segments;
+
+  /**
+   * Creates an empty cache
+   */
+  protected CoordinateCache() {
+    segments = newSegments(SEGMENT_COUNT);
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      segments[i] = new Segment<T>(this);
+    }
+  }
+
+  /**
+   * Returns the stored coordinate with the given components. If there is none a new coordinate is
+   * created and stored.
+   *
+   * @param c1 first component of the coordinate
+   * @param c2 second component of the coordinate
+   * @param c3 third component of the coordinate
+   * @return the one coordinate with the given components
+   */
+  public T get(double c1, double c2, double c3) {
+    c1 = normalize(c1);
+    c2 = normalize(c2);
+    c3 = normalize(c3);
+
+    int hash = spread(hash3(c1, c2, c3));
+    Segment<T> segment = segments[(hash >>> 28) & (SEGMENT_COUNT - 1)];
+
+    T coordinate = segment.find(hash, c1, c2, c3);
+    if (coordinate != null) {
+      return coordinate;
+    }
+
+    return segment.findOrCreate(hash, c1, c2, c3);
+  }
+
+  /**
+   * Returns the number of coordinates which are currently stored. Entries of collected
+   * coordinates may be counted until they got removed.
+   *
+   * @return number of stored coordinates
+   */
+  public int size() {
+    int result = 0;
+    for (Segment<T> segment : segments) {
+      segment.lock();
+      try {
+        segment.expungeStaleEntries();
+        result += segment.count;
+      } finally {
+        segment.unlock();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks if the given coordinate has the given components
+   *
+   * @param coordinate to check
+   * @param c1 first component
+   * @param c2 second component
+   * @param c3 third component
+   * @return true if all components are equal
+   */
+  protected abstract boolean hasComponents(T coordinate, double c1, double c2, double c3);
+
+  /**
+   * Creates a new coordinate with the given components
+   *
+   * @param c1 first component
+   * @param c2 second component
+   * @param c3 third component
+   * @return the new coordinate
+   */
+  protected abstract T doCreate(double c1, double c2, double c3);
+
+  /**
+   * Maps -0.0 to 0.0, as the hash distinguishes them while the components are compared with ==
+   */
+  private static double normalize(double component) {
+    return component == 0.0 ? 0.0 : component;
+  }
+
+  /**
+   * Creates the array of segments, generic arrays can only be created unchecked
+   */
+  @SuppressWarnings("unchecked")
+  private static <T extends Coordinate> Segment<T>[] newSegments(int length) {
+    return (Segment<T>[]) new Segment<?>[length];
+  }
+
+  /**
+   * Spreads the bits of the hash, so the segment and bucket selection uses all of them
+   */
+  private static int spread(int hash) {
+    hash ^= (hash >>> 16);
+    hash *= 0x85ebca6b;
+    hash ^= (hash >>> 13);
+    return hash;
+  }
+
+  /**
+   * An entry of a bucket. The chain of a bucket is never modified, only replaced.
+   */
+  private static final class Entry<T> extends WeakReference<T> {
+
+    private final int hash;
+    private final Entry<T> next;
+
+    private Entry(T coordinate, int hash, Entry<T> next, ReferenceQueue<? super T> queue) {
+      super(coordinate, queue);
+      this.hash = hash;
+      this.next = next;
+    }
+  }
+
+  /**
+   * A segment is a hash table on its own, modifications acquire the lock of the segment
+   */
+  private static final class Segment<T extends Coordinate> extends ReentrantLock {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CoordinateCache<T> cache;
+    private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
+    private volatile AtomicReferenceArray<Entry<T>> table =
+        new AtomicReferenceArray<Entry<T>>(INITIAL_CAPACITY);
+    private int count = 0;
+
+    private Segment(CoordinateCache<T> cache) {
+      this.cache = cache;
+    }
+
+    /**
+     * Looks up a coordinate without locking
+     */
+    private T find(int hash, double c1, double c2, double c3) {
+      AtomicReferenceArray<Entry<T>> tab = table;
+      for (Entry<T> e = tab.get(hash & (tab.length() - 1)); e != null; e = e.next) {
+        if (e.hash == hash) {
+          T coordinate = e.get();
+          if (coordinate != null && cache.hasComponents(coordinate, c1, c2, c3)) {
+            return coordinate;
+          }
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Looks up a coordinate again while holding the lock and creates it if it still is missing
+     */
+    private T findOrCreate(int hash, double c1, double c2, double c3) {
+      lock();
+      try {
+        expungeStaleEntries();
+
+        T coordinate = find(hash, c1, c2, c3);
+        if (coordinate != null) {
+          return coordinate;
+        }
+
+        if (count >= table.length() - (table.length() >>> 2)) {
+          resize();
+        }
+
+        coordinate = cache.doCreate(c1, c2, c3);
+        AtomicReferenceArray<Entry<T>> tab = table;
+        int index = hash & (tab.length() - 1);
+        tab.set(index, new Entry<T>(coordinate, hash, tab.get(index), queue));
+        count++;
+        return coordinate;
+      } finally {
+        unlock();
+      }
+    }
+
+    /**
+     * Removes the entries of all collected coordinates, has to be called with the lock held
+     */
+    @SuppressWarnings("unchecked")
+    private void expungeStaleEntries() {
+      Entry<T> stale;
+      while ((stale = (Entry<T>) queue.poll()) != null) {
+        remove(stale);
+      }
+    }
+
+    /**
+     * Removes the given entry by copying the part of the chain in front of it
+     */
+    private void remove(Entry<T> stale) {
+      AtomicReferenceArray<Entry<T>> tab = table;
+      int index = stale.hash & (tab.length() - 1);
+      Entry<T> first = tab.get(index);
+      for (Entry<T> e = first; e != null; e = e.next) {
+        if (e == stale) {
+          Entry<T> newFirst = stale.next;
+          count--;
+          for (Entry<T> p = first; p != stale; p = p.next) {
+            T coordinate = p.get();
+            if (coordinate != null) {
+              newFirst = new Entry<T>(coordinate, p.hash, newFirst, queue);
+            } else {
+              count--;
+            }
+          }
+          tab.set(index, newFirst);
+          return;
+        }
+      }
+    }
+
+    /**
+     * Doubles the number of buckets, entries of collected coordinates are dropped
+     */
+    private void resize() {
+      AtomicReferenceArray<Entry<T>> oldTable = table;
+      AtomicReferenceArray<Entry<T>> newTable =
+          new AtomicReferenceArray<Entry<T>>(oldTable.length() << 1);
+      int newCount = 0;
+      for (int i = 0; i < oldTable.length(); i++) {
+        for (Entry<T> e = oldTable.get(i); e != null; e = e.next) {
+          T coordinate = e.get();
+          if (coordinate != null) {
+            int index = e.hash & (newTable.length() - 1);
+            newTable.set(index, new Entry<T>(coordinate, e.hash, newTable.get(index), queue));
+            newCount++;
+          }
+        }
+      }
+      count = newCount;
+      table = newTable;
+    }
+  }
+
+}
@@ -113,4 +113,19 @@ public class DistanceCalculator {
     return distance;
   }
 
+  /**
+   * Calculates the distances in km from origin to all coordinates of the batch
+   *
+   * @param origin coordinate
+   * @param batch of target coordinates
+   * @param result array for the distances, null or too small to allocate a new one
+   * @return the distances, indexed like the coordinates of the batch
+   * @see CoordinateBatch#getDistances(Coordinate, double[])
+   */
+  public static double[] distances(Coordinate origin, CoordinateBatch batch, double[] result) {
+    ParameterUtil.assertNotNull(batch, "batch");
+
+    return batch.getDistances(origin, result);
+  }
+
 }
@@ -24,6 +24,11 @@ public class Globals extends DataObject {
   private int lastSessionId;
   private int lastCaseId;
 
+  /**
+   * True once all users have been saved with the index of their nickname
+   */
+  private boolean isNickNameIndexed;
+
   public Globals() {
     id = DEAULT_ID;
     incWriteCount();
@@ -65,6 +70,15 @@ public class Globals extends DataObject {
     incWriteCount();
   }
 
+  public boolean isNickNameIndexed() {
+    return isNickNameIndexed;
+  }
+
+  public void setNickNameIndexed(boolean isNickNameIndexed) {
+    this.isNickNameIndexed = isNickNameIndexed;
+    incWriteCount();
+  }
+
   public String asString() {
     StringBuilder builder = new StringBuilder();
     builder.append("Globals with ID ").append(id);
@@ -72,7 +86,8 @@ public class Globals extends DataObject {
     builder.append("last user ID: ").append(lastUserId);
     builder.append(", last case ID: ").append(lastCaseId);
     builder.append(", last photo ID: ").append(lastPhotoId);
-    builder.append(", and last session ID: ").append(lastSessionId);
+    builder.append(", last session ID: ").append(lastSessionId);
+    builder.append(", and nicknames indexed: ").append(isNickNameIndexed);
     return builder.toString();
   }
 }
@@ -44,6 +44,7 @@ public class GlobalsManager extends ObjectManager {
     log.info(globals.asString());
 
     UserManager.getInstance().setLastClientId(globals.getLastUserId());
+    UserManager.getInstance().setNickNameIndexed(globals.isNickNameIndexed());
     PhotoId.setCurrentIdFromInt(globals.getLastPhotoId());
     Case.setLastCaseId(new CaseId(globals.getLastCaseId()));
     AbstractServlet.setLastSessionId(globals.getLastSessionId());
@@ -94,6 +95,7 @@ public class GlobalsManager extends ObjectManager {
   public synchronized void saveGlobals() {
     final Globals globals = new Globals();
     globals.setLastUserId(UserManager.getInstance().getLastClientId());
+    globals.setNickNameIndexed(UserManager.getInstance().isNickNameIndexed());
     globals.setLastPhotoId(PhotoId.getCurrentIdAsInt());
     globals.setLastCaseId(Case.getLastCaseId().asInt());
     globals.setLastSessionId(AbstractServlet.getLastSessionId());
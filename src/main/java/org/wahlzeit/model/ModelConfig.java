@@ -189,6 +189,8 @@ public interface ModelConfig extends Configuration, Serializable {
   // SHOW_PHOTO_CASE_FORM
   String getNoFlaggedPhotoCases();
 
+  String getMorePhotoCases();
+
   // SHOW_ADMIN_MENU_FORM
   String getPhotoIsUnknown();
 
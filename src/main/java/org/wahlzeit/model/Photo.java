@@ -443,5 +443,6 @@ public class Photo extends DataObject {
       throw new IllegalArgumentException("Cannot set null as Location");
     }
     this.location = location;
+    incWriteCount();
   }
 }
@@ -20,12 +20,15 @@
 
 package org.wahlzeit.model;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import org.wahlzeit.services.ObjectManager;
 
 /**
@@ -40,7 +43,13 @@ public class PhotoCaseManager extends ObjectManager {
   /**
    *
    */
-  protected Map<CaseId, PhotoCase> openPhotoCases = new HashMap<CaseId, PhotoCase>();
+  protected Map<CaseId, PhotoCase> openPhotoCases = new ConcurrentHashMap<CaseId, PhotoCase>();
+
+  /**
+   * The open cases ordered by creation time, oldest first
+   */
+  protected NavigableMap<AgeKey, PhotoCase> openPhotoCasesByAge =
+      new ConcurrentSkipListMap<AgeKey, PhotoCase>();
 
   /**
    * @methodtype constructor
@@ -84,7 +93,7 @@ public class PhotoCaseManager extends ObjectManager {
     Collection<PhotoCase> opc = new LinkedList<PhotoCase>();
     loadOpenPhotoCases(opc);
     for (PhotoCase pc : opc) {
-      openPhotoCases.put(pc.getId(), pc);
+      doAddPhotoCase(pc);
     }
   }
 
@@ -107,11 +116,18 @@ public class PhotoCaseManager extends ObjectManager {
     return result;
   }
 
+  /**
+   * @methodtype get
+   */
+  public PhotoCase getPhotoCase(CaseId id) {
+    return openPhotoCases.get(id);
+  }
+
   /**
    * @methodtype command
    */
   public void addPhotoCase(PhotoCase myCase) {
-    openPhotoCases.put(myCase.getId(), myCase);
+    doAddPhotoCase(myCase);
     if (myCase.isDirty()) {
       writeObject(myCase);
     }
@@ -122,10 +138,46 @@ public class PhotoCaseManager extends ObjectManager {
    * @methodtype command
    */
   public void removePhotoCase(PhotoCase myCase) {
-    openPhotoCases.remove(myCase.getId());
+    doRemovePhotoCase(myCase);
     deleteObject(myCase);
   }
 
+  /**
+   * Decides all given cases and deletes them with one datastore call
+   *
+   * @methodtype command
+   */
+  public void removePhotoCases(Collection<PhotoCase> cases) {
+    for (PhotoCase photoCase : cases) {
+      photoCase.setDecided();
+      doRemovePhotoCase(photoCase);
+    }
+    deleteObjects(cases);
+  }
+
+  /**
+   * @methodtype command
+   * @methodproperties primitive
+   */
+  protected synchronized void doAddPhotoCase(PhotoCase myCase) {
+    PhotoCase oldCase = openPhotoCases.put(myCase.getId(), myCase);
+    if (oldCase != null) {
+      openPhotoCasesByAge.remove(new AgeKey(oldCase));
+    }
+    openPhotoCasesByAge.put(new AgeKey(myCase), myCase);
+  }
+
+  /**
+   * @methodtype command
+   * @methodproperties primitive
+   */
+  protected synchronized void doRemovePhotoCase(PhotoCase myCase) {
+    PhotoCase oldCase = openPhotoCases.remove(myCase.getId());
+    if (oldCase != null) {
+      openPhotoCasesByAge.remove(new AgeKey(oldCase));
+    }
+  }
+
   /**
    * @methodtype command
    */
@@ -139,8 +191,111 @@ public class PhotoCaseManager extends ObjectManager {
    * @methodtype get
    */
   public PhotoCase[] getOpenPhotoCasesByAscendingAge() {
-    PhotoCase[] resultArray = openPhotoCases.values().toArray(new PhotoCase[0]);
-    Arrays.sort(resultArray, getPhotoCasesByAscendingAgeComparator());
-    return resultArray;
+    return openPhotoCasesByAge.descendingMap().values().toArray(new PhotoCase[0]);
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int getNoOpenPhotoCases() {
+    return openPhotoCases.size();
+  }
+
+  /**
+   * Returns a page of the open cases, oldest first. Only the returned cases are visited, no matter
+   * how many cases are open.
+   *
+   * @param cursor position after which the page starts, see {@link #getCursor(PhotoCase)}; null or
+   * empty to start with the oldest case
+   * @param maxCases maximum number of returned cases
+   * @return the cases of the page
+   */
+  public List<PhotoCase> getOpenPhotoCasesByDescendingAge(String cursor, int maxCases) {
+    List<PhotoCase> result = new ArrayList<PhotoCase>(Math.max(0, Math.min(maxCases, 64)));
+    AgeKey after = AgeKey.fromCursor(cursor);
+    Map<AgeKey, PhotoCase> page =
+        after == null ? openPhotoCasesByAge : openPhotoCasesByAge.tailMap(after, false);
+    for (PhotoCase photoCase : page.values()) {
+      if (result.size() >= maxCases) {
+        break;
+      }
+      result.add(photoCase);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the cursor to continue paging after the given case. It stays valid after the case got
+   * removed.
+   *
+   * @methodtype conversion
+   */
+  public static String getCursor(PhotoCase photoCase) {
+    return new AgeKey(photoCase).asCursor();
+  }
+
+  /**
+   * Orders cases by creation time, cases created in the same millisecond by id
+   */
+  protected static class AgeKey implements Comparable<AgeKey> {
+
+    protected final long createdOn;
+    protected final int caseId;
+
+    protected AgeKey(PhotoCase photoCase) {
+      this(photoCase.getCreationTime(), photoCase.getId().asInt());
+    }
+
+    protected AgeKey(long createdOn, int caseId) {
+      this.createdOn = createdOn;
+      this.caseId = caseId;
+    }
+
+    /**
+     * @return the key of the cursor, null if the cursor is empty or malformed
+     */
+    protected static AgeKey fromCursor(String cursor) {
+      if (cursor == null) {
+        return null;
+      }
+
+      int separator = cursor.indexOf('-', 1);
+      if (separator < 0) {
+        return null;
+      }
+
+      try {
+        return new AgeKey(Long.parseLong(cursor.substring(0, separator)),
+            Integer.parseInt(cursor.substring(separator + 1)));
+      } catch (NumberFormatException ex) {
+        return null;
+      }
+    }
+
+    protected String asCursor() {
+      return createdOn + "-" + caseId;
+    }
+
+    @Override
+    public int compareTo(AgeKey other) {
+      if (createdOn != other.createdOn) {
+        return createdOn < other.createdOn ? -1 : 1;
+      }
+      return caseId < other.caseId ? -1 : (caseId == other.caseId ? 0 : 1);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof AgeKey)) {
+        return false;
+      }
+      AgeKey other = (AgeKey) obj;
+      return createdOn == other.createdOn && caseId == other.caseId;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (int) (createdOn ^ (createdOn >>> 32)) + caseId;
+    }
   }
 }
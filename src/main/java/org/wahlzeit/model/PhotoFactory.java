@@ -54,7 +54,7 @@ public class PhotoFactory {
   public static synchronized PhotoFactory getInstance() {
     if (instance == null) {
       log.config(
-          LogBuilder.createSystemMessage().addAction("setting generic PhotoFactory").toString());
+          LogBuilder.createSystemMessage().addAction("setting generic PhotoFactory"));
       setInstance(new PhotoFactory());
     }
 
@@ -20,9 +20,13 @@
 
 package org.wahlzeit.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -51,12 +55,22 @@ public class PhotoFilter implements Serializable {
   protected String userName = "";
   protected Tags tags = Tags.EMPTY_TAGS;
 
+  /**
+   * Location condition, stored by its cartesian components as coordinates are not serializable
+   */
+  protected boolean hasLocationCondition = false;
+  protected double locationX = 0;
+  protected double locationY = 0;
+  protected double locationZ = 0;
+  protected double maxDistance = Double.POSITIVE_INFINITY;
+  protected int maxNearestPhotos = Integer.MAX_VALUE;
+
   /**
    *
    */
-  protected List<PhotoId> displayablePhotoIds;
-  protected List<PhotoId> processedPhotoIds = new LinkedList<PhotoId>();
-  protected List<PhotoId> skippedPhotoIds = new LinkedList<PhotoId>();
+  protected transient List<PhotoId> displayablePhotoIds;
+  protected transient List<PhotoId> processedPhotoIds = new LinkedList<PhotoId>();
+  protected transient List<PhotoId> skippedPhotoIds = new LinkedList<PhotoId>();
 
   /**
    *
@@ -91,6 +105,7 @@ public class PhotoFilter implements Serializable {
   public void clear() {
     setUserName("");
     setTags(Tags.EMPTY_TAGS);
+    clearLocationCondition();
     displayablePhotoIds.clear();
     processedPhotoIds.clear();
   }
@@ -110,6 +125,73 @@ public class PhotoFilter implements Serializable {
     resetDisplayablePhotoIds();
   }
 
+  /**
+   * Restricts the photos to those closest to the given coordinate
+   *
+   * @param origin to search from
+   * @param maxDistance maximum distance in km, {@code Double.POSITIVE_INFINITY} for any distance
+   * @param maxPhotos maximum number of closest photos, {@code Integer.MAX_VALUE} for any number
+   * @throws IllegalArgumentException if origin is null or cannot be converted to a cartesian
+   * coordinate
+   * @see PhotoLocationIndex#find(Coordinate, double, int)
+   */
+  public void setLocationCondition(Coordinate origin, double maxDistance, int maxPhotos) {
+    CartesianCoordinate position = PhotoLocationIndex.asPosition(origin);
+    if (position == null) {
+      throw new IllegalArgumentException("Cannot filter by location " + origin);
+    }
+
+    hasLocationCondition = true;
+    locationX = position.getX();
+    locationY = position.getY();
+    locationZ = position.getZ();
+    this.maxDistance = maxDistance;
+    maxNearestPhotos = maxPhotos;
+    resetDisplayablePhotoIds();
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void clearLocationCondition() {
+    hasLocationCondition = false;
+    maxDistance = Double.POSITIVE_INFINITY;
+    maxNearestPhotos = Integer.MAX_VALUE;
+    resetDisplayablePhotoIds();
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  public boolean hasLocationCondition() {
+    return hasLocationCondition;
+  }
+
+  /**
+   * @methodtype get
+   * @return origin of the location condition or {@link NoWhereCoordinate} if there is none
+   */
+  public Coordinate getLocation() {
+    if (!hasLocationCondition) {
+      return NoWhereCoordinate.create();
+    }
+    return CartesianCoordinate.create(locationX, locationY, locationZ);
+  }
+
+  /**
+   * @methodtype get
+   */
+  public double getMaxDistance() {
+    return maxDistance;
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int getMaxNearestPhotos() {
+    return maxNearestPhotos;
+  }
+
   /**
    *
    */
@@ -188,10 +270,8 @@ public class PhotoFilter implements Serializable {
    *
    */
   public boolean isProcessedPhotoId(PhotoId photoId) {
-    log.info("photoId: " + photoId.asString());
-    for (PhotoId id : processedPhotoIds) {
-      log.info("Processed id: " + id.asString());
-    }
+    log.fine(LogBuilder.createSystemMessage().addParameter("photoId", photoId)
+        .addParameter("number of processed ids", processedPhotoIds.size()));
     return processedPhotoIds.contains(photoId);
   }
 
@@ -235,32 +315,14 @@ public class PhotoFilter implements Serializable {
    *
    */
   protected List<PhotoId> getFilteredPhotoIds() {
-    // get all tags that match the filter conditions
     List<PhotoId> result = new LinkedList<PhotoId>();
-    int noFilterConditions = getFilterConditions().size();
-    log.config(LogBuilder.createSystemMessage().
-        addParameter("Number of filter conditions", String.valueOf(noFilterConditions)).toString());
-
-    Collection<PhotoId> candidates;
-    if (noFilterConditions == 0) {
-      candidates = PhotoManager.getInstance().getPhotoCache().keySet();
-    } else {
-      List<Tag> tags = new LinkedList<Tag>();
-      candidates = new LinkedList<PhotoId>();
-      for (String condition : getFilterConditions()) {
-        PhotoManager.getInstance().addTagsThatMatchCondition(tags, condition);
-      }
-      // get the list of all photo ids that correspond to the tags
-      for (Tag tag : tags) {
-        candidates.add(PhotoId.getIdFromString(tag.getPhotoId()));
-      }
-    }
+    Collection<PhotoId> candidates = getCandidatePhotoIds();
 
     int newPhotos = 0;
     for (PhotoId candidateId : candidates) {
-      Photo photoCandidate = PhotoManager.getInstance().getPhoto(candidateId);
+      Photo photoCandidate = getPhotoManager().getPhoto(candidateId);
       if (!processedPhotoIds.contains(candidateId) && !skippedPhotoIds.contains(candidateId) &&
-          photoCandidate.isVisible()) {
+          photoCandidate != null && photoCandidate.isVisible()) {
         result.add(candidateId);
         ++newPhotos;
       }
@@ -271,9 +333,126 @@ public class PhotoFilter implements Serializable {
       newPhotos = skippedPhotos;
     }
 
-    log.config(LogBuilder.createSystemMessage().addParameter("Number of photos to show", newPhotos)
-        .toString());
+    log.config(LogBuilder.createSystemMessage().addParameter("Number of photos to show", newPhotos));
+
+    return result;
+  }
+
+  /**
+   * Returns the photos matching the tag and location conditions, all cached photos if there are no
+   * conditions. Processed, skipped and invisible photos are removed by the caller.
+   */
+  protected Collection<PhotoId> getCandidatePhotoIds() {
+    // get all tags that match the filter conditions
+    int noFilterConditions = getFilterConditions().size();
+    log.config(LogBuilder.createSystemMessage().
+        addParameter("Number of filter conditions", String.valueOf(noFilterConditions)));
+
+    Collection<PhotoId> candidates;
+    if (noFilterConditions == 0 && hasLocationCondition) {
+      candidates = getPhotoIdsNearLocation();
+    } else if (noFilterConditions == 0) {
+      candidates = getPhotoManager().getPhotoCache().keySet();
+    } else {
+      candidates = getTaggedPhotoIds();
+      if (hasLocationCondition) {
+        candidates = getPhotoIdsNearLocation(candidates);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Returns the photos having a tag matching the filter conditions
+   */
+  protected List<PhotoId> getTaggedPhotoIds() {
+    List<Tag> tags = new LinkedList<Tag>();
+    List<PhotoId> result = new LinkedList<PhotoId>();
+    for (String condition : getFilterConditions()) {
+      getPhotoManager().addTagsThatMatchCondition(tags, condition);
+    }
+    // get the list of all photo ids that correspond to the tags
+    for (Tag tag : tags) {
+      result.add(PhotoId.getIdFromString(tag.getPhotoId()));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the manager of the filtered photos
+   *
+   * @methodtype get
+   */
+  protected PhotoManager getPhotoManager() {
+    return PhotoManager.getInstance();
+  }
+
+  /**
+   * Returns the photos matching the location condition, ordered by ascending distance
+   */
+  protected List<PhotoId> getPhotoIdsNearLocation() {
+    return getPhotoManager().getLocationIndex()
+        .find(getLocation(), maxDistance, maxNearestPhotos);
+  }
+
+  /**
+   * Returns those of the given photos matching the location condition, ordered by ascending
+   * distance. The number of photos is limited after choosing among the given ones.
+   */
+  protected List<PhotoId> getPhotoIdsNearLocation(Collection<PhotoId> ids) {
+    return getPhotoManager().getLocationIndex().findAmong(new LinkedHashSet<PhotoId>(ids),
+        getLocation(), maxDistance, maxNearestPhotos);
+  }
+
+  /**
+   * Writes the id lists as plain ints, they grow with every photo shown in the session
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    writePhotoIds(out, displayablePhotoIds);
+    writePhotoIds(out, processedPhotoIds);
+    writePhotoIds(out, skippedPhotoIds);
+  }
+
+  /**
+   * Reads the id lists written by {@link #writeObject(ObjectOutputStream)}
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    displayablePhotoIds = readPhotoIds(in, new ArrayList<PhotoId>());
+    processedPhotoIds = readPhotoIds(in, new LinkedList<PhotoId>());
+    skippedPhotoIds = readPhotoIds(in, new LinkedList<PhotoId>());
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected static void writePhotoIds(ObjectOutputStream out, List<PhotoId> ids)
+      throws IOException {
+    if (ids == null) {
+      out.writeInt(-1);
+      return;
+    }
+
+    out.writeInt(ids.size());
+    for (PhotoId id : ids) {
+      out.writeInt(id.asInt());
+    }
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected static List<PhotoId> readPhotoIds(ObjectInputStream in, List<PhotoId> result)
+      throws IOException {
+    int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
 
+    for (int i = 0; i < size; i++) {
+      result.add(PhotoId.getIdFromInt(in.readInt()));
+    }
     return result;
   }
 }
@@ -22,6 +22,8 @@ package org.wahlzeit.model;
 
 import java.io.Serializable;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A photo id identifies a photo with a unique number.
@@ -34,6 +36,22 @@ public class PhotoId implements Serializable {
    *
    */
   public static final int BUFFER_SIZE_INCREMENT = 64;
+  /**
+   * Radix of the string representation of an id
+   */
+  protected static final int RADIX = 36;
+  /**
+   * Digits of the string representation, indexed by their value
+   */
+  protected static final char[] DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+  /**
+   * Values of the (ASCII) digits, indexed by the digit character
+   */
+  protected static final int[] DIGIT_VALUES = createDigitValues();
+  /**
+   * Prefix + maximum number of base-36 digits of a positive int
+   */
+  protected static final int MAX_STRING_LENGTH = 1 + 6;
   /**
    *
    */
@@ -54,6 +72,10 @@ public class PhotoId implements Serializable {
    *
    */
   protected static Random randomNumber = new Random(System.currentTimeMillis());
+  /**
+   * Handed out ids by their string value, so lookups from URLs need not be parsed again
+   */
+  protected static ConcurrentMap<String, PhotoId> stringIds = new ConcurrentHashMap<String, PhotoId>();
   /**
    *
    */
@@ -86,6 +108,7 @@ public class PhotoId implements Serializable {
     currentId = id;
     ids = new PhotoId[currentId + BUFFER_SIZE_INCREMENT];
     ids[0] = NULL_ID;
+    stringIds.clear();
   }
 
   /**
@@ -117,6 +140,7 @@ public class PhotoId implements Serializable {
         if (result == null) {
           result = new PhotoId(id);
           ids[id] = result;
+          stringIds.put(result.asString(), result);
         }
       }
     }
@@ -128,6 +152,11 @@ public class PhotoId implements Serializable {
    *
    */
   public static PhotoId getIdFromString(String id) {
+    PhotoId result = stringIds.get(id);
+    if (result != null) {
+      return result;
+    }
+
     return getIdFromInt(getFromString(id));
   }
 
@@ -153,22 +182,16 @@ public class PhotoId implements Serializable {
    *
    */
   public static String getFromInt(int id) {
-    StringBuffer result = new StringBuffer(10);
+    char[] result = new char[MAX_STRING_LENGTH];
+    int start = MAX_STRING_LENGTH;
 
     id += ID_START;
-    for (; id > 0; id = id / 36) {
-      char letterOrDigit;
-      int modulus = id % 36;
-      if (modulus < 10) {
-        letterOrDigit = (char) ((int) '0' + modulus);
-      } else {
-        letterOrDigit = (char) ((int) 'a' - 10 + modulus);
-      }
-      result.insert(0, letterOrDigit);
-
+    for (; id > 0; id = id / RADIX) {
+      result[--start] = DIGITS[id % RADIX];
     }
+    result[--start] = 'x';
 
-    return "x" + result.toString();
+    return new String(result, start, MAX_STRING_LENGTH - start);
   }
 
   /**
@@ -177,14 +200,12 @@ public class PhotoId implements Serializable {
   public static int getFromString(String value) {
     int result = 0;
     for (int i = 1; i < value.length(); i++) {
-      int temp = 0;
       char letterOrDigit = value.charAt(i);
-      if (letterOrDigit < 'a') {
-        temp = (int) letterOrDigit - '0';
+      if (letterOrDigit < DIGIT_VALUES.length) {
+        result = result * RADIX + DIGIT_VALUES[letterOrDigit];
       } else {
-        temp = 10 + (int) letterOrDigit - 'a';
+        result = result * RADIX + 10 + (int) letterOrDigit - 'a';
       }
-      result = result * 36 + temp;
     }
 
     result -= ID_START;
@@ -195,6 +216,55 @@ public class PhotoId implements Serializable {
     return result;
   }
 
+  /**
+   * Looks up the id whose string is the given part of the value, without creating a string
+   *
+   * @return the handed out id, null if the part is not the string of one
+   */
+  public static PhotoId getIdFromString(String value, int start, int end) {
+    int length = end - start;
+    if (length < 2 || length > MAX_STRING_LENGTH || value.charAt(start) != 'x') {
+      return null;
+    }
+
+    long number = 0;
+    for (int i = start + 1; i < end; i++) {
+      char c = value.charAt(i);
+      if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z'))) {
+        return null;
+      }
+      number = number * RADIX + DIGIT_VALUES[c];
+    }
+
+    number -= ID_START;
+    if (number <= 0 || number > currentId) {
+      return null;
+    }
+
+    PhotoId result = getIdFromInt((int) number);
+    String stringValue = result.asString();
+    // e.g. leading zeros denote the same number, but are not the string of the id
+    if (stringValue.length() != length || !value.regionMatches(start, stringValue, 0, length)) {
+      return null;
+    }
+    return result;
+  }
+
+  /**
+   * @methodtype initialization
+   */
+  protected static int[] createDigitValues() {
+    int[] result = new int[128];
+    for (char letterOrDigit = 0; letterOrDigit < result.length; letterOrDigit++) {
+      if (letterOrDigit < 'a') {
+        result[letterOrDigit] = (int) letterOrDigit - '0';
+      } else {
+        result[letterOrDigit] = 10 + (int) letterOrDigit - 'a';
+      }
+    }
+    return result;
+  }
+
   /**
    *
    */
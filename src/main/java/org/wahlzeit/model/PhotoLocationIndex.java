@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.wahlzeit.model.converter.UnsupportedConversionException;
+import org.wahlzeit.utils.ParameterUtil;
+
+/**
+ * In-memory spatial index over the locations of photos. It answers nearest neighbour and radius
+ * queries without looking at every photo. Distances are measured like {@link
+ * Coordinate#getDistance(Coordinate)}, i.e. the cartesian distance in km.
+ *
+ * The index keeps the positions of all located photos and lazily builds an immutable k-d tree of
+ * them. Any update drops the tree, the next query builds a new one. Photos placed at the {@link
+ * NoWhereCoordinate} are not indexed.
+ *
+ * @see PhotoManager
+ * @see PhotoFilter#setLocationCondition(Coordinate, double, int)
+ */
+public class PhotoLocationIndex {
+
+  /**
+   * Positions of all indexed photos
+   */
+  protected final Map<PhotoId, CartesianCoordinate> positions =
+      new ConcurrentHashMap<PhotoId, CartesianCoordinate>();
+
+  /**
+   * Incremented on every update, a tree is only valid for the version it was built from
+   */
+  protected final AtomicInteger version = new AtomicInteger();
+
+  /**
+   * Latest built tree, may be outdated
+   */
+  protected volatile Tree tree = null;
+
+  /**
+   * Adds, moves or removes the photo depending on its current location
+   *
+   * @param photo to update
+   */
+  public void update(Photo photo) {
+    ParameterUtil.assertNotNull(photo, "photo");
+
+    CartesianCoordinate position = asPosition(photo.getLocation());
+    if (position == null) {
+      remove(photo.getId());
+    } else if (positions.put(photo.getId(), position) != position) {
+      version.incrementAndGet();
+    }
+  }
+
+  /**
+   * Removes the photo from the index
+   *
+   * @param id of the photo
+   */
+  public void remove(PhotoId id) {
+    if (positions.remove(id) != null) {
+      version.incrementAndGet();
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int size() {
+    return positions.size();
+  }
+
+  /**
+   * Finds the photos closest to the given coordinate
+   *
+   * @param origin to search from
+   * @param maxPhotos maximum number of returned photos
+   * @return ids of the closest photos, ordered by ascending distance
+   */
+  public List<PhotoId> findNearest(Coordinate origin, int maxPhotos) {
+    return find(origin, Double.POSITIVE_INFINITY, maxPhotos);
+  }
+
+  /**
+   * Finds all photos within the given distance of the coordinate
+   *
+   * @param origin to search from
+   * @param maxDistance in km
+   * @return ids of the found photos, ordered by ascending distance
+   */
+  public List<PhotoId> findWithinDistance(Coordinate origin, double maxDistance) {
+    return find(origin, maxDistance, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Finds at most maxPhotos photos within the given distance of the coordinate
+   *
+   * @param origin to search from
+   * @param maxDistance in km
+   * @param maxPhotos maximum number of returned photos
+   * @return ids of the found photos, ordered by ascending distance
+   */
+  public List<PhotoId> find(Coordinate origin, double maxDistance, int maxPhotos) {
+    ParameterUtil.assertNotNull(origin, "origin");
+    ParameterUtil.assertNumberInRange((double) maxPhotos, 0.0, (double) Integer.MAX_VALUE,
+        "maxPhotos");
+
+    CartesianCoordinate position = asPosition(origin);
+    if (position == null || maxPhotos == 0 || !(maxDistance >= 0)) {
+      return new ArrayList<PhotoId>();
+    }
+
+    return getTree().find(position.getX(), position.getY(), position.getZ(),
+        maxDistance * maxDistance, maxPhotos);
+  }
+
+  /**
+   * Finds at most maxPhotos of the given photos within the given distance of the coordinate.
+   * Photos which are not indexed are skipped, so the limit applies to the given photos only.
+   *
+   * @param ids of the photos to choose from
+   * @param origin to search from
+   * @param maxDistance in km
+   * @param maxPhotos maximum number of returned photos
+   * @return ids of the found photos, ordered by ascending distance
+   */
+  public List<PhotoId> findAmong(Collection<PhotoId> ids, Coordinate origin, double maxDistance,
+      int maxPhotos) {
+    ParameterUtil.assertNotNull(ids, "ids");
+    ParameterUtil.assertNotNull(origin, "origin");
+    ParameterUtil.assertNumberInRange((double) maxPhotos, 0.0, (double) Integer.MAX_VALUE,
+        "maxPhotos");
+
+    CartesianCoordinate position = asPosition(origin);
+    if (position == null || maxPhotos == 0 || !(maxDistance >= 0)) {
+      return new ArrayList<PhotoId>();
+    }
+
+    List<PhotoId> found = new ArrayList<PhotoId>(ids.size());
+    double[] distances = new double[ids.size()];
+    for (PhotoId id : ids) {
+      CartesianCoordinate other = positions.get(id);
+      if (other != null) {
+        double dx = other.getX() - position.getX();
+        double dy = other.getY() - position.getY();
+        double dz = other.getZ() - position.getZ();
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance <= maxDistance) {
+          distances[found.size()] = distance;
+          found.add(id);
+        }
+      }
+    }
+
+    int[] order = CoordinateBatch.getIndexesByDistance(distances, found.size());
+    List<PhotoId> result = new ArrayList<PhotoId>(Math.min(maxPhotos, order.length));
+    for (int i = 0; i < order.length && i < maxPhotos; i++) {
+      result.add(found.get(order[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Returns a tree of the current positions, builds a new one if the latest is outdated
+   */
+  protected Tree getTree() {
+    Tree result = tree;
+    if (result != null && result.version == version.get()) {
+      return result;
+    }
+
+    synchronized (this) {
+      result = tree;
+      if (result == null || result.version != version.get()) {
+        // read the version first, an update while building makes the tree outdated
+        result = new Tree(version.get(), positions);
+        tree = result;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * @methodtype conversion
+   */
+  protected static CartesianCoordinate asPosition(Location location) {
+    return location == null ? null : asPosition(location.getCoordinate());
+  }
+
+  /**
+   * @methodtype conversion
+   */
+  protected static CartesianCoordinate asPosition(Coordinate coordinate) {
+    if (coordinate == null || coordinate instanceof NoWhereCoordinate) {
+      return null;
+    }
+
+    try {
+      return coordinate.asCartesianCoordinate();
+    } catch (UnsupportedConversionException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Immutable k-d tree over three dimensions. The nodes are stored implicitly: the median of a
+   * range is its root, the axis alternates with the depth.
+   */
+  protected static class Tree {
+
+    protected final int version;
+    protected final PhotoId[] ids;
+    protected final double[][] coordinates;
+
+    /**
+     * Builds the tree of the given positions
+     */
+    protected Tree(int version, Map<PhotoId, CartesianCoordinate> positions) {
+      this.version = version;
+
+      List<PhotoId> idList = new ArrayList<PhotoId>(positions.size());
+      List<CartesianCoordinate> positionList = new ArrayList<CartesianCoordinate>(positions.size());
+      for (Map.Entry<PhotoId, CartesianCoordinate> entry : positions.entrySet()) {
+        idList.add(entry.getKey());
+        positionList.add(entry.getValue());
+      }
+
+      int size = idList.size();
+      ids = idList.toArray(new PhotoId[size]);
+      coordinates = new double[3][size];
+      for (int i = 0; i < size; i++) {
+        CartesianCoordinate position = positionList.get(i);
+        coordinates[0][i] = position.getX();
+        coordinates[1][i] = position.getY();
+        coordinates[2][i] = position.getZ();
+      }
+
+      build(0, size, 0);
+    }
+
+    /**
+     * Arranges the range so the median on the axis of the depth is in the middle
+     */
+    protected void build(int from, int to, int depth) {
+      if (to - from < 2) {
+        return;
+      }
+
+      int axis = depth % 3;
+      int median = (from + to) >>> 1;
+      select(from, to - 1, median, coordinates[axis]);
+
+      build(from, median, depth + 1);
+      build(median + 1, to, depth + 1);
+    }
+
+    /**
+     * Moves the k-th smallest value of the axis within [left, right] to position k (quickselect)
+     */
+    protected void select(int left, int right, int k, double[] values) {
+      while (left < right) {
+        double pivot = values[(left + right) >>> 1];
+        int i = left;
+        int j = right;
+        while (i <= j) {
+          while (values[i] < pivot) {
+            i++;
+          }
+          while (values[j] > pivot) {
+            j--;
+          }
+          if (i <= j) {
+            swap(i, j);
+            i++;
+            j--;
+          }
+        }
+        if (k <= j) {
+          right = j;
+        } else if (k >= i) {
+          left = i;
+        } else {
+          return;
+        }
+      }
+    }
+
+    /**
+     * @methodtype helper
+     */
+    protected void swap(int i, int j) {
+      PhotoId id = ids[i];
+      ids[i] = ids[j];
+      ids[j] = id;
+      for (double[] values : coordinates) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+      }
+    }
+
+    /**
+     * Finds the closest maxPhotos points with a squared distance of at most maxDistanceSquared
+     */
+    protected List<PhotoId> find(double x, double y, double z, double maxDistanceSquared,
+        int maxPhotos) {
+      Candidates candidates = new Candidates(Math.min(maxPhotos, ids.length), maxDistanceSquared);
+      search(0, ids.length, 0, new double[]{x, y, z}, candidates);
+      return candidates.asSortedIds(ids);
+    }
+
+    /**
+     * Visits the subtree of the range, the far side only if it may contain closer points
+     */
+    protected void search(int from, int to, int depth, double[] origin, Candidates candidates) {
+      if (from >= to) {
+        return;
+      }
+
+      int median = (from + to) >>> 1;
+      double dx = origin[0] - coordinates[0][median];
+      double dy = origin[1] - coordinates[1][median];
+      double dz = origin[2] - coordinates[2][median];
+      candidates.offer(median, dx * dx + dy * dy + dz * dz);
+
+      int axis = depth % 3;
+      double delta = origin[axis] - coordinates[axis][median];
+      if (delta < 0) {
+        search(from, median, depth + 1, origin, candidates);
+        if (delta * delta <= candidates.getBound()) {
+          search(median + 1, to, depth + 1, origin, candidates);
+        }
+      } else {
+        search(median + 1, to, depth + 1, origin, candidates);
+        if (delta * delta <= candidates.getBound()) {
+          search(from, median, depth + 1, origin, candidates);
+        }
+      }
+    }
+  }
+
+  /**
+   * Bounded max-heap of the best points found so far
+   */
+  protected static class Candidates {
+
+    protected final int capacity;
+    protected final double maxDistanceSquared;
+    protected int[] indexes;
+    protected double[] distances;
+    protected int size = 0;
+
+    protected Candidates(int capacity, double maxDistanceSquared) {
+      this.capacity = capacity;
+      this.maxDistanceSquared = maxDistanceSquared;
+      int initialCapacity = Math.max(1, Math.min(capacity, 64));
+      indexes = new int[initialCapacity];
+      distances = new double[initialCapacity];
+    }
+
+    /**
+     * Returns the squared distance a point has to undercut to be taken
+     */
+    protected double getBound() {
+      return size < capacity ? maxDistanceSquared : distances[0];
+    }
+
+    /**
+     * @methodtype command
+     */
+    protected void offer(int index, double distanceSquared) {
+      if (distanceSquared > maxDistanceSquared || capacity == 0) {
+        return;
+      }
+
+      if (size < capacity) {
+        if (size == indexes.length) {
+          int newLength = (int) Math.min((long) capacity, 2L * indexes.length);
+          indexes = Arrays.copyOf(indexes, newLength);
+          distances = Arrays.copyOf(distances, newLength);
+        }
+        int i = size++;
+        while (i > 0 && distances[(i - 1) >>> 1] < distanceSquared) {
+          int parent = (i - 1) >>> 1;
+          indexes[i] = indexes[parent];
+          distances[i] = distances[parent];
+          i = parent;
+        }
+        indexes[i] = index;
+        distances[i] = distanceSquared;
+      } else if (distanceSquared < distances[0]) {
+        siftDown(index, distanceSquared);
+      }
+    }
+
+    /**
+     * Replaces the root, i.e. the worst candidate
+     */
+    protected void siftDown(int index, double distanceSquared) {
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && distances[child + 1] > distances[child]) {
+          child++;
+        }
+        if (distances[child] <= distanceSquared) {
+          break;
+        }
+        indexes[i] = indexes[child];
+        distances[i] = distances[child];
+        i = child;
+      }
+      indexes[i] = index;
+      distances[i] = distanceSquared;
+    }
+
+    /**
+     * Returns the ids of the candidates ordered by ascending distance
+     */
+    protected List<PhotoId> asSortedIds(PhotoId[] ids) {
+      PhotoId[] result = new PhotoId[size];
+      while (size > 0) {
+        int last = --size;
+        result[last] = ids[indexes[0]];
+        if (last > 0) {
+          siftDown(indexes[last], distances[last]);
+        }
+      }
+      return new ArrayList<PhotoId>(Arrays.asList(result));
+    }
+  }
+
+}
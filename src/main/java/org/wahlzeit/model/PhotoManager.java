@@ -61,6 +61,11 @@ public class PhotoManager extends ObjectManager {
    */
   protected Map<PhotoId, Photo> photoCache = new HashMap<PhotoId, Photo>();
 
+  /**
+   * Spatial index over the locations of the cached photos
+   */
+  protected PhotoLocationIndex locationIndex = new PhotoLocationIndex();
+
   /**
    *
    */
@@ -135,6 +140,7 @@ public class PhotoManager extends ObjectManager {
    */
   protected void doAddPhoto(Photo myPhoto) {
     photoCache.put(myPhoto.getId(), myPhoto);
+    locationIndex.update(myPhoto);
   }
 
   /**
@@ -169,16 +175,16 @@ public class PhotoManager extends ObjectManager {
     for (Photo photo : existingPhotos) {
       if (!doHasPhoto(photo.getId())) {
         log.config(LogBuilder.createSystemMessage().
-            addParameter("Load Photo with ID", photo.getIdAsString()).toString());
+            addParameter("Load Photo with ID", photo.getIdAsString()));
         loadScaledImages(photo);
         doAddPhoto(photo);
       } else {
         log.config(LogBuilder.createSystemMessage().
-            addParameter("Already loaded Photo", photo.getIdAsString()).toString());
+            addParameter("Already loaded Photo", photo.getIdAsString()));
       }
     }
 
-    log.info(LogBuilder.createSystemMessage().addMessage("All photos loaded.").toString());
+    log.info(LogBuilder.createSystemMessage().addMessage("All photos loaded."));
   }
 
   /**
@@ -202,7 +208,7 @@ public class PhotoManager extends ObjectManager {
       log.config(LogBuilder.createSystemMessage().
           addAction("loading image").
           addParameter("image size", photoSize.asString()).
-          addParameter("photo ID", photoIdAsString).toString());
+          addParameter("photo ID", photoIdAsString));
       if (imageStorage.doesImageExist(photoIdAsString, photoSize.asInt())) {
         try {
           Serializable rawImage = imageStorage.readImage(photoIdAsString, photoSize.asInt());
@@ -213,11 +219,11 @@ public class PhotoManager extends ObjectManager {
           log.warning(LogBuilder.createSystemMessage().
               addParameter("size", photoSize.asString()).
               addParameter("photo ID", photoIdAsString).
-              addException("Could not load image although it exists", e).toString());
+              addException("Could not load image although it exists", e));
         }
       } else {
         log.config(LogBuilder.createSystemMessage().
-            addParameter("Size does not exist", photoSize.asString()).toString());
+            addParameter("Size does not exist", photoSize.asString()));
       }
     }
   }
@@ -233,6 +239,7 @@ public class PhotoManager extends ObjectManager {
   protected void updateDependents(Persistent obj) {
     if (obj instanceof Photo) {
       Photo photo = (Photo) obj;
+      updateLocation(photo);
       saveScaledImages(photo);
       updateTags(photo);
       UserManager userManager = UserManager.getInstance();
@@ -241,6 +248,45 @@ public class PhotoManager extends ObjectManager {
     }
   }
 
+  /**
+   * Updates the location index after the location of a cached photo changed; saving the photo
+   * does this as well
+   *
+   * @methodtype command
+   */
+  public void updateLocation(Photo photo) {
+    if (doHasPhoto(photo.getId())) {
+      locationIndex.update(photo);
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public PhotoLocationIndex getLocationIndex() {
+    return locationIndex;
+  }
+
+  /**
+   * Finds the photos closest to the given coordinate
+   *
+   * @methodtype get
+   * @see PhotoLocationIndex#findNearest(Coordinate, int)
+   */
+  public List<PhotoId> findNearestPhotoIds(Coordinate origin, int maxPhotos) {
+    return locationIndex.findNearest(origin, maxPhotos);
+  }
+
+  /**
+   * Finds the photos within the given distance (km) of the coordinate
+   *
+   * @methodtype get
+   * @see PhotoLocationIndex#findWithinDistance(Coordinate, double)
+   */
+  public List<PhotoId> findPhotoIdsWithinDistance(Coordinate origin, double maxDistance) {
+    return locationIndex.findWithinDistance(origin, maxDistance);
+  }
+
   /**
    * @methodtype helper
    */
@@ -272,12 +318,12 @@ public class PhotoManager extends ObjectManager {
           }
         } catch (Exception e) {
           log.warning(LogBuilder.createSystemMessage().
-              addException("Problem when storing image", e).toString());
+              addException("Problem when storing image", e));
           moreSizesExist = false;
         }
       } else {
         log.config(LogBuilder.createSystemMessage().
-            addParameter("No image for size", photoSize.asString()).toString());
+            addParameter("No image for size", photoSize.asString()));
         moreSizesExist = false;
       }
     } while (it < PhotoSize.values().length && moreSizesExist);
@@ -297,7 +343,7 @@ public class PhotoManager extends ObjectManager {
     for (Iterator<String> i = tags.iterator(); i.hasNext(); ) {
       Tag tag = new Tag(i.next(), photo.getId().asString());
       log.config(
-          LogBuilder.createSystemMessage().addParameter("Writing Tag", tag.asString()).toString());
+          LogBuilder.createSystemMessage().addParameter("Writing Tag", tag.asString()));
       writeObject(tag);
     }
   }
@@ -309,6 +355,15 @@ public class PhotoManager extends ObjectManager {
     updateObjects(photoCache.values());
   }
 
+  /**
+   * Saves the given photos with one datastore call
+   *
+   * @methodtype command
+   */
+  public void savePhotos(Collection<Photo> photos) {
+    updateObjects(photos);
+  }
+
   /**
    * @methodtype get
    */
@@ -105,8 +105,7 @@ public class PhotoUtil {
     photo.setImage(size, newImage);
 
     log.config(
-        LogBuilder.createSystemMessage().addParameter("Scaled image to size", size.asString())
-            .toString());
+        LogBuilder.createSystemMessage().addParameter("Scaled image to size", size.asString()));
   }
 
 }
@@ -21,12 +21,7 @@
 
 package org.wahlzeit.model;
 
-import static org.wahlzeit.utils.HashUtil.hash3;
-
-import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import org.wahlzeit.model.converter.CoordinateConverter;
 import org.wahlzeit.utils.ParameterUtil;
 
 /**
@@ -35,9 +30,22 @@ import org.wahlzeit.utils.ParameterUtil;
 public class SphericCoordinate extends AbstractCoordinate {
 
   /**
-   * This map stores all instances of cartesian coordinates
+   * This cache stores all instances of spheric coordinates
    */
-  private static final HashMap<Integer, List<WeakReference<SphericCoordinate>>> INSTANCES = new HashMap<>();
+  private static final CoordinateCache<SphericCoordinate> INSTANCES =
+      new CoordinateCache<SphericCoordinate>() {
+    @Override
+    protected boolean hasComponents(SphericCoordinate coordinate, double latitude,
+        double longitude, double radius) {
+      return coordinate.latitude == latitude && coordinate.longitude == longitude
+          && coordinate.radius == radius;
+    }
+
+    @Override
+    protected SphericCoordinate doCreate(double latitude, double longitude, double radius) {
+      return new SphericCoordinate(latitude, longitude, radius);
+    }
+  };
   /**
    * Stores the latitude of the coordinate
    */
@@ -50,6 +58,11 @@ public class SphericCoordinate extends AbstractCoordinate {
    * Stores the radius of the described point
    */
   private final double radius;
+  /**
+   * Lazily converted cartesian counterpart of this coordinate. The race when setting it is benign,
+   * as coordinates are immutable value objects.
+   */
+  private CartesianCoordinate cartesianCoordinate = null;
 
   /**
    * Creates a spheric coordinate with given location and radius
@@ -71,75 +84,14 @@ public class SphericCoordinate extends AbstractCoordinate {
    * @param longitude of the coordinate [-180, 180]
    * @param radius of the coordinate [0, inf)
    */
-  public synchronized static SphericCoordinate create(double latitude, double longitude,
+  public static SphericCoordinate create(double latitude, double longitude,
       double radius) {
-    // ensure a object get not persist twice
-    synchronized (INSTANCES) {
-      ParameterUtil.assertValidNumber(latitude, "latitude");
-      ParameterUtil.assertValidNumber(longitude, "longitude");
-      ParameterUtil.assertValidNumber(radius, "radius");
-
-      // look if we already have a instance with the provided coordinates
-      int hash = hash3(latitude, longitude, radius);
-      SphericCoordinate coord;
-      if (INSTANCES.containsKey(hash)) {
-        // there is already a list of objects with this hash
-        List<WeakReference<SphericCoordinate>> coords = INSTANCES.get(hash);
-        for (WeakReference<SphericCoordinate> refCoord : coords) {
-          coord = refCoord.get();
-          if (coord == null) {
-            // the finalizer will clean it up probably
-            continue;
-          }
-          if (coord.getLatitude() == latitude && coord.getLongitude() == longitude
-              && coord.getRadius() == radius) {
-            return coord;
-          }
-        }
-      /*
-       The reference was deleted by the gc or we have no matching
-       => Delete the invalid reference and create a new reference
-       */
-        coord = new SphericCoordinate(latitude, longitude, radius);
-        coords.add(new WeakReference<>(coord));
-        // return the created reference
-        return coord;
-      } else {
-        // the hash is not existent => create a list of objects with this hash
-        List<WeakReference<SphericCoordinate>> coords = new ArrayList<>();
-        // create our new coordinate
-        coord = new SphericCoordinate(latitude, longitude, radius);
-        // store a reference to our coordinate
-        coords.add(new WeakReference<>(coord));
-        INSTANCES.put(hash, coords);
-        // return the created reference
-        return coord;
-      }
-    }
-  }
+    ParameterUtil.assertValidNumber(latitude, "latitude");
+    ParameterUtil.assertValidNumber(longitude, "longitude");
+    ParameterUtil.assertValidNumber(radius, "radius");
 
-  @Override
-  protected void finalize() throws Throwable {
-    super.finalize();
-    // our object gets finalized => remove it from instances
-
-    int hash = hash3(latitude, longitude, radius);
-
-    synchronized (INSTANCES) {
-      List<WeakReference<SphericCoordinate>> coords = INSTANCES.get(hash);
-
-      for (WeakReference<SphericCoordinate> refCoord : coords) {
-        // check if we are the entry in the list
-        if (refCoord.get() == this) {
-          // jaj we are the entry in the list lets remove us
-          // acquire the lock and remove us
-
-          coords.remove(refCoord);
-          // work done
-          return;
-        }
-      }
-    }
+    // look up the instance with the provided components or create it
+    return INSTANCES.get(latitude, longitude, radius);
   }
 
   /**
@@ -199,6 +151,45 @@ public class SphericCoordinate extends AbstractCoordinate {
     return create(this.latitude, this.longitude, radius);
   }
 
+  /**
+   * Converts the coordinate to a {@link CartesianCoordinate}. The conversion is done once, the
+   * result is linked with this coordinate in both directions.
+   *
+   * @return the cartesian counterpart of this coordinate
+   * @see CoordinateConverter#convertToCartesian(SphericCoordinate)
+   */
+  @Override
+  public CartesianCoordinate asCartesianCoordinate() {
+    CartesianCoordinate result = cartesianCoordinate;
+    if (result == null) {
+      result = CoordinateConverter.convertToCartesian(this);
+      result.linkSphericCoordinate(this);
+      cartesianCoordinate = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns this coordinate, there is nothing to convert
+   *
+   * @return this coordinate
+   */
+  @Override
+  public SphericCoordinate asSphericCoordinate() {
+    return this;
+  }
+
+  /**
+   * Sets the cartesian counterpart if it is not known yet
+   *
+   * @param coordinate this coordinate was converted from
+   */
+  void linkCartesianCoordinate(CartesianCoordinate coordinate) {
+    if (cartesianCoordinate == null) {
+      cartesianCoordinate = coordinate;
+    }
+  }
+
   @Override
   public String toString() {
     return "SphericCoordinate{" +
@@ -142,7 +142,7 @@ public class User extends Client {
         addAction("initialize user").
         addParameter("id", id).
         addParameter("name", nickName).
-        addParameter("E-Mail", emailAddress.asString()).toString());
+        addParameter("E-Mail", emailAddress.asString()));
     incWriteCount();
   }
 
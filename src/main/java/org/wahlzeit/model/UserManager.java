@@ -25,10 +25,18 @@ import com.googlecode.objectify.Work;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 import org.wahlzeit.services.EmailAddress;
 import org.wahlzeit.services.LogBuilder;
+import org.wahlzeit.services.OfyService;
 import org.wahlzeit.services.mailing.EmailService;
 import org.wahlzeit.services.mailing.EmailServiceManager;
 
@@ -52,11 +60,61 @@ public class UserManager extends ClientManager {
   );
 
 
+  /**
+   * Default maximum number of users kept in memory when loading on demand
+   */
+  public static final int DEFAULT_MAX_CACHED_USERS = 1000;
+
   /**
    *
    */
   protected static UserManager instance;
 
+  /**
+   * If true, users are loaded from the datastore on first access instead of all at startup
+   */
+  protected volatile boolean isLoadingOnDemand = true;
+
+  /**
+   * Maximum number of users saved in one datastore call
+   */
+  protected static final int SAVE_BATCH_SIZE = 500;
+
+  /**
+   * If true, all users carry the index of their nickname, which loading on demand relies on
+   */
+  protected volatile boolean isNickNameIndexed = false;
+
+  /**
+   * Users in memory with the time of their last access. A lookup only sets that time, the least
+   * recently used users are evicted when a user is added beyond the limit.
+   */
+  protected final ConcurrentMap<String, RecentUser> recentUsers =
+      new ConcurrentHashMap<String, RecentUser>();
+
+  /**
+   * Held by the thread evicting users, others do not wait for it
+   */
+  protected final ReentrantLock evictionLock = new ReentrantLock();
+
+  protected volatile int maxCachedUsers = DEFAULT_MAX_CACHED_USERS;
+
+  /**
+   * Maximum number of remembered ids without a user
+   */
+  protected static final int MAX_MISSING_USERS = 1000;
+
+  /**
+   * Time an id without a user is remembered; users created by other instances are found after it
+   */
+  protected static final long MISSING_USER_TTL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  /**
+   * Ids which were not found in the datastore with the time they expire, so unknown ids are not
+   * looked up on every request
+   */
+  protected final ConcurrentMap<String, Long> missingUsers = new ConcurrentHashMap<String, Long>();
+
   /**
    *
    */
@@ -73,8 +131,94 @@ public class UserManager extends ClientManager {
     return instance;
   }
 
+  /**
+   * Loads all users unless they are loaded on demand. Users are loaded on demand only once their
+   * nicknames are indexed, as the nicknames of users not in memory are looked up by that index.
+   */
   public void init() {
-    loadExistingUsers();
+    if (isLoadingOnDemand && !isNickNameIndexed) {
+      indexNickNames();
+    }
+
+    if (isLoadingOnDemand && isNickNameIndexed) {
+      log.info(LogBuilder.createSystemMessage().addMessage("loading clients on demand"));
+    } else {
+      isLoadingOnDemand = false;
+      loadExistingUsers();
+    }
+  }
+
+  /**
+   * Saves all users once, so users saved before their nickname was indexed get that index
+   *
+   * @methodtype command
+   */
+  protected void indexNickNames() {
+    try {
+      int count = ObjectifyService.run(new Work<Integer>() {
+        @Override
+        public Integer run() {
+          List<User> users = new ArrayList<User>();
+          readObjects(users, User.class);
+          for (int i = 0; i < users.size(); i += SAVE_BATCH_SIZE) {
+            List<User> batch = users.subList(i, Math.min(users.size(), i + SAVE_BATCH_SIZE));
+            OfyService.ofy().save().entities(batch).now();
+          }
+          return users.size();
+        }
+      });
+
+      isNickNameIndexed = true;
+      GlobalsManager.getInstance().saveGlobals();
+      log.info(LogBuilder.createSystemMessage().
+          addAction("index nicknames").
+          addParameter("saved users", count));
+    } catch (RuntimeException ex) {
+      log.warning(LogBuilder.createSystemMessage().
+          addException("cannot index nicknames, loading all users", ex));
+    }
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setNickNameIndexed(boolean isNickNameIndexed) {
+    this.isNickNameIndexed = isNickNameIndexed;
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  public boolean isNickNameIndexed() {
+    return isNickNameIndexed;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setLoadingOnDemand(boolean isLoadingOnDemand) {
+    this.isLoadingOnDemand = isLoadingOnDemand;
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  public boolean isLoadingOnDemand() {
+    return isLoadingOnDemand;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setMaxCachedUsers(int maxCachedUsers) {
+    this.maxCachedUsers = maxCachedUsers;
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int getMaxCachedUsers() {
+    return maxCachedUsers;
   }
 
   /**
@@ -92,15 +236,14 @@ public class UserManager extends ClientManager {
             doAddClient(user);
           } else {
             log.config(
-                LogBuilder.createSystemMessage().addParameter("user has been loaded", user.getId())
-                    .toString());
+                LogBuilder.createSystemMessage().addParameter("user has been loaded", user.getId()));
           }
         }
         return null;
       }
     });
 
-    log.info(LogBuilder.createSystemMessage().addMessage("loaded all clients").toString());
+    log.info(LogBuilder.createSystemMessage().addMessage("loaded all clients"));
   }
 
   /**
@@ -146,7 +289,7 @@ public class UserManager extends ClientManager {
     if (result != null) {
       User current = getUserById(result.getId());
       if (current == null) {
-        doAddClient(result);
+        result = addLoadedUser(result);
       } else {
         result = current;
       }
@@ -155,6 +298,267 @@ public class UserManager extends ClientManager {
     return result;
   }
 
+  /**
+   * Looks up the client in memory and, when loading on demand, in the datastore
+   *
+   * @methodtype get
+   * @methodproperty primitive
+   */
+  @Override
+  protected Client doGetClientById(String name) {
+    Client result = super.doGetClientById(name);
+    if (result instanceof User) {
+      touchUser((User) result);
+    } else if (result == null && isLoadingOnDemand && isUserId(name) && !isMissingUser(name)) {
+      result = loadUser(name);
+      if (result == null) {
+        addMissingUser(name);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @methodtype set
+   * @methodproperty primitive
+   */
+  @Override
+  protected void doAddClient(Client client) {
+    super.doAddClient(client);
+    missingUsers.remove(client.getId());
+    if (client instanceof User) {
+      addRecentUser((User) client);
+    }
+  }
+
+  /**
+   * @methodtype command
+   */
+  @Override
+  public void saveClient(Client client) {
+    super.saveClient(client);
+    missingUsers.remove(client.getId());
+  }
+
+  /**
+   * @methodtype set
+   */
+  @Override
+  public void removeClient(Client client) {
+    super.removeClient(client);
+    forgetUser(client);
+  }
+
+  /**
+   * @methodtype set
+   * @methodproperty primitive
+   */
+  @Override
+  protected void doDeleteClient(Client client) {
+    super.doDeleteClient(client);
+    forgetUser(client);
+  }
+
+  /**
+   * Checks the datastore as well, as the nicknames of users not in memory are unknown
+   *
+   * @methodtype command
+   */
+  @Override
+  protected void reserveNickname(String nickName) throws IllegalArgumentException {
+    super.reserveNickname(nickName);
+    if (isLoadingOnDemand && isUserId(nickName)
+        && readObject(User.class, Client.NICK_NAME, nickName) != null) {
+      releaseNickname(nickName);
+      throw new IllegalArgumentException("Nickname " + nickName + " is already used.");
+    }
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  protected boolean isUserId(String name) {
+    return name != null && !name.startsWith(Guest.GUEST_PREFIX);
+  }
+
+  /**
+   * Loads the user with the given id from the datastore
+   *
+   * @return the user, null if there is none
+   */
+  protected User loadUser(String id) {
+    Client client = OfyService.ofy().load().type(Client.class).parent(applicationRootKey).id(id)
+        .now();
+    if (!(client instanceof User)) {
+      return null;
+    }
+
+    log.config(LogBuilder.createSystemMessage().addParameter("loaded user", id));
+    return addLoadedUser((User) client);
+  }
+
+  /**
+   * Restores the guest of a session whose client is not in memory any more, e.g. after a restart
+   * of the instance. Guests kept in memory only and clients which do not exist any more, like
+   * deleted users, are replaced by a new guest.
+   *
+   * @param id of the lost guest
+   * @return the persisted guest or a new one
+   */
+  public Client restoreGuest(String id) {
+    assertIsNonNullArgument(id, "guest id");
+
+    if (!isUserId(id)) {
+      Client client = OfyService.ofy().load().type(Client.class).parent(applicationRootKey).id(id)
+          .now();
+      if (client instanceof Guest) {
+        Client current = idClientMap.putIfAbsent(id, client);
+        if (client.getNickName() != null) {
+          usedNicknames.add(client.getNickName());
+        }
+        log.config(LogBuilder.createSystemMessage().addParameter("restored guest", id));
+        return current == null ? client : current;
+      }
+    }
+
+    // the caller replaces the stale id of the session by the one of the new guest
+    Client result = new Guest();
+    log.info(LogBuilder.createSystemMessage().
+        addAction("replace lost client by new guest").
+        addParameter("lost client", id).
+        addParameter("new guest", result.getId()));
+    return result;
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  protected boolean isMissingUser(String id) {
+    Long expiry = missingUsers.get(id);
+    if (expiry == null) {
+      return false;
+    } else if (expiry - System.nanoTime() > 0) {
+      return true;
+    }
+    missingUsers.remove(id, expiry);
+    return false;
+  }
+
+  /**
+   * Remembers that there is no user with the given id for a short time. Expired ids are dropped
+   * when the limit is reached, further ids are not remembered while it still is.
+   *
+   * @methodtype command
+   */
+  protected void addMissingUser(String id) {
+    long now = System.nanoTime();
+    if (missingUsers.size() >= MAX_MISSING_USERS) {
+      for (Iterator<Long> i = missingUsers.values().iterator(); i.hasNext(); ) {
+        if (i.next() - now <= 0) {
+          i.remove();
+        }
+      }
+      if (missingUsers.size() >= MAX_MISSING_USERS) {
+        return;
+      }
+    }
+    missingUsers.put(id, now + MISSING_USER_TTL_NANOS);
+  }
+
+  /**
+   * Registers a user read from the datastore, unless another thread registered it first
+   *
+   * @return the registered user
+   */
+  protected User addLoadedUser(User user) {
+    Client current = idClientMap.putIfAbsent(user.getId(), user);
+    if (current instanceof User) {
+      user = (User) current;
+    }
+    if (user.getNickName() != null) {
+      usedNicknames.add(user.getNickName());
+    }
+    addRecentUser(user);
+    return user;
+  }
+
+  /**
+   * @methodtype command
+   */
+  protected void forgetUser(Client client) {
+    recentUsers.remove(client.getId());
+  }
+
+  /**
+   * Marks the user as recently used, without taking a lock
+   *
+   * @methodtype command
+   */
+  protected void touchUser(User user) {
+    if (!isLoadingOnDemand) {
+      return;
+    }
+
+    RecentUser recentUser = recentUsers.get(user.getId());
+    if (recentUser != null && recentUser.user == user) {
+      recentUser.lastAccess = System.nanoTime();
+    } else {
+      recentUsers.put(user.getId(), new RecentUser(user));
+    }
+  }
+
+  /**
+   * Marks the user as recently used and evicts users if there are too many
+   *
+   * @methodtype command
+   */
+  protected void addRecentUser(User user) {
+    touchUser(user);
+    if (isLoadingOnDemand && recentUsers.size() > maxCachedUsers) {
+      evictUsers(user);
+    }
+  }
+
+  /**
+   * Evicts the least recently used users down to a tenth below the limit, so the users are not
+   * sorted again on every added user. Users with unsaved changes or an HTTP session stay in memory.
+   *
+   * @param keptUser user to keep in any case
+   */
+  protected void evictUsers(User keptUser) {
+    if (!evictionLock.tryLock()) {
+      return; // another thread evicts users already
+    }
+
+    try {
+      int excess = recentUsers.size() - (maxCachedUsers - maxCachedUsers / 10);
+      if (recentUsers.size() <= maxCachedUsers) {
+        return;
+      }
+
+      List<RecentUser> candidates = new ArrayList<RecentUser>(recentUsers.values());
+      Collections.sort(candidates, new Comparator<RecentUser>() {
+        @Override
+        public int compare(RecentUser first, RecentUser second) {
+          return Long.compare(first.lastAccess, second.lastAccess);
+        }
+      });
+
+      for (int i = 0; i < candidates.size() && excess > 0; i++) {
+        User candidate = candidates.get(i).user;
+        if (candidate != keptUser && !candidate.isDirty()
+            && candidate.getHttpSessionId() == null
+            && recentUsers.remove(candidate.getId(), candidates.get(i))) {
+          idClientMap.remove(candidate.getId(), candidate);
+          releaseNickname(candidate.getNickName());
+          excess--;
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
   /**
    * @methodtype get
    */
@@ -167,4 +571,17 @@ public class UserManager extends ClientManager {
     }
   }
 
+  /**
+   * A user in memory with the time of its last access
+   */
+  protected static class RecentUser {
+
+    protected final User user;
+    protected volatile long lastAccess = System.nanoTime();
+
+    protected RecentUser(User user) {
+      this.user = user;
+    }
+  }
+
 }
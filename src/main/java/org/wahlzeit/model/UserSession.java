@@ -21,10 +21,7 @@
 package org.wahlzeit.model;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.logging.Logger;
 import javax.servlet.http.HttpSession;
 import org.wahlzeit.services.Language;
@@ -34,12 +31,19 @@ import org.wahlzeit.utils.HtmlUtil;
 /**
  * Wrapper class for {@link HttpSession} to provide a readable interface for Wahlzeit.
  *
- * {@link HttpSession}s are managed automatically by Google App Engine.
+ * {@link HttpSession}s are managed automatically by Google App Engine. All properties are kept in
+ * one {@link UserSessionState}, which is set in the <code>HttpSession</code> by {@link
+ * #saveState()} at the end of a request if it has changed.
  */
 public class UserSession extends Session implements Serializable {
 
   /**
-   * Keys to store the according properties in the <code>HttpSession</code>
+   * Key to store the state in the <code>HttpSession</code>
+   */
+  public static final String STATE = "state";
+
+  /**
+   * Names of the according properties
    */
   public static final String PHOTO_CASE = "photoCase";
   public static final String PHOTO_FILTER = "photoFilter";
@@ -49,7 +53,6 @@ public class UserSession extends Session implements Serializable {
   public static final String CLIENT_ID = "clientId";
   public static final String SITE_URL = "siteUrl";
   public static final String SAVED_ARGS = "savedArgs";
-  public static final String INITIALIZED = "initialized";
   public static final String ANONYMOUS_CLIENT = "anon";
 
 
@@ -57,6 +60,11 @@ public class UserSession extends Session implements Serializable {
 
   protected HttpSession httpSession;
 
+  /**
+   * State of the session, read from the <code>HttpSession</code> on first use
+   */
+  protected UserSessionState state;
+
   /**
    *
    */
@@ -64,9 +72,9 @@ public class UserSession extends Session implements Serializable {
       String myLanguage) {
     httpSession = myHttpSession;
     initialize(myName);
-    if (httpSession.getAttribute(INITIALIZED) == null) {
-      httpSession.setAttribute(SITE_URL, mySiteUrl);
-      httpSession.setAttribute(PHOTO_FILTER, PhotoFactory.getInstance().createPhotoFilter());
+    if (!getState().isInitialized()) {
+      getState().setSiteUrl(mySiteUrl);
+      getState().setPhotoFilter(PhotoFactory.getInstance().createPhotoFilter());
 
       setClient(new Guest());
       try {
@@ -79,8 +87,56 @@ public class UserSession extends Session implements Serializable {
       clearDisplayedPhotos();
       clearPraisedPhotos();
       clearSavedArgs();
-      httpSession.setAttribute(INITIALIZED, INITIALIZED);
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  protected UserSessionState getState() {
+    if (state == null) {
+      state = (UserSessionState) httpSession.getAttribute(STATE);
+      if (state == null) {
+        state = new UserSessionState();
+      }
+    }
+    return state;
+  }
+
+  /**
+   * Attaches a cached session to the <code>HttpSession</code> of a new request. The cached state
+   * is kept unless the session has been saved by another instance in the meantime. A cached
+   * session is shared by the concurrent requests of its <code>HttpSession</code>, so a request
+   * holds the lock of the session from attaching it until it is done with it.
+   *
+   * @methodtype set
+   */
+  public synchronized void attach(HttpSession myHttpSession) {
+    httpSession = myHttpSession;
+    if (state == null) {
+      return;
+    }
+
+    UserSessionState current = (UserSessionState) httpSession.getAttribute(STATE);
+    if (current == null) {
+      // e.g. a lost write, the cached state is written again
+      state.setDirty();
+    } else if (current != state && current.getWriteToken() != state.getWriteToken()) {
+      state = current;
+    }
+  }
 
+  /**
+   * Sets the state in the <code>HttpSession</code> if it has changed, so App Engine writes the
+   * session at most once per request and not at all for requests which do not change it
+   *
+   * @methodtype command
+   */
+  public synchronized void saveState() {
+    if (state != null && state.isDirty()) {
+      state.renewWriteToken();
+      httpSession.setAttribute(STATE, state);
+      state.resetDirty();
     }
   }
 
@@ -88,10 +144,9 @@ public class UserSession extends Session implements Serializable {
    *
    */
   public void clearDisplayedPhotos() {
-    PhotoFilter photoFilter = (PhotoFilter) httpSession.getAttribute(PHOTO_FILTER);
+    PhotoFilter photoFilter = getState().getPhotoFilterForUpdate();
     if (photoFilter != null) {
       photoFilter.clear();
-      httpSession.setAttribute(PHOTO_FILTER, photoFilter);
     } else {
       log.warning("No PhotoFilter found in HttpSession to clear.");
     }
@@ -101,14 +156,14 @@ public class UserSession extends Session implements Serializable {
    *
    */
   public void clearPraisedPhotos() {
-    httpSession.setAttribute(PRAISED_PHOTOS, new HashSet<Photo>());
+    getState().clearPraisedPhotos();
   }
 
   /**
    * @methodtype init
    */
   public void clearSavedArgs() {
-    httpSession.setAttribute(SAVED_ARGS, new HashMap<String, Object>());
+    getState().clearSavedArgs();
   }
 
   /**
@@ -123,39 +178,46 @@ public class UserSession extends Session implements Serializable {
    * @methodtype get
    */
   public String getSiteUrl() {
-    return (String) httpSession.getAttribute(SITE_URL);
+    return getState().getSiteUrl();
   }
 
   @Override
   protected void notifyNameChanged() {
-    httpSession.setAttribute(Session.NAME, super.getName());
+    getState().setName(super.getName());
   }
 
   /**
    * @methodtype convert Returns some signifier of current user
    */
   public String getClientId() {
-    return (String) httpSession.getAttribute(CLIENT_ID);
+    return getState().getClientId();
   }
 
   @Override
   protected void notifyProcessingTimeChanged() {
-    httpSession.setAttribute(Session.PROCESSING_TIME, super.getProcessingTime());
+    getState().setProcessingTime(super.getProcessingTime());
   }
 
   /**
    * @methodtype get
    */
   public Client getClient() {
-    String clientName = (String) httpSession.getAttribute(CLIENT_ID);
-    return UserManager.getInstance().getClientById(clientName);
+    String clientName = getState().getClientId();
+    Client result = UserManager.getInstance().getClientById(clientName);
+    if (result == null && clientName != null) {
+      // guests kept in memory only do not survive a restart of the instance
+      result = UserManager.getInstance().restoreGuest(clientName);
+      getState().setClientId(result.getId());
+      UserManager.getInstance().addHttpSessionIdToClientMapping(httpSession.getId(), result);
+    }
+    return result;
   }
 
   /**
    * @methodtype set
    */
   public void setClient(Client newClient) {
-    String previousClientId = (String) httpSession.getAttribute(CLIENT_ID);
+    String previousClientId = getState().getClientId();
     if (previousClientId != null) {
       Client previousClient = UserManager.getInstance().getClientById(previousClientId);
       if (previousClient instanceof Guest) {
@@ -163,38 +225,43 @@ public class UserSession extends Session implements Serializable {
       }
     }
 
-    httpSession.setAttribute(CLIENT_ID, newClient.getId());
+    getState().setClientId(newClient.getId());
     UserManager.getInstance().addHttpSessionIdToClientMapping(httpSession.getId(), newClient);
   }
 
   /**
+   * Returns the filter for reading; modify it through {@link #getPhotoFilterForUpdate()}
    *
+   * @methodtype get
    */
   public PhotoFilter getPhotoFilter() {
-    return (PhotoFilter) httpSession.getAttribute(PHOTO_FILTER);
+    return getState().getPhotoFilter();
+  }
+
+  /**
+   * Returns the filter of the session, which is saved at the end of the request as the caller is
+   * going to modify it
+   *
+   * @methodtype get
+   */
+  public PhotoFilter getPhotoFilterForUpdate() {
+    return getState().getPhotoFilterForUpdate();
   }
 
   /**
    * @methodtype boolean query
    */
   public boolean hasPraisedPhoto(Photo photo) {
-    Set praisedPhotos = (Set) httpSession.getAttribute(PRAISED_PHOTOS);
-    if (praisedPhotos != null) {
-      return praisedPhotos.contains(photo);
-    } else {
-      log.warning("Found no set of praised Photos to search for Photo.");
-      return false;
-    }
+    return photo != null && getState().hasPraisedPhoto(photo.getId());
   }
 
   /**
    *
    */
   public void addProcessedPhoto(Photo photo) {
-    PhotoFilter photoFilter = (PhotoFilter) httpSession.getAttribute(PHOTO_FILTER);
+    PhotoFilter photoFilter = getState().getPhotoFilterForUpdate();
     if (photoFilter != null) {
       photoFilter.addProcessedPhoto(photo);
-      httpSession.setAttribute(PHOTO_FILTER, photoFilter);
     } else {
       log.warning("No PhotoFilter found in HttpSession to add Photo.");
     }
@@ -204,70 +271,70 @@ public class UserSession extends Session implements Serializable {
    * @methodtype get
    */
   public String getHeading() {
-    return (String) httpSession.getAttribute(HEADING);
+    return getState().getHeading();
   }
 
   /**
    * @methodtype set
    */
   public void setHeading(String myHeading) {
-    httpSession.setAttribute(HEADING, myHeading);
+    getState().setHeading(myHeading);
   }
 
   /**
    * @methodtype get
    */
   public String getMessage() {
-    return (String) httpSession.getAttribute(MESSAGE);
+    return getState().getMessage();
   }
 
   /**
    * @methodtype set
    */
   public void setMessage(String myMessage) {
-    httpSession.setAttribute(MESSAGE, HtmlUtil.asP(myMessage));
+    getState().setMessage(HtmlUtil.asP(myMessage));
   }
 
   /**
    * @methodtype set
    */
   public void setTwoLineMessage(String msg1, String msg2) {
-    httpSession.setAttribute(MESSAGE, HtmlUtil.asP(msg1) + HtmlUtil.asP(msg2));
+    getState().setMessage(HtmlUtil.asP(msg1) + HtmlUtil.asP(msg2));
   }
 
   /**
    * @methodtype set
    */
   public void setThreeLineMessage(String msg1, String msg2, String msg3) {
-    httpSession.setAttribute(MESSAGE, HtmlUtil.asP(msg1) + HtmlUtil.asP(msg2) + HtmlUtil.asP(msg3));
+    getState().setMessage(HtmlUtil.asP(msg1) + HtmlUtil.asP(msg2) + HtmlUtil.asP(msg3));
   }
 
   /**
    * @methodtype get
    */
   public PhotoId getPhotoId() {
-    return (PhotoId) httpSession.getAttribute(Photo.ID);
+    return getState().getPhotoId();
   }
 
   /**
    * @methodtype set
    */
   public void setPhotoId(PhotoId newPhotoId) {
-    httpSession.setAttribute(Photo.ID, newPhotoId);
+    getState().setPhotoId(newPhotoId);
   }
 
   /**
    * @methodtype get
    */
   public PhotoCase getPhotoCase() {
-    return (PhotoCase) httpSession.getAttribute(PHOTO_CASE);
+    return getState().getPhotoCase();
   }
 
   /**
    * @methodtype set
    */
   public void setPhotoCase(PhotoCase photoCase) {
-    httpSession.setAttribute(PHOTO_CASE, photoCase);
+    getState().setPhotoCase(photoCase);
   }
 
   /**
@@ -287,8 +354,7 @@ public class UserSession extends Session implements Serializable {
    * @methodtype get
    */
   public Object getSavedArg(String key) {
-    Map<String, Object> savedArgs = (Map<String, Object>) httpSession.getAttribute(SAVED_ARGS);
-    return savedArgs.get(key);
+    return getState().getSavedArg(key);
   }
 
   /**
@@ -333,16 +399,14 @@ public class UserSession extends Session implements Serializable {
    * @methodtype set
    */
   public void setSavedArg(String key, Object value) {
-    Map<String, Object> savedArgs = getSavedArgs();
-    savedArgs.put(key, value);
-    httpSession.setAttribute(SAVED_ARGS, savedArgs);
+    getState().setSavedArg(key, value);
   }
 
   /**
-   * @methodtype get
+   * @return read-only view of the saved arguments, change them through {@link #setSavedArg}
    */
   public Map<String, Object> getSavedArgs() {
-    return (Map<String, Object>) httpSession.getAttribute(SAVED_ARGS);
+    return getState().getSavedArgs();
   }
 
 }
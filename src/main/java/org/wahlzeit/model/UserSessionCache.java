@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import javax.servlet.http.HttpSession;
+import org.wahlzeit.utils.ParameterUtil;
+
+/**
+ * Keeps the {@link UserSession}s of recent requests by the id of their HTTP session, so a request
+ * of a known session reuses its object instead of building a new one. The cache is bounded, the
+ * least recently used sessions are evicted first. A session expires like its HTTP session after
+ * the maximum inactive interval.
+ */
+public class UserSessionCache {
+
+  /**
+   * Default maximum number of cached sessions
+   */
+  public static final int DEFAULT_MAX_SESSIONS = 10000;
+
+  /**
+   *
+   */
+  protected static final UserSessionCache instance = new UserSessionCache();
+
+  /**
+   * Cached sessions in access order, guarded by this
+   */
+  protected final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+  protected int maxSessions = DEFAULT_MAX_SESSIONS;
+
+  /**
+   * @methodtype get
+   */
+  public static UserSessionCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Looks up the session of the HTTP session; the caller attaches it while holding its lock
+   *
+   * @return the cached session, null if there is none or it has expired
+   * @see UserSession#attach(HttpSession)
+   */
+  public UserSession get(HttpSession httpSession) {
+    ParameterUtil.assertNotNull(httpSession, "httpSession");
+
+    synchronized (this) {
+      Entry entry = entries.get(httpSession.getId());
+      if (entry == null) {
+        return null;
+      }
+
+      long now = getCurrentTime();
+      if (entry.isExpired(now)) {
+        entries.remove(httpSession.getId());
+        return null;
+      }
+
+      entry.touch(now, httpSession.getMaxInactiveInterval());
+      return entry.userSession;
+    }
+  }
+
+  /**
+   * Adds the session of the HTTP session, evicts expired and least recently used sessions
+   */
+  public synchronized void put(HttpSession httpSession, UserSession userSession) {
+    ParameterUtil.assertNotNull(httpSession, "httpSession");
+    ParameterUtil.assertNotNull(userSession, "userSession");
+
+    long now = getCurrentTime();
+    Entry entry = new Entry(userSession);
+    entry.touch(now, httpSession.getMaxInactiveInterval());
+    entries.put(httpSession.getId(), entry);
+
+    Iterator<Entry> eldest = entries.values().iterator();
+    while (eldest.hasNext()) {
+      Entry candidate = eldest.next();
+      if (entries.size() <= maxSessions && !candidate.isExpired(now)) {
+        break;
+      }
+      if (candidate != entry) {
+        eldest.remove();
+      }
+    }
+  }
+
+  /**
+   * Drops the session, e.g. when its HTTP session is deleted
+   *
+   * @methodtype command
+   */
+  public synchronized void remove(String httpSessionId) {
+    entries.remove(httpSessionId);
+  }
+
+  /**
+   * @methodtype get
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @methodtype get
+   */
+  public synchronized int getMaxSessions() {
+    return maxSessions;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public synchronized void setMaxSessions(int maxSessions) {
+    ParameterUtil.assertNumberInRange((double) maxSessions, 1.0, (double) Integer.MAX_VALUE,
+        "maxSessions");
+    this.maxSessions = maxSessions;
+  }
+
+  /**
+   * @methodtype get
+   */
+  protected long getCurrentTime() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * A cached session with the time it expires
+   */
+  protected static class Entry {
+
+    protected final UserSession userSession;
+    protected long expiresAt;
+
+    protected Entry(UserSession userSession) {
+      this.userSession = userSession;
+    }
+
+    /**
+     * @param maxInactiveInterval in seconds, not positive for sessions which never expire
+     */
+    protected void touch(long now, int maxInactiveInterval) {
+      expiresAt = maxInactiveInterval > 0 ? now + 1000L * maxInactiveInterval : Long.MAX_VALUE;
+    }
+
+    protected boolean isExpired(long now) {
+      return now >= expiresAt;
+    }
+  }
+
+}
@@ -0,0 +1,527 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.model;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * All state of a {@link UserSession}, stored as one attribute of the HTTP session. App Engine
+ * writes the session to the datastore and memcache whenever an attribute is set, so the state
+ * tracks its changes and is only set again if it is dirty.
+ *
+ * The state is written in a compact binary form: a version, a bitmap of the present fields, photo
+ * ids as ints and the praised photos as a bit set of their ids. Readers accept all versions up to
+ * their own, new fields are appended and flagged in the bitmap or read depending on the version.
+ */
+public class UserSessionState implements Externalizable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Version of the encoding written by this class
+   */
+  protected static final int VERSION = 2;
+
+  /**
+   * Bits of the present fields
+   */
+  protected static final int HAS_NAME = 1;
+  protected static final int HAS_SITE_URL = 1 << 1;
+  protected static final int HAS_CLIENT_ID = 1 << 2;
+  protected static final int HAS_HEADING = 1 << 3;
+  protected static final int HAS_MESSAGE = 1 << 4;
+  protected static final int HAS_PHOTO_ID = 1 << 5;
+  protected static final int HAS_PHOTO_CASE = 1 << 6;
+  protected static final int HAS_PHOTO_FILTER = 1 << 7;
+  protected static final int HAS_PRAISED_PHOTOS = 1 << 8;
+  protected static final int HAS_SAVED_ARGS = 1 << 9;
+
+  /**
+   * Tags of saved argument values
+   */
+  protected static final int STRING_VALUE = 0;
+  protected static final int OBJECT_VALUE = 1;
+
+  protected String name;
+  protected String siteUrl;
+  protected String clientId;
+  protected String heading;
+  protected String message;
+  protected PhotoId photoId;
+  protected PhotoCase photoCase;
+  protected PhotoFilter photoFilter;
+  protected BitSet praisedPhotoIds = new BitSet();
+  protected Map<String, Object> savedArgs = new HashMap<String, Object>();
+
+  /**
+   * Accumulated over the requests of a page, but not worth a write of its own
+   */
+  protected long processingTime = 0;
+
+  /**
+   * Random token renewed whenever the state is set in the HTTP session, since version 2. Another
+   * token in the HTTP session means another instance has written the session meanwhile.
+   */
+  protected long writeToken = 0;
+
+  /**
+   * Changed since the state was last set in the HTTP session
+   */
+  protected transient boolean isDirty = true;
+
+  /**
+   * Creates an empty, dirty state; public for deserialization
+   */
+  public UserSessionState() {
+    // do nothing
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  public boolean isDirty() {
+    return isDirty;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setDirty() {
+    isDirty = true;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void resetDirty() {
+    isDirty = false;
+  }
+
+  /**
+   * @methodtype get
+   */
+  public long getWriteToken() {
+    return writeToken;
+  }
+
+  /**
+   * Sets a new token, unlike a counter unique among the instances writing the same session
+   *
+   * @methodtype set
+   */
+  public void renewWriteToken() {
+    long newToken;
+    do {
+      newToken = ThreadLocalRandom.current().nextLong();
+    } while (newToken == 0 || newToken == writeToken);
+    writeToken = newToken;
+  }
+
+  /**
+   * A state is initialized once it knows its client
+   *
+   * @methodtype boolean-query
+   */
+  public boolean isInitialized() {
+    return clientId != null;
+  }
+
+  /**
+   * @methodtype get
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setName(String name) {
+    if (!equal(this.name, name)) {
+      this.name = name;
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public String getSiteUrl() {
+    return siteUrl;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setSiteUrl(String siteUrl) {
+    if (!equal(this.siteUrl, siteUrl)) {
+      this.siteUrl = siteUrl;
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public String getClientId() {
+    return clientId;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setClientId(String clientId) {
+    if (!equal(this.clientId, clientId)) {
+      this.clientId = clientId;
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public String getHeading() {
+    return heading;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setHeading(String heading) {
+    if (!equal(this.heading, heading)) {
+      this.heading = heading;
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setMessage(String message) {
+    if (!equal(this.message, message)) {
+      this.message = message;
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public PhotoId getPhotoId() {
+    return photoId;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setPhotoId(PhotoId photoId) {
+    if (!equal(this.photoId, photoId)) {
+      this.photoId = photoId;
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public PhotoCase getPhotoCase() {
+    return photoCase;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setPhotoCase(PhotoCase photoCase) {
+    if (this.photoCase != photoCase) {
+      this.photoCase = photoCase;
+      setDirty();
+    }
+  }
+
+  /**
+   * Returns the filter for reading; modify it through {@link #getPhotoFilterForUpdate()}
+   *
+   * @methodtype get
+   */
+  public PhotoFilter getPhotoFilter() {
+    return photoFilter;
+  }
+
+  /**
+   * Returns the filter and marks the state dirty, as the caller is going to modify the filter
+   *
+   * @methodtype get
+   */
+  public PhotoFilter getPhotoFilterForUpdate() {
+    setDirty();
+    return photoFilter;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setPhotoFilter(PhotoFilter photoFilter) {
+    this.photoFilter = photoFilter;
+    setDirty();
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  public boolean hasPraisedPhoto(PhotoId id) {
+    return id != null && praisedPhotoIds.get(id.asInt());
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void addPraisedPhoto(PhotoId id) {
+    if (!hasPraisedPhoto(id)) {
+      praisedPhotoIds.set(id.asInt());
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void clearPraisedPhotos() {
+    if (!praisedPhotoIds.isEmpty()) {
+      praisedPhotoIds.clear();
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public Object getSavedArg(String key) {
+    return savedArgs.get(key);
+  }
+
+  /**
+   * @return read-only view of the saved arguments
+   */
+  public Map<String, Object> getSavedArgs() {
+    return Collections.unmodifiableMap(savedArgs);
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setSavedArg(String key, Object value) {
+    Object oldValue = savedArgs.put(key, value);
+    if (oldValue == null || !oldValue.equals(value)) {
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void clearSavedArgs() {
+    if (!savedArgs.isEmpty()) {
+      savedArgs.clear();
+      setDirty();
+    }
+  }
+
+  /**
+   * @methodtype get
+   */
+  public long getProcessingTime() {
+    return processingTime;
+  }
+
+  /**
+   * Does not mark the state dirty, the time is written along with the next change
+   *
+   * @methodtype set
+   */
+  public void setProcessingTime(long processingTime) {
+    this.processingTime = processingTime;
+  }
+
+  @Override
+  public void writeExternal(ObjectOutput out) throws IOException {
+    out.writeByte(VERSION);
+
+    int fields = (name != null ? HAS_NAME : 0)
+        | (siteUrl != null ? HAS_SITE_URL : 0)
+        | (clientId != null ? HAS_CLIENT_ID : 0)
+        | (heading != null ? HAS_HEADING : 0)
+        | (message != null ? HAS_MESSAGE : 0)
+        | (photoId != null ? HAS_PHOTO_ID : 0)
+        | (photoCase != null ? HAS_PHOTO_CASE : 0)
+        | (photoFilter != null ? HAS_PHOTO_FILTER : 0)
+        | (!praisedPhotoIds.isEmpty() ? HAS_PRAISED_PHOTOS : 0)
+        | (!savedArgs.isEmpty() ? HAS_SAVED_ARGS : 0);
+    out.writeInt(fields);
+
+    writeString(out, name);
+    writeString(out, siteUrl);
+    writeString(out, clientId);
+    writeString(out, heading);
+    writeString(out, message);
+    if (photoId != null) {
+      out.writeInt(photoId.asInt());
+    }
+    if (photoCase != null) {
+      out.writeObject(photoCase);
+    }
+    if (photoFilter != null) {
+      out.writeObject(photoFilter);
+    }
+    if (!praisedPhotoIds.isEmpty()) {
+      long[] words = praisedPhotoIds.toLongArray();
+      out.writeInt(words.length);
+      for (long word : words) {
+        out.writeLong(word);
+      }
+    }
+    if (!savedArgs.isEmpty()) {
+      writeSavedArgs(out);
+    }
+    out.writeLong(processingTime);
+    out.writeLong(writeToken);
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void writeSavedArgs(ObjectOutput out) throws IOException {
+    out.writeInt(savedArgs.size());
+    for (Map.Entry<String, Object> entry : savedArgs.entrySet()) {
+      writeString(out, entry.getKey());
+      Object value = entry.getValue();
+      if (value instanceof String) {
+        out.writeByte(STRING_VALUE);
+        writeString(out, (String) value);
+      } else {
+        out.writeByte(OBJECT_VALUE);
+        out.writeObject(value);
+      }
+    }
+  }
+
+  @Override
+  public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+    int version = in.readUnsignedByte();
+    if (version < 1 || version > VERSION) {
+      throw new InvalidObjectException("unsupported session state version " + version);
+    }
+
+    int fields = in.readInt();
+    name = (fields & HAS_NAME) != 0 ? readString(in) : null;
+    siteUrl = (fields & HAS_SITE_URL) != 0 ? readString(in) : null;
+    clientId = (fields & HAS_CLIENT_ID) != 0 ? readString(in) : null;
+    heading = (fields & HAS_HEADING) != 0 ? readString(in) : null;
+    message = (fields & HAS_MESSAGE) != 0 ? readString(in) : null;
+    photoId = (fields & HAS_PHOTO_ID) != 0 ? PhotoId.getIdFromInt(in.readInt()) : null;
+    photoCase = (fields & HAS_PHOTO_CASE) != 0 ? (PhotoCase) in.readObject() : null;
+    photoFilter = (fields & HAS_PHOTO_FILTER) != 0 ? (PhotoFilter) in.readObject() : null;
+
+    praisedPhotoIds = new BitSet();
+    if ((fields & HAS_PRAISED_PHOTOS) != 0) {
+      long[] words = new long[in.readInt()];
+      for (int i = 0; i < words.length; i++) {
+        words[i] = in.readLong();
+      }
+      praisedPhotoIds = BitSet.valueOf(words);
+    }
+
+    savedArgs = new HashMap<String, Object>();
+    if ((fields & HAS_SAVED_ARGS) != 0) {
+      readSavedArgs(in);
+    }
+
+    processingTime = in.readLong();
+    writeToken = version >= 2 ? in.readLong() : 0;
+    isDirty = false;
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void readSavedArgs(ObjectInput in) throws IOException, ClassNotFoundException {
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      String key = readString(in);
+      int tag = in.readUnsignedByte();
+      if (tag == STRING_VALUE) {
+        savedArgs.put(key, readString(in));
+      } else if (tag == OBJECT_VALUE) {
+        savedArgs.put(key, in.readObject());
+      } else {
+        throw new InvalidObjectException("unknown saved argument tag " + tag);
+      }
+    }
+  }
+
+  /**
+   * Writes the string as length and UTF-8 bytes, nothing for null; unlike writeUTF it is not
+   * limited to 64 KB
+   *
+   * @methodtype helper
+   */
+  protected static void writeString(ObjectOutput out, String value) throws IOException {
+    if (value != null) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected static String readString(ObjectInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  protected static boolean equal(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+}
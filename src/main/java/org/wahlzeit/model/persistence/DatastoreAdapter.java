@@ -59,11 +59,11 @@ public class DatastoreAdapter extends ImageStorage {
       });
 
       log.config(
-          LogBuilder.createSystemMessage().addMessage("image successfully written").toString());
+          LogBuilder.createSystemMessage().addMessage("image successfully written"));
     } else {
       log.warning(LogBuilder.createSystemMessage().
           addMessage("did not get an Image type to store").
-          addParameter("image type", image.toString()).toString());
+          addParameter("image type", image.toString()));
     }
   }
 
@@ -79,15 +79,14 @@ public class DatastoreAdapter extends ImageStorage {
     });
 
     if (imageWrapper == null) {
-      log.info(LogBuilder.createSystemMessage().addMessage("does not exist!").toString());
+      log.info(LogBuilder.createSystemMessage().addMessage("does not exist!"));
     } else {
       result = imageWrapper.getImage();
       if (result != null) {
         log.config(
-            LogBuilder.createSystemMessage().addMessage("image successfully read").toString());
+            LogBuilder.createSystemMessage().addMessage("image successfully read"));
       } else {
-        log.warning(LogBuilder.createSystemMessage().addMessage("ImageWrapper contains no Image")
-            .toString());
+        log.warning(LogBuilder.createSystemMessage().addMessage("ImageWrapper contains no Image"));
       }
     }
     return result;
@@ -102,14 +101,13 @@ public class DatastoreAdapter extends ImageStorage {
     } catch (IOException e) {
       log.warning(
           LogBuilder.createSystemMessage()
-              .addException("IOException when checking for Image existance", e)
-              .toString());
+              .addException("IOException when checking for Image existance", e));
     }
     if (image != null) {
       result = true;
     }
     log.config(
-        LogBuilder.createSystemMessage().addParameter("does image exist", result).toString());
+        LogBuilder.createSystemMessage().addParameter("does image exist", result));
     return result;
   }
 
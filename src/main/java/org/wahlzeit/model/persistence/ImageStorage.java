@@ -35,7 +35,7 @@ public abstract class ImageStorage {
   public static void setInstance(ImageStorage newInstance) {
     log.config(LogBuilder.createSystemMessage().
         addAction("set ImageStorage instance").
-        addParameter("instance", newInstance).toString());
+        addParameter("instance", newInstance));
     instance = newInstance;
   }
 
@@ -59,7 +59,7 @@ public abstract class ImageStorage {
         addAction("write image to storage").
         addParameter("image", image).
         addParameter("photo id", photoIdAsString).
-        addParameter("size", size).toString());
+        addParameter("size", size));
 
     doWriteImage(image, photoIdAsString, size);
   }
@@ -90,7 +90,7 @@ public abstract class ImageStorage {
     log.config(LogBuilder.createSystemMessage().
         addAction("read image from storage").
         addParameter("photo id", photoIdAsString).
-        addParameter("size", size).toString());
+        addParameter("size", size));
 
     return doReadImage(photoIdAsString, size);
   }
@@ -121,7 +121,7 @@ public abstract class ImageStorage {
     log.config(LogBuilder.createSystemMessage().
         addAction("check if image exists in storage").
         addParameter("photo id", photoIdAsString).
-        addParameter("size", size).toString());
+        addParameter("size", size));
 
     return doDoesImageExist(photoIdAsString, size);
   }
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.wahlzeit.utils.ParameterUtil;
+
+/**
+ * Logging handler that takes log records off the request threads. Records are put into a bounded,
+ * lock-free ring buffer; a background writer passes them in batches to the target handlers and
+ * flushes these once per batch.
+ *
+ * If the buffer is full, records below {@link Level#WARNING} are dropped and counted, the writer
+ * reports the number of dropped records. Warnings and errors are published synchronously instead,
+ * so they are never lost. Without a running writer, e.g. if threads cannot be created, all records
+ * are published synchronously; so are all records once the writer has been interrupted.
+ *
+ * @see #install(Logger, ThreadFactory)
+ */
+public class AsyncLogHandler extends Handler {
+
+  /**
+   * Default number of buffered records
+   */
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  /**
+   * Maximum number of records passed to the targets before flushing them
+   */
+  protected static final int BATCH_SIZE = 256;
+
+  /**
+   * Time the writer waits for new records if the buffer is empty
+   */
+  protected static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  protected final Handler[] targets;
+  protected final RingBuffer buffer;
+
+  /**
+   * Number of records dropped since creation, and up to the last report
+   */
+  protected final AtomicLong droppedRecords = new AtomicLong();
+  protected long reportedDroppedRecords = 0;
+
+  protected volatile Thread writer = null;
+  protected volatile boolean isStopped = false;
+
+  /**
+   * @param capacity of the buffer, rounded up to a power of two
+   * @param targets handlers to publish the records to
+   */
+  public AsyncLogHandler(int capacity, Handler... targets) {
+    ParameterUtil.assertNumberInRange((double) capacity, 1.0, (double) (1 << 30), "capacity");
+    ParameterUtil.assertNotNull(targets, "targets");
+    this.targets = Arrays.copyOf(targets, targets.length);
+    this.buffer = new RingBuffer(capacity);
+    setLevel(Level.ALL);
+  }
+
+  /**
+   * Replaces the handlers of the logger by an asynchronous handler publishing to them
+   *
+   * @param logger usually the root logger
+   * @param threadFactory to create the writer with
+   * @return the installed handler
+   */
+  public static AsyncLogHandler install(Logger logger, ThreadFactory threadFactory) {
+    ParameterUtil.assertNotNull(logger, "logger");
+
+    Handler[] targets = logger.getHandlers();
+    AsyncLogHandler result = new AsyncLogHandler(DEFAULT_CAPACITY, targets);
+    for (Handler target : targets) {
+      logger.removeHandler(target);
+    }
+    logger.addHandler(result);
+    result.start(threadFactory);
+    return result;
+  }
+
+  /**
+   * Stops the handler and puts its targets back into the logger
+   */
+  public static void uninstall(Logger logger, AsyncLogHandler handler) {
+    logger.removeHandler(handler);
+    handler.stop();
+    for (Handler target : handler.targets) {
+      logger.addHandler(target);
+    }
+  }
+
+  /**
+   * Starts the background writer; the handler keeps publishing synchronously if that fails
+   *
+   * @methodtype command
+   */
+  public synchronized void start(ThreadFactory threadFactory) {
+    if (writer != null || isStopped) {
+      return;
+    }
+
+    try {
+      Thread thread = threadFactory.newThread(new Runnable() {
+        @Override
+        public void run() {
+          writeRecords();
+        }
+      });
+      thread.setName("log writer");
+      thread.setDaemon(true);
+      writer = thread;
+      thread.start();
+    } catch (RuntimeException ex) {
+      // e.g. a platform without background threads
+      writer = null;
+      reportError("cannot start log writer, logging synchronously", ex,
+          ErrorManager.GENERIC_FAILURE);
+    }
+  }
+
+  @Override
+  public void publish(LogRecord record) {
+    if (record == null || !isLoggable(record)) {
+      return;
+    }
+
+    if (writer == null || isStopped) {
+      publishToTargets(record);
+      return;
+    }
+
+    // the source is inferred from the stack, which is the one of the writer later on
+    record.getSourceClassName();
+    if (buffer.offer(record)) {
+      if (isStopped || writer == null) {
+        // stopped meanwhile, the writer may not pick up the record anymore
+        drain();
+      }
+      return;
+    }
+
+    if (record.getLevel().intValue() < Level.WARNING.intValue()) {
+      droppedRecords.incrementAndGet();
+    } else {
+      publishToTargets(record);
+    }
+  }
+
+  /**
+   * Publishes all buffered records and flushes the targets
+   */
+  @Override
+  public void flush() {
+    drain();
+  }
+
+  /**
+   * Stops the writer, publishes the remaining records and closes the targets
+   */
+  @Override
+  public void close() {
+    stop();
+    for (Handler target : targets) {
+      target.close();
+    }
+  }
+
+  /**
+   * Stops the writer and publishes the remaining records, any later records are published
+   * synchronously
+   *
+   * @methodtype command
+   */
+  public void stop() {
+    Thread thread;
+    synchronized (this) {
+      isStopped = true;
+      thread = writer;
+    }
+
+    if (thread != null) {
+      LockSupport.unpark(thread);
+      try {
+        thread.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    drain();
+  }
+
+  /**
+   * @methodtype get
+   */
+  public long getDroppedRecords() {
+    return droppedRecords.get();
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int getBufferedRecords() {
+    return buffer.size();
+  }
+
+  /**
+   * Loop of the background writer. An interrupted writer exits, as parking returns at once while
+   * the thread is interrupted; the handler publishes synchronously from then on.
+   */
+  protected void writeRecords() {
+    while (!isStopped) {
+      if (Thread.currentThread().isInterrupted()) {
+        synchronized (this) {
+          writer = null;
+        }
+        drain();
+        return;
+      }
+      if (drain() == 0) {
+        LockSupport.parkNanos(this, IDLE_NANOS);
+      }
+    }
+  }
+
+  /**
+   * Publishes the buffered records in batches, the ring buffer has a single consumer at a time
+   *
+   * @return number of published records
+   */
+  protected synchronized int drain() {
+    List<LogRecord> batch = new ArrayList<LogRecord>(BATCH_SIZE);
+    int result = 0;
+    do {
+      batch.clear();
+      LogRecord record;
+      while (batch.size() < BATCH_SIZE && (record = buffer.poll()) != null) {
+        batch.add(record);
+      }
+      for (LogRecord each : batch) {
+        publishToTargets(each);
+      }
+      result += batch.size();
+      reportDroppedRecords();
+      if (!batch.isEmpty()) {
+        for (Handler target : targets) {
+          target.flush();
+        }
+      }
+    } while (batch.size() == BATCH_SIZE);
+    return result;
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void reportDroppedRecords() {
+    long dropped = droppedRecords.get();
+    if (dropped != reportedDroppedRecords) {
+      LogRecord report = new LogRecord(Level.WARNING,
+          "log buffer full, dropped " + (dropped - reportedDroppedRecords) + " records, "
+              + dropped + " in total");
+      report.setLoggerName(AsyncLogHandler.class.getName());
+      report.setSourceClassName(AsyncLogHandler.class.getName());
+      report.setSourceMethodName("reportDroppedRecords");
+      reportedDroppedRecords = dropped;
+      publishToTargets(report);
+    }
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void publishToTargets(LogRecord record) {
+    for (Handler target : targets) {
+      try {
+        target.publish(record);
+      } catch (RuntimeException ex) {
+        reportError(null, ex, ErrorManager.WRITE_FAILURE);
+      }
+    }
+  }
+
+  /**
+   * Bounded multi-producer queue of records. Every slot has a sequence number telling producers
+   * and the consumer whose turn it is, so neither side takes a lock.
+   */
+  protected static class RingBuffer {
+
+    protected final int mask;
+    protected final AtomicReferenceArray<LogRecord> slots;
+    protected final AtomicLongArray sequences;
+    protected final AtomicLong tail = new AtomicLong();
+    protected final AtomicLong head = new AtomicLong();
+
+    protected RingBuffer(int capacity) {
+      int size = capacity > 1 ? Integer.highestOneBit(capacity - 1) << 1 : 1;
+      mask = size - 1;
+      slots = new AtomicReferenceArray<LogRecord>(size);
+      sequences = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+        sequences.set(i, i);
+      }
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    protected boolean offer(LogRecord record) {
+      long position = tail.get();
+      while (true) {
+        int index = (int) position & mask;
+        long difference = sequences.get(index) - position;
+        if (difference == 0) {
+          if (tail.compareAndSet(position, position + 1)) {
+            slots.set(index, record);
+            sequences.set(index, position + 1);
+            return true;
+          }
+          position = tail.get();
+        } else if (difference < 0) {
+          return false;
+        } else {
+          position = tail.get();
+        }
+      }
+    }
+
+    /**
+     * Takes the oldest record, must only be called by one consumer at a time
+     *
+     * @return the record, null if the buffer is empty
+     */
+    protected LogRecord poll() {
+      long position = head.get();
+      int index = (int) position & mask;
+      if (sequences.get(index) != position + 1) {
+        return null;
+      }
+
+      LogRecord result = slots.get(index);
+      slots.set(index, null);
+      sequences.set(index, position + mask + 1);
+      head.set(position + 1);
+      return result;
+    }
+
+    /**
+     * @methodtype get
+     */
+    protected int size() {
+      return (int) Math.max(0, tail.get() - head.get());
+    }
+  }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in microseconds with buckets like an HDR histogram: every power of two is
+ * split into {@link #SUB_BUCKETS} buckets of equal width, so a recorded value is kept with a
+ * relative error below 1/{@link #SUB_BUCKETS} over the whole range. Values above
+ * {@link #MAX_VALUE} are counted as the maximum.
+ *
+ * Recording is lock-free and cheap: the counts are striped over a few arrays chosen by thread, so
+ * concurrent requests rarely update the same counter. Reading takes a {@link Snapshot} of the
+ * summed up stripes, which may miss values recorded at the same time, but is consistent in itself.
+ */
+public class LatencyHistogram {
+
+  /**
+   * Number of buckets per power of two, a power of two itself
+   */
+  public static final int SUB_BUCKETS = 16;
+  protected static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+  /**
+   * Largest value kept apart, about 19 hours in microseconds
+   */
+  public static final long MAX_VALUE = (1L << 36) - 1;
+
+  /**
+   *
+   */
+  protected static final int BUCKET_COUNT = getBucketIndex(MAX_VALUE) + 1;
+  protected static final int STRIPES = 4;
+
+  /**
+   *
+   */
+  protected final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+  protected final LongAdder totalValue = new LongAdder();
+
+  /**
+   *
+   */
+  public LatencyHistogram() {
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new AtomicLongArray(BUCKET_COUNT);
+    }
+  }
+
+  /**
+   * @param value in microseconds, negative values are counted as 0
+   * @methodtype command
+   */
+  public void record(long value) {
+    long boundedValue = Math.min(Math.max(value, 0), MAX_VALUE);
+    int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    stripes[stripe].incrementAndGet(getBucketIndex(boundedValue));
+    totalValue.add(boundedValue);
+  }
+
+  /**
+   * Sums up the stripes once; all counts read from the snapshot agree with each other
+   *
+   * @methodtype factory
+   */
+  public Snapshot getSnapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (AtomicLongArray stripe : stripes) {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        counts[i] += stripe.get(i);
+      }
+    }
+    return new Snapshot(counts, totalValue.sum());
+  }
+
+  /**
+   * Values below SUB_BUCKETS have a bucket each, above every power of two has SUB_BUCKETS
+   *
+   * @methodtype conversion
+   */
+  protected static int getBucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @return the highest value which falls into the bucket
+   */
+  protected static long getHighestValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  /**
+   * The bucket counts of a histogram at one point in time
+   */
+  public static class Snapshot {
+
+    protected final long[] counts;
+    protected final long count;
+    protected final long sum;
+
+    protected Snapshot(long[] counts, long sum) {
+      long total = 0;
+      for (long each : counts) {
+        total += each;
+      }
+      this.counts = counts;
+      this.count = total;
+      this.sum = sum;
+    }
+
+    /**
+     * @methodtype get
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * The sum is read apart from the counts, values recorded meanwhile may be in one of them only
+     *
+     * @return sum of all recorded values in microseconds
+     */
+    public long getSum() {
+      return sum;
+    }
+
+    /**
+     * @return number of values which are at most the given value, up to the bucket precision
+     */
+    public long getCountAtMost(long value) {
+      return getCountsAtMost(new long[]{value})[0];
+    }
+
+    /**
+     * Counts in one pass over the buckets, the counts never decrease with the bounds
+     *
+     * @param bounds in ascending order
+     * @return number of values which are at most the bound, per bound
+     */
+    public long[] getCountsAtMost(long[] bounds) {
+      long[] result = new long[bounds.length];
+      long seen = 0;
+      int bucket = 0;
+      for (int i = 0; i < bounds.length; i++) {
+        while (bucket < counts.length && getHighestValue(bucket) <= bounds[i]) {
+          seen += counts[bucket++];
+        }
+        result[i] = seen;
+      }
+      return result;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return highest value of the bucket containing the percentile, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+      long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return getHighestValue(i);
+        }
+      }
+      return 0;
+    }
+  }
+
+}
@@ -2,6 +2,9 @@ package org.wahlzeit.services;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 import org.wahlzeit.model.Client;
 import org.wahlzeit.model.UserManager;
 import org.wahlzeit.model.UserSession;
@@ -14,9 +17,18 @@ import org.wahlzeit.model.UserSession;
  *
  * (see https://stackoverflow.com/questions/30345665/how-to-customize-logging-for-google-app-engine-java).
  *
+ * A LogBuilder only records its fields, the message is rendered when it is emitted. As it is a
+ * <code>Supplier</code>, it can be passed to the logger directly, which checks the level first:
+ *
+ * <pre>
+ * log.config(LogBuilder.createSystemMessage().addParameter("photo", photoId));
+ * </pre>
+ *
+ * Values which are <code>Supplier</code>s themselves are only evaluated on emission, too.
+ *
  * @review
  */
-public class LogBuilder {
+public class LogBuilder implements Supplier<String> {
 
   protected static final String LEVEL = "level";
   protected static final String USER_LEVEL = "ul";
@@ -30,11 +42,25 @@ public class LogBuilder {
   protected static final String EXCEPTION_REASON = "exception reason";
   protected static final String STACKTRACE = "stacktrace";
 
-  protected StringBuilder logMessage;
+  /**
+   * Level of the message, user or system
+   */
+  protected final String level;
+
+  /**
+   * Session of the thread creating the message, null if there is none
+   */
+  protected final Session session;
+
+  /**
+   * Fields added to the message, in order
+   */
+  protected final List<Field> fields = new ArrayList<Field>(8);
 
 
-  protected LogBuilder() {
-    logMessage = new StringBuilder();
+  protected LogBuilder(String level, Session session) {
+    this.level = level;
+    this.session = session;
   }
 
   // create-methods --------------------------------------------------------------------------------------------------
@@ -52,32 +78,11 @@ public class LogBuilder {
   /**
    * @methodtype factory
    *
-   * Primitive Method that creates a LogBuilder Object and adds the Level, the current <code>HttpSession</code>, and
-   * the clients name.
+   * Primitive Method that creates a LogBuilder Object for the Level and the current <code>HttpSession</code>. The
+   * name of the client is looked up on emission.
    */
   protected static LogBuilder doCreateMessage(String level) {
-    LogBuilder result = new LogBuilder();
-    Session session = SessionManager.getThreadLocalSession();
-    String sessionName;
-    String clientName;
-    if (session != null) {
-      sessionName = session.getName();
-      Client client = UserManager.getInstance().getClientById(session.getClientId());
-      if (client != null) {
-        clientName = client.getNickName();
-      } else {
-        clientName = UserSession.ANONYMOUS_CLIENT;
-      }
-    } else {
-      sessionName = Session.NO_SESSION;
-      clientName = UserSession.ANONYMOUS_CLIENT;
-    }
-
-    result.add(LEVEL + NAME_VALUE_SEPARATOR + level);
-    result.add(SESSION + NAME_VALUE_SEPARATOR + sessionName);
-    result.add(CLIENT + NAME_VALUE_SEPARATOR + clientName);
-
-    return result;
+    return new LogBuilder(level, SessionManager.getThreadLocalSession());
   }
 
   /**
@@ -95,16 +100,8 @@ public class LogBuilder {
   /**
    * @methodtype set
    */
-  protected void add(String logMessagePart) {
-
-    assert logMessage != null;
-
-    if (logMessage.length() == 0) {
-      logMessage.append(logMessagePart);
-    } else {
-      logMessage.append(INFO_SEPARATOR);
-      logMessage.append(logMessagePart);
-    }
+  protected void add(String name, Object value) {
+    fields.add(new Field(name, value));
   }
 
   /**
@@ -113,7 +110,7 @@ public class LogBuilder {
    * Adds the following to the LogMessage: ", <name>=<value>".
    */
   public LogBuilder addParameter(String name, int value) {
-    add(name + NAME_VALUE_SEPARATOR + String.valueOf(value));
+    add(name, value);
     return this;
   }
 
@@ -123,7 +120,7 @@ public class LogBuilder {
    * Adds the following to the LogMessage: ", <name>=<value>".
    */
   public LogBuilder addParameter(String name, boolean value) {
-    add(name + NAME_VALUE_SEPARATOR + String.valueOf(value));
+    add(name, value);
     return this;
   }
 
@@ -133,17 +130,18 @@ public class LogBuilder {
    * Adds the following to the LogMessage: ", <name>=<value>".
    */
   public LogBuilder addParameter(String name, String value) {
-    add(name + NAME_VALUE_SEPARATOR + value);
+    add(name, value);
     return this;
   }
 
   /**
    * @methodtype mutate
    *
-   * Adds the following to the LogMessage: ", <name>=<value>.toString()".
+   * Adds the following to the LogMessage: ", <name>=<value>.toString()". The value is converted on emission, a
+   * <code>Supplier</code> is evaluated then.
    */
   public LogBuilder addParameter(String name, Object value) {
-    add(name + NAME_VALUE_SEPARATOR + value.toString());
+    add(name, value);
     return this;
   }
 
@@ -153,20 +151,19 @@ public class LogBuilder {
    * Adds the message to the LogMessage: ", <message>".
    */
   public LogBuilder addMessage(String message) {
-    add(message);
+    fields.add(new Field(message));
     return this;
   }
 
   /**
    * @methodtype mutate
    *
-   * Adds the stacktrace and the <code>exceptionMessage</code> to the log message.
+   * Adds the stacktrace and the <code>exceptionMessage</code> to the log message. The stacktrace is rendered on
+   * emission.
    */
   public LogBuilder addException(String exceptionMessage, Throwable throwable) {
-    add(EXCEPTION_REASON + NAME_VALUE_SEPARATOR + exceptionMessage);
-    StringWriter sw = new StringWriter();
-    throwable.printStackTrace(new PrintWriter(sw));
-    add(STACKTRACE + NAME_VALUE_SEPARATOR + sw.toString());
+    add(EXCEPTION_REASON, exceptionMessage);
+    add(STACKTRACE, new StackTrace(throwable));
     return this;
   }
 
@@ -178,7 +175,7 @@ public class LogBuilder {
    * Adds the info that the action is performed the log message: "action=<action>".
    */
   public LogBuilder addAction(String action) {
-    add(ACTION + NAME_VALUE_SEPARATOR + action);
+    add(ACTION, action);
     return this;
   }
 
@@ -191,10 +188,93 @@ public class LogBuilder {
    */
   @Override
   public String toString() {
+    StringBuilder result = new StringBuilder(64 + 32 * fields.size());
+    appendField(result, LEVEL, level);
+    result.append(INFO_SEPARATOR);
+    appendField(result, SESSION, session != null ? session.getName() : Session.NO_SESSION);
+    result.append(INFO_SEPARATOR);
+    appendField(result, CLIENT, getClientName());
+    for (Field field : fields) {
+      result.append(INFO_SEPARATOR);
+      if (field.isNamed) {
+        appendField(result, field.name, field.value);
+      } else {
+        result.append(field.value);
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Renders the message, called by the logger if the message is emitted
+   *
+   * @methodtype conversion
+   */
+  @Override
+  public String get() {
+    return toString();
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected static void appendField(StringBuilder result, String name, Object value) {
+    if (value instanceof Supplier) {
+      value = ((Supplier<?>) value).get();
+    }
+    result.append(name).append(NAME_VALUE_SEPARATOR).append(value);
+  }
+
+  /**
+   * @methodtype get
+   */
+  protected String getClientName() {
+    if (session == null || session.getClientId() == null) {
+      return UserSession.ANONYMOUS_CLIENT;
+    }
+
+    Client client = UserManager.getInstance().getClientById(session.getClientId());
+    return client != null ? client.getNickName() : UserSession.ANONYMOUS_CLIENT;
+  }
+
+  /**
+   * A name and value pair, or a plain message
+   */
+  protected static class Field {
+
+    protected final boolean isNamed;
+    protected final String name;
+    protected final Object value;
+
+    protected Field(String name, Object value) {
+      this.isNamed = true;
+      this.name = name;
+      this.value = value;
+    }
+
+    protected Field(String message) {
+      this.isNamed = false;
+      this.name = null;
+      this.value = message;
+    }
+  }
+
+  /**
+   * Renders the stacktrace of a throwable when the message is emitted
+   */
+  protected static class StackTrace implements Supplier<String> {
 
-    assert logMessage != null;
-    assert logMessage.length() > 0;
+    protected final Throwable throwable;
 
-    return logMessage.toString();
+    protected StackTrace(Throwable throwable) {
+      this.throwable = throwable;
+    }
+
+    @Override
+    public String get() {
+      StringWriter sw = new StringWriter();
+      throwable.printStackTrace(new PrintWriter(sw));
+      return sw.toString();
+    }
   }
 }
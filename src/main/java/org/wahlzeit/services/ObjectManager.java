@@ -22,6 +22,7 @@ package org.wahlzeit.services;
 
 import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.KeyFactory;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.logging.Logger;
@@ -48,8 +49,7 @@ public abstract class ObjectManager {
     assertIsNonNullArgument(id, "id");
 
     log.config(LogBuilder.createSystemMessage().
-        addMessage("Load Type " + type.toString() + " with ID " + id + " from datastore.")
-        .toString());
+        addParameter("Datastore: load type", type).addParameter("id", id));
     return OfyService.ofy().load().type(type).id(id).now();
   }
 
@@ -70,8 +70,7 @@ public abstract class ObjectManager {
     assertIsNonNullArgument(id, "id");
 
     log.config(LogBuilder.createSystemMessage().
-        addMessage("Load Type " + type.toString() + " with ID " + id + " from datastore.")
-        .toString());
+        addParameter("Datastore: load type", type).addParameter("id", id));
     return OfyService.ofy().load().type(type).id(id).now();
   }
 
@@ -85,8 +84,7 @@ public abstract class ObjectManager {
     assertIsNonNullArgument(value, "value");
 
     log.config(LogBuilder.createSystemMessage().
-        addMessage("Load Type " + type.toString() + " with parameter " +
-            parameterName + " == " + value + " from datastore.").toString());
+        addParameter("Datastore: load type", type).addParameter(parameterName, value));
 
     return OfyService.ofy().load().type(type).ancestor(applicationRootKey)
         .filter(parameterName, value).first()
@@ -101,10 +99,10 @@ public abstract class ObjectManager {
     assertIsNonNullArgument(type, "type");
 
     log.config(LogBuilder.createSystemMessage().
-        addParameter("Datastore: load all entities of type", type.getName()).toString());
+        addParameter("Datastore: load all entities of type", type.getName()));
     List<E> objects = OfyService.ofy().load().type(type).ancestor(applicationRootKey).list();
     log.config(LogBuilder.createSystemMessage().
-        addParameter("Datastore: number of loaded objects", objects.size()).toString());
+        addParameter("Datastore: number of loaded objects", objects.size()));
     result.addAll(objects);
   }
 
@@ -120,12 +118,12 @@ public abstract class ObjectManager {
     assertIsNonNullArgument(value, "value");
 
     log.info(LogBuilder.createSystemMessage().
-        addMessage("Datastore: Load all Entities of type " + type.toString() + " where parameter "
-            + propertyName + " = " + value.toString() + " from datastore.").toString());
+        addParameter("Datastore: load all entities of type", type)
+        .addParameter(propertyName, value));
     List<E> objects = OfyService.ofy().load().type(type).
         ancestor(applicationRootKey).filter(propertyName, value).list();
     log.config(LogBuilder.createSystemMessage().
-        addParameter("Datastore: number of loaded objects", objects.size()).toString());
+        addParameter("Datastore: number of loaded objects", objects.size()));
     result.addAll(objects);
   }
 
@@ -133,8 +131,26 @@ public abstract class ObjectManager {
    * Updates all entities of the given collection in the datastore.
    */
   protected void updateObjects(Collection<? extends Persistent> collection) {
+    assertIsNonNullArgument(collection, "collection");
+
+    List<Persistent> dirtyObjects = new ArrayList<Persistent>();
     for (Persistent object : collection) {
-      updateObject(object);
+      if (object.isDirty() && isToBePersisted(object)) {
+        dirtyObjects.add(object);
+      }
+    }
+
+    if (dirtyObjects.isEmpty()) {
+      return;
+    }
+
+    // one datastore call for all entities instead of one per entity
+    log.info(LogBuilder.createSystemMessage().
+        addParameter("Datastore: Write objects", dirtyObjects.size()));
+    OfyService.ofy().save().entities(dirtyObjects).now();
+    for (Persistent object : dirtyObjects) {
+      updateDependents(object);
+      object.resetWriteCount();
     }
   }
 
@@ -151,18 +167,29 @@ public abstract class ObjectManager {
   protected void writeObject(Persistent object) {
     assertIsNonNullArgument(object, "object");
 
-    if (object.isDirty()) {
+    if (object.isDirty() && isToBePersisted(object)) {
       log.info(LogBuilder.createSystemMessage().
-          addParameter("Datastore: Write object of type", object).toString());
+          addParameter("Datastore: Write object of type", object));
       OfyService.ofy().save().entity(object).now();
       updateDependents(object);
       object.resetWriteCount();
     } else {
       log.info(LogBuilder.createSystemMessage().
-          addParameter("Datastore: No need to update object", object).toString());
+          addParameter("Datastore: No need to update object", object));
     }
   }
 
+  /**
+   * Checks if the object is to be written to the datastore at all. Objects which are not stay
+   * dirty, so they are written as soon as they are to be persisted.
+   *
+   * @methodtype boolean-query
+   */
+  protected boolean isToBePersisted(Persistent object) {
+    // overwrite if some of your objects only live in memory
+    return true;
+  }
+
   /**
    * Updates all dependencies of the object.
    */
@@ -176,11 +203,24 @@ public abstract class ObjectManager {
   protected <E> void deleteObject(E object) {
     assertIsNonNullArgument(object, "object");
 
-    log.config(LogBuilder.createSystemMessage().addParameter("Datastore: delete entity", object)
-        .toString());
+    log.config(LogBuilder.createSystemMessage().addParameter("Datastore: delete entity", object));
     OfyService.ofy().delete().entity(object).now();
   }
 
+  /**
+   * Deletes all given entities from the datastore in one batch.
+   */
+  protected <E> void deleteObjects(Collection<E> objects) {
+    assertIsNonNullArgument(objects, "objects");
+    if (objects.isEmpty()) {
+      return;
+    }
+
+    log.config(LogBuilder.createSystemMessage().addParameter("Datastore: delete entities",
+        objects.size()));
+    OfyService.ofy().delete().entities(objects).now();
+  }
+
   /**
    * Deletes all entities of the type that have a property with the specified value, e.g.
    * deleteObjects(PhotoCase.class, "wasDecided", true) to delete all cases that have been decided.
@@ -191,8 +231,8 @@ public abstract class ObjectManager {
     assertIsNonNullArgument(value, "value");
 
     log.info(LogBuilder.createSystemMessage().
-        addMessage("Datastore: delete entities of type " + type
-            + " where property " + propertyName + " == " + value).toString());
+        addParameter("Datastore: delete entities of type", type)
+        .addParameter(propertyName, value));
     List<com.googlecode.objectify.Key<E>> keys = OfyService.ofy().load().type(type).
         ancestor(applicationRootKey).filter(propertyName, value).keys().list();
     OfyService.ofy().delete().keys(keys);
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.services;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.wahlzeit.utils.ParameterUtil;
+
+/**
+ * Counts the requests, errors, redirects and bytes written per handler and method, and keeps a
+ * {@link LatencyHistogram} of their latencies. The metrics are written in the text format of
+ * Prometheus, durations in seconds as it expects.
+ */
+public class RequestMetrics {
+
+  /**
+   *
+   */
+  protected static final RequestMetrics instance = new RequestMetrics();
+
+  /**
+   * Upper bounds of the exported histogram buckets, in microseconds
+   */
+  protected static final long[] BUCKET_BOUNDS = {
+      1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000,
+      1000000, 2500000, 5000000, 10000000
+  };
+
+  /**
+   *
+   */
+  protected static final String PREFIX = "wahlzeit_";
+
+  /**
+   *
+   */
+  protected final ConcurrentMap<String, HandlerMetrics> metrics =
+      new ConcurrentHashMap<String, HandlerMetrics>();
+
+  /**
+   * @methodtype get
+   */
+  public static RequestMetrics getInstance() {
+    return instance;
+  }
+
+  /**
+   * @param handlerName name the handler is registered by
+   * @param method of the request, like "GET"
+   * @return the metrics to record requests of the handler in
+   */
+  public HandlerMetrics getHandlerMetrics(String handlerName, String method) {
+    ParameterUtil.assertNotNull(handlerName, "handlerName");
+    ParameterUtil.assertNotNull(method, "method");
+
+    String key = method + " " + handlerName;
+    HandlerMetrics result = metrics.get(key);
+    if (result == null) {
+      HandlerMetrics newMetrics = new HandlerMetrics(handlerName, method);
+      result = metrics.putIfAbsent(key, newMetrics);
+      if (result == null) {
+        result = newMetrics;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @methodtype command
+   */
+  public void clear() {
+    metrics.clear();
+  }
+
+  /**
+   * Writes all metrics, sorted by method and handler
+   */
+  public void writeOn(Appendable out) throws IOException {
+    Map<String, HandlerMetrics> sorted = new TreeMap<String, HandlerMetrics>(metrics);
+
+    writeHeader(out, "requests_total", "counter", "Requests handled");
+    for (HandlerMetrics each : sorted.values()) {
+      writeSample(out, "requests_total", each, null, each.requests.sum());
+    }
+
+    writeHeader(out, "request_errors_total", "counter", "Requests failed with an exception");
+    for (HandlerMetrics each : sorted.values()) {
+      writeSample(out, "request_errors_total", each, null, each.errors.sum());
+    }
+
+    writeHeader(out, "request_redirects_total", "counter", "Requests answered by a redirect");
+    for (HandlerMetrics each : sorted.values()) {
+      writeSample(out, "request_redirects_total", each, null, each.redirects.sum());
+    }
+
+    writeHeader(out, "response_bytes_total", "counter", "Bytes of the pages written");
+    for (HandlerMetrics each : sorted.values()) {
+      writeSample(out, "response_bytes_total", each, null, each.bytesWritten.sum());
+    }
+
+    writeHeader(out, "request_duration_seconds", "histogram", "Latency of the requests");
+    for (HandlerMetrics each : sorted.values()) {
+      // all buckets and the count from one snapshot, so they are cumulative
+      LatencyHistogram.Snapshot latencies = each.latencies.getSnapshot();
+      long[] counts = latencies.getCountsAtMost(BUCKET_BOUNDS);
+      for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+        writeSample(out, "request_duration_seconds_bucket", each, asSeconds(BUCKET_BOUNDS[i]),
+            counts[i]);
+      }
+      long count = latencies.getCount();
+      writeSample(out, "request_duration_seconds_bucket", each, "+Inf", count);
+      out.append(PREFIX).append("request_duration_seconds_sum");
+      writeLabels(out, each, null);
+      out.append(' ').append(asSeconds(latencies.getSum())).append('\n');
+      writeSample(out, "request_duration_seconds_count", each, null, count);
+    }
+  }
+
+  /**
+   * Writes a gauge of durations given in microseconds, one sample per key labeled with it, sorted
+   * by key
+   */
+  public void writeDurationsOn(Appendable out, String name, String help, String label,
+      Map<String, Long> micros) throws IOException {
+    writeHeader(out, name, "gauge", help);
+    for (Map.Entry<String, Long> each : new TreeMap<String, Long>(micros).entrySet()) {
+      out.append(PREFIX).append(name).append('{').append(label).append("=\"");
+      appendLabelValue(out, each.getKey());
+      out.append("\"} ").append(asSeconds(each.getValue())).append('\n');
+    }
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void writeHeader(Appendable out, String name, String type, String help)
+      throws IOException {
+    out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void writeSample(Appendable out, String name, HandlerMetrics metrics, String le,
+      long value) throws IOException {
+    out.append(PREFIX).append(name);
+    writeLabels(out, metrics, le);
+    out.append(' ').append(String.valueOf(value)).append('\n');
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void writeLabels(Appendable out, HandlerMetrics metrics, String le)
+      throws IOException {
+    out.append("{handler=\"");
+    appendLabelValue(out, metrics.handlerName);
+    out.append("\",method=\"");
+    appendLabelValue(out, metrics.method);
+    out.append('"');
+    if (le != null) {
+      out.append(",le=\"").append(le).append('"');
+    }
+    out.append('}');
+  }
+
+  /**
+   * Escapes backslashes, quotes and line breaks as the format requires
+   *
+   * @methodtype helper
+   */
+  protected static void appendLabelValue(Appendable out, String value) throws IOException {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"') {
+        out.append('\\').append(c);
+      } else if (c == '\n') {
+        out.append("\\n");
+      } else {
+        out.append(c);
+      }
+    }
+  }
+
+  /**
+   * @methodtype conversion
+   */
+  protected static String asSeconds(long micros) {
+    return String.valueOf(micros / 1000000.0);
+  }
+
+  /**
+   * Metrics of the requests of a handler by one method; recording is thread-safe and lock-free
+   */
+  public static class HandlerMetrics {
+
+    protected final String handlerName;
+    protected final String method;
+    protected final LongAdder requests = new LongAdder();
+    protected final LongAdder errors = new LongAdder();
+    protected final LongAdder redirects = new LongAdder();
+    protected final LongAdder bytesWritten = new LongAdder();
+    protected final LatencyHistogram latencies = new LatencyHistogram();
+
+    protected HandlerMetrics(String handlerName, String method) {
+      this.handlerName = handlerName;
+      this.method = method;
+    }
+
+    /**
+     * @param nanos the request took
+     * @methodtype command
+     */
+    public void recordRequest(long nanos) {
+      requests.increment();
+      latencies.record(nanos / 1000);
+    }
+
+    /**
+     * @methodtype command
+     */
+    public void recordError() {
+      errors.increment();
+    }
+
+    /**
+     * @methodtype command
+     */
+    public void recordRedirect() {
+      redirects.increment();
+    }
+
+    /**
+     * @methodtype command
+     */
+    public void recordBytesWritten(long bytes) {
+      bytesWritten.add(bytes);
+    }
+
+    /**
+     * @methodtype get
+     */
+    public long getRequests() {
+      return requests.sum();
+    }
+
+    /**
+     * @methodtype get
+     */
+    public long getErrors() {
+      return errors.sum();
+    }
+
+    /**
+     * @methodtype get
+     */
+    public long getRedirects() {
+      return redirects.sum();
+    }
+
+    /**
+     * @methodtype get
+     */
+    public long getBytesWritten() {
+      return bytesWritten.sum();
+    }
+
+    /**
+     * @methodtype get
+     */
+    public LatencyHistogram getLatencies() {
+      return latencies;
+    }
+  }
+
+}
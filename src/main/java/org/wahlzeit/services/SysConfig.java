@@ -84,7 +84,7 @@ public class SysConfig extends AbstractConfig {
    * Drop singleton instance to cope with repeated startup/shutdown scenarios
    */
   public static synchronized void dropInstance() {
-    log.config(LogBuilder.createSystemMessage().addAction("drop SysConfig instance").toString());
+    log.config(LogBuilder.createSystemMessage().addAction("drop SysConfig instance"));
     instance = null;
   }
 
@@ -100,7 +100,7 @@ public class SysConfig extends AbstractConfig {
    */
   public static SysConfig getInstance() {
     if (instance == null) {
-      log.config(LogBuilder.createSystemMessage().addAction("create generic SysConfig").toString());
+      log.config(LogBuilder.createSystemMessage().addAction("create generic SysConfig"));
       setInstance(new SysConfig(""));
     }
     return instance;
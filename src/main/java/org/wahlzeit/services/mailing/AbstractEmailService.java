@@ -82,7 +82,7 @@ public abstract class AbstractEmailService implements EmailService {
       return true;
     } catch (Exception ex) {
       log.warning(LogBuilder.createSystemMessage().
-          addException("Problem sending email", ex).toString());
+          addException("Problem sending email", ex));
       return false;
     }
   }
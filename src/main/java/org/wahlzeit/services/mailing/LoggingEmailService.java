@@ -57,7 +57,7 @@ public class LoggingEmailService implements EmailService {
         addAction("Send E-Mail").
         addParameter("from", fromString).
         addParameter("to", toString).
-        addParameter("subject", subjectString).toString());
+        addParameter("subject", subjectString));
 
     decorated.sendEmail(from, to, subject, body);
   }
@@ -94,7 +94,7 @@ public class LoggingEmailService implements EmailService {
         addParameter("from", fromString).
         addParameter("to", toString).
         addParameter("bcc", bccString).
-        addParameter("subject", subjectString).toString());
+        addParameter("subject", subjectString));
 
     decorated.sendEmail(from, to, bcc, subject, body);
   }
@@ -92,7 +92,7 @@ public class SmtpEmailService extends AbstractEmailService {
       msg.setContent(createMultipart(body));
     } catch (MessagingException e) {
       log.warning(
-          LogBuilder.createSystemMessage().addException("failed to create email", e).toString());
+          LogBuilder.createSystemMessage().addException("failed to create email", e));
       throw new MailingException(e.getMessage());
     }
     return msg;
@@ -121,7 +121,7 @@ public class SmtpEmailService extends AbstractEmailService {
       Transport.send(msg);
       log.config(LogBuilder.createSystemMessage().
           addMessage("email send").
-          addParameter("subject", msg.getSubject()).toString());
+          addParameter("subject", msg.getSubject()));
     } catch (MessagingException ex) {
       throw new MailingException("Sending email failed", ex);
     }
@@ -33,10 +33,12 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import org.wahlzeit.main.ServiceMain;
 import org.wahlzeit.model.UserSession;
+import org.wahlzeit.model.UserSessionCache;
 import org.wahlzeit.services.LogBuilder;
 import org.wahlzeit.services.Session;
 import org.wahlzeit.services.SessionManager;
 import org.wahlzeit.utils.StringUtil;
+import org.wahlzeit.webparts.Utf8Writer;
 import org.wahlzeit.webparts.WebPart;
 
 /**
@@ -86,7 +88,15 @@ public abstract class AbstractServlet extends HttpServlet {
     if (ServiceMain.getInstance().isShuttingDown() || (us == null)) {
       displayNullPage(request, response);
     } else {
-      myGet(request, response);
+      synchronized (us) { // concurrent requests of a session share its UserSession
+        us.attach(request.getSession());
+        try {
+          myGet(request, response);
+        } finally {
+          // changes made before an exception are kept, too
+          us.saveState();
+        }
+      }
     }
 
     SessionManager.dropThreadLocalSession();
@@ -106,7 +116,15 @@ public abstract class AbstractServlet extends HttpServlet {
     if (ServiceMain.getInstance().isShuttingDown() || (us == null)) {
       displayNullPage(request, response);
     } else {
-      myPost(request, response);
+      synchronized (us) { // concurrent requests of a session share its UserSession
+        us.attach(request.getSession());
+        try {
+          myPost(request, response);
+        } finally {
+          // changes made before an exception are kept, too
+          us.saveState();
+        }
+      }
     }
 
     SessionManager.dropThreadLocalSession();
@@ -127,11 +145,15 @@ public abstract class AbstractServlet extends HttpServlet {
   protected UserSession ensureUserSession(HttpServletRequest request) {
     HttpSession httpSession = request.getSession();
 
-    String sessionName = httpSession.getId();
-    String siteUrl = getSiteUrl(request); // @TODO Application
+    UserSession result = UserSessionCache.getInstance().get(httpSession);
+    if (result == null) {
+      String sessionName = httpSession.getId();
+      String siteUrl = getSiteUrl(request); // @TODO Application
 
-    UserSession result = new UserSession(sessionName, siteUrl, httpSession,
-        request.getLocale().getLanguage());
+      result = new UserSession(sessionName, siteUrl, httpSession,
+          request.getLocale().getLanguage());
+      UserSessionCache.getInstance().put(httpSession, result);
+    }
 
     return result;
   }
@@ -176,28 +198,29 @@ public abstract class AbstractServlet extends HttpServlet {
   protected void redirectRequest(HttpServletResponse response, String link) throws IOException {
     response.setContentType("text/html");
     String newTarget = new String("/" + link + ".html");
-    log.config(LogBuilder.createSystemMessage().addParameter("Redirect to", newTarget).toString());
+    log.config(LogBuilder.createSystemMessage().addParameter("Redirect to", newTarget));
     response.sendRedirect(newTarget);
   }
 
   /**
-   *
+   * @return number of bytes written
    */
-  protected void configureResponse(Session ctx, HttpServletResponse response, WebPart result)
+  protected long configureResponse(Session ctx, HttpServletResponse response, WebPart result)
       throws IOException {
     long processingTime = ctx.getProcessingTime();
-    result.addString("processingTime",
+    result.addString(Session.PROCESSING_TIME,
         StringUtil.asStringInSeconds((processingTime == 0) ? 1 : processingTime));
     log.config(LogBuilder.createSystemMessage().
-        addParameter("proctime", String.valueOf(processingTime)).toString());
+        addParameter("proctime", String.valueOf(processingTime)));
 
-    response.setContentType("text/html");
+    response.setContentType("text/html; charset=UTF-8");
 
-    PrintWriter out = response.getWriter();
+    Utf8Writer out = new Utf8Writer(response.getOutputStream());
     result.writeOn(out);
     out.close();
 
     response.setStatus(HttpServletResponse.SC_OK);
+    return out.getBytesWritten();
   }
 
   /**
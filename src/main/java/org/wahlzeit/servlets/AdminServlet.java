@@ -48,7 +48,7 @@ public class AdminServlet extends AbstractServlet {
   public void myGet(HttpServletRequest request, HttpServletResponse response)
       throws ServletException, IOException {
     String link = request.getRequestURI();
-    log.info(LogBuilder.createUserMessage().addParameter("requested URI", link).toString());
+    log.info(LogBuilder.createUserMessage().addParameter("requested URI", link));
     if (isLocalHost(request)) {
       ServiceMain.getInstance().requestStop();
       displayNullPage(request, response);
@@ -47,15 +47,14 @@ public class AgentServlet extends HttpServlet {
     int nameStart = requestUri.lastIndexOf("/") + 1;
     int nameEnd = requestUri.length();
     String agentName = requestUri.substring(nameStart, nameEnd);
-    log.config(LogBuilder.createSystemMessage().addParameter("agent name", agentName).toString());
+    log.config(LogBuilder.createSystemMessage().addParameter("agent name", agentName));
 
     try {
       AgentManager.getInstance().startAgent(agentName);
       response.setStatus(200);
     } catch (Exception e) {
       log.warning(
-          LogBuilder.createSystemMessage().addException("Problem when starting the agent", e)
-              .toString());
+          LogBuilder.createSystemMessage().addException("Problem when starting the agent", e));
       response.setStatus(299);
     }
   }
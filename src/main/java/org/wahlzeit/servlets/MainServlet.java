@@ -44,6 +44,7 @@ import org.wahlzeit.handlers.WebPartHandlerManager;
 import org.wahlzeit.model.User;
 import org.wahlzeit.model.UserSession;
 import org.wahlzeit.services.LogBuilder;
+import org.wahlzeit.services.RequestMetrics;
 import org.wahlzeit.services.SessionManager;
 import org.wahlzeit.webparts.WebPart;
 
@@ -65,29 +66,34 @@ public class MainServlet extends AbstractServlet {
   public void myPost(HttpServletRequest request, HttpServletResponse response)
       throws ServletException, IOException {
     long startTime = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
 
     UserSession us = (UserSession) SessionManager.getThreadLocalSession();
-    String link = request.getRequestURI();
-    int linkStart = link.lastIndexOf("/") + 1;
-    int linkEnd = link.indexOf(".form");
-    if (linkEnd != -1) {
-      link = link.substring(linkStart, linkEnd);
-    } else {
-      link = PartUtil.NULL_FORM_NAME;
-    }
-    log.info(LogBuilder.createUserMessage().addParameter("posted to", link).toString());
+    WebPartHandlerManager.Route<WebFormHandler> route =
+        WebPartHandlerManager.getInstance().resolveForm(request.getRequestURI());
+    RequestMetrics.HandlerMetrics metrics =
+        RequestMetrics.getInstance().getHandlerMetrics(route.getName(), "POST");
+    boolean isHandled = false;
+    try {
+      String link = route.getLink();
+      log.info(LogBuilder.createUserMessage().addParameter("posted to", link));
 
-    Map args = getRequestArgs(request, us);
-    log.info(LogBuilder.createSystemMessage().
-        addParameter("POST arguments", getRequestArgsAsString(us, args)).toString());
+      Map args = getRequestArgs(request, us);
+      log.info(LogBuilder.createSystemMessage().
+          addParameter("POST arguments", getRequestArgsAsString(us, args)));
 
-    WebFormHandler formHandler = WebPartHandlerManager.getWebFormHandler(link);
-    link = PartUtil.DEFAULT_PAGE_NAME;
-    if (formHandler != null) {
-      link = formHandler.handlePost(us, args);
-    }
+      WebFormHandler formHandler = route.getHandler();
+      link = PartUtil.DEFAULT_PAGE_NAME;
+      if (formHandler != null) {
+        link = formHandler.handlePost(us, args);
+      }
 
-    redirectRequest(response, link);
+      redirectRequest(response, link);
+      metrics.recordRedirect();
+      isHandled = true;
+    } finally {
+      recordRequest(metrics, startNanos, isHandled);
+    }
     us.addProcessingTime(System.currentTimeMillis() - startTime);
     SessionManager.dropThreadLocalSession();
   }
@@ -98,39 +104,57 @@ public class MainServlet extends AbstractServlet {
   public void myGet(HttpServletRequest request, HttpServletResponse response)
       throws ServletException, IOException {
     long startTime = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
 
     UserSession us = (UserSession) SessionManager.getThreadLocalSession();
-    String link = request.getRequestURI();
-    int linkStart = link.lastIndexOf("/") + 1;
-    int linkEnd = link.indexOf(".html");
-    if (linkEnd == -1) {
-      linkEnd = link.length();
-    }
-
-    link = link.substring(linkStart, linkEnd);
-    log.info(LogBuilder.createUserMessage().addParameter("requested URI", request.getRequestURI())
-        .toString());
+    WebPartHandlerManager.Route<WebPageHandler> route =
+        WebPartHandlerManager.getInstance().resolvePage(request.getRequestURI());
+    RequestMetrics.HandlerMetrics metrics =
+        RequestMetrics.getInstance().getHandlerMetrics(route.getName(), "GET");
+    boolean isHandled = false;
+    try {
+      String link = route.getLink();
+      log.info(
+          LogBuilder.createUserMessage().addParameter("requested URI", request.getRequestURI()));
+
+      WebPageHandler handler = route.getHandler();
+      String newLink = PartUtil.DEFAULT_PAGE_NAME;
+      if (handler != null) {
+        Map args = getRequestArgs(request, us);
+        log.info(LogBuilder.createSystemMessage().
+            addParameter("GET arguments", getRequestArgsAsString(us, args)));
+        newLink = handler.handleGet(us, link, args);
+      }
 
-    WebPageHandler handler = WebPartHandlerManager.getWebPageHandler(link);
-    String newLink = PartUtil.DEFAULT_PAGE_NAME;
-    if (handler != null) {
-      Map args = getRequestArgs(request, us);
-      log.info(LogBuilder.createSystemMessage().
-          addParameter("GET arguments", getRequestArgsAsString(us, args)).toString());
-      newLink = handler.handleGet(us, link, args);
+      if (newLink.equals(link)) { // no redirect necessary
+        WebPart result = handler.makeWebPart(us);
+        us.addProcessingTime(System.currentTimeMillis() - startTime);
+        metrics.recordBytesWritten(configureResponse(us, response, result));
+        us.clearSavedArgs(); // saved args go from post to next get
+        us.resetProcessingTime();
+      } else {
+        redirectRequest(response, newLink);
+        metrics.recordRedirect();
+        us.addProcessingTime(System.currentTimeMillis() - startTime);
+      }
+      isHandled = true;
+    } finally {
+      recordRequest(metrics, startNanos, isHandled);
     }
+    SessionManager.dropThreadLocalSession();
+  }
 
-    if (newLink.equals(link)) { // no redirect necessary
-      WebPart result = handler.makeWebPart(us);
-      us.addProcessingTime(System.currentTimeMillis() - startTime);
-      configureResponse(us, response, result);
-      us.clearSavedArgs(); // saved args go from post to next get
-      us.resetProcessingTime();
-    } else {
-      redirectRequest(response, newLink);
-      us.addProcessingTime(System.currentTimeMillis() - startTime);
+  /**
+   * Records the latency of a request, and an error if it was not handled
+   *
+   * @methodtype helper
+   */
+  protected void recordRequest(RequestMetrics.HandlerMetrics metrics, long startNanos,
+      boolean isHandled) {
+    if (!isHandled) {
+      metrics.recordError();
     }
-    SessionManager.dropThreadLocalSession();
+    metrics.recordRequest(System.nanoTime() - startNanos);
   }
 
   /**
@@ -170,7 +194,7 @@ public class MainServlet extends AbstractServlet {
           user.setUploadedImage(image);
           result.put("fileName", filename);
           log.config(
-              LogBuilder.createSystemMessage().addParameter("Uploaded image", filename).toString());
+              LogBuilder.createSystemMessage().addParameter("Uploaded image", filename));
         } else {
           String key = fileItemStream.getFieldName();
           InputStream is = fileItemStream.openStream();
@@ -178,7 +202,7 @@ public class MainServlet extends AbstractServlet {
           result.put(key, value);
           log.config(LogBuilder.createSystemMessage().
               addParameter("Key of uploaded parameter", key).
-              addParameter("value", value).toString());
+              addParameter("value", value));
         }
       }
     } catch (Exception ex) {
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.servlets;
+
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.wahlzeit.services.RequestMetrics;
+import org.wahlzeit.webparts.Utf8Writer;
+import org.wahlzeit.webparts.WebPartTemplateService;
+
+/**
+ * A servlet writing the {@link RequestMetrics} and the load times of the web part templates in the
+ * text format of Prometheus. It is restricted to administrators by a security constraint in
+ * web.xml.
+ */
+public class MetricsServlet extends HttpServlet {
+
+  /**
+   *
+   */
+  private static final long serialVersionUID = 42L;
+
+  /**
+   *
+   */
+  protected static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+  /**
+   * @methodtype command
+   */
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(CONTENT_TYPE);
+    response.setHeader("Cache-Control", "no-cache");
+
+    Utf8Writer out = new Utf8Writer(response.getOutputStream());
+    RequestMetrics metrics = RequestMetrics.getInstance();
+    metrics.writeOn(out);
+    metrics.writeDurationsOn(out, "template_load_seconds", "Time to load the web part templates",
+        "template", WebPartTemplateService.getInstance().getLoadTimes());
+    out.close();
+  }
+
+}
@@ -11,6 +11,7 @@ import javax.servlet.http.HttpSession;
 import org.wahlzeit.model.Client;
 import org.wahlzeit.model.Guest;
 import org.wahlzeit.model.UserManager;
+import org.wahlzeit.model.UserSessionCache;
 import org.wahlzeit.services.LogBuilder;
 import org.wahlzeit.services.OfyService;
 
@@ -42,8 +43,7 @@ public class SessionCleanupServlet extends HttpServlet {
         filter(EXPIRES_PROP + " <", System.currentTimeMillis()).list();
 
     log.config(LogBuilder.createSystemMessage().
-        addParameter("number of old sessions to delete from datastore", killList.size())
-        .toString());
+        addParameter("number of old sessions to delete from datastore", killList.size()));
 
     try {
       for (Object o : killList) {
@@ -53,7 +53,8 @@ public class SessionCleanupServlet extends HttpServlet {
         String sessionId = key.getName().substring(4);
         log.config(LogBuilder.createSystemMessage().
             addAction("delete session").
-            addParameter("session id", sessionId).toString());
+            addParameter("session id", sessionId));
+        UserSessionCache.getInstance().remove(sessionId);
         Client client = UserManager.getInstance().getClientByHttpSessionId(sessionId);
         if (client != null && client instanceof Guest) {
           UserManager.getInstance().deleteClient(client);
@@ -63,7 +64,7 @@ public class SessionCleanupServlet extends HttpServlet {
       response.setStatus(HttpServletResponse.SC_OK);
     } catch (Exception e) {
       log.config(LogBuilder.createSystemMessage().
-          addException("problem when deleting session and guest", e).toString());
+          addException("problem when deleting session and guest", e));
       response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
     }
   }
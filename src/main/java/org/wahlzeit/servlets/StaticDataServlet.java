@@ -36,7 +36,7 @@ public class StaticDataServlet extends AbstractServlet {
           addAction("Provide static resource").
           addParameter("type", type).
           addParameter("photoId", photoId).
-          addParameter("size", size).toString());
+          addParameter("size", size));
 
       if ("image".equals(type)) {
         Image image = getImage(photoId, size);
@@ -45,18 +45,17 @@ public class StaticDataServlet extends AbstractServlet {
           response.getOutputStream().flush();
           response.setStatus(HttpStatus.SC_OK);
         } else {
-          log.warning(LogBuilder.createSystemMessage().addMessage("image not found").toString());
+          log.warning(LogBuilder.createSystemMessage().addMessage("image not found"));
           response.setStatus(HttpStatus.SC_NOT_FOUND);
         }
       } else {
         log.warning(LogBuilder.createSystemMessage().
-            addMessage("unimplemented static resource type has been requested").toString());
+            addMessage("unimplemented static resource type has been requested"));
         response.setStatus(HttpStatus.SC_NOT_IMPLEMENTED);
       }
 
     } catch (Exception e) {
-      log.severe(LogBuilder.createSystemMessage().addException("Problem when loading image", e)
-          .toString());
+      log.severe(LogBuilder.createSystemMessage().addException("Problem when loading image", e));
     }
   }
 
@@ -79,8 +78,7 @@ public class StaticDataServlet extends AbstractServlet {
       try {
         rawImage = ImageStorage.getInstance().readImage(photoId, size);
       } catch (IOException e) {
-        log.warning(LogBuilder.createSystemMessage().addException("Problem when reading image.", e)
-            .toString());
+        log.warning(LogBuilder.createSystemMessage().addException("Problem when reading image.", e));
       }
       if (rawImage != null && rawImage instanceof Image) {
         image = (Image) rawImage;
@@ -21,6 +21,8 @@
 package org.wahlzeit.utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
 
 /**
  * A set of utility functions for HTML formatting.
@@ -80,51 +82,155 @@ public class HtmlUtil {
    *
    */
   public static String asHref(String link, String body) {
-    return "<a href=\"" + link + "\" rel=\"nofollow\">" + body + "</a>";
+    return appendHref(new StringBuilder(link.length() + body.length() + 36), link, body)
+        .toString();
   }
 
   /**
    *
    */
   public static String asImg(String link) {
-    return "<img src=\"" + link + "\" />";
+    return appendImg(new StringBuilder(link.length() + 16), link).toString();
   }
 
   /**
    *
    */
   public static String asImg(String link, int width, int height) {
-    return "<img src=\"" + link + "\" width=\"" + width + "\" height=\"" + height + "\" />";
+    return appendImg(new StringBuilder(link.length() + 48), link, width, height).toString();
   }
 
   /**
    *
    */
   public static String asP(String value) {
-    return "<p>" + value + "</p>";
+    return appendP(new StringBuilder(value.length() + 7), value).toString();
   }
 
   /**
-   *
+   * @return the string with HTML special characters masked, the string itself if there are none
    */
   public static String maskForWeb(String s) {
-    StringBuffer result = new StringBuffer(s.length() + 16);
-    for (int i = 0; i < s.length(); i++) {
+    int first = indexOfMaskedChar(s, 0);
+    if (first == -1) {
+      return s;
+    }
+
+    StringBuilder result = new StringBuilder(s.length() + 16);
+    try {
+      appendMasked(result, s, first);
+    } catch (IOException ex) {
+      // a StringBuilder does not throw
+      throw new IllegalStateException(ex);
+    }
+    return result.toString();
+  }
+
+  /**
+   * @methodtype boolean-query
+   */
+  public static boolean isMaskFree(String s) {
+    return indexOfMaskedChar(s, 0) == -1;
+  }
+
+  /**
+   * Like asHref(link, body) but without creating a string
+   */
+  public static StringBuilder appendHref(StringBuilder out, String link, String body) {
+    return out.append("<a href=\"").append(link).append("\" rel=\"nofollow\">").append(body)
+        .append("</a>");
+  }
+
+  /**
+   * @see #asImg(String)
+   */
+  public static StringBuilder appendImg(StringBuilder out, String link) {
+    return out.append("<img src=\"").append(link).append("\" />");
+  }
+
+  /**
+   * @see #asImg(String, int, int)
+   */
+  public static StringBuilder appendImg(StringBuilder out, String link, int width, int height) {
+    return out.append("<img src=\"").append(link).append("\" width=\"").append(width)
+        .append("\" height=\"").append(height).append("\" />");
+  }
+
+  /**
+   * @see #asP(String)
+   */
+  public static StringBuilder appendP(StringBuilder out, String value) {
+    return out.append("<p>").append(value).append("</p>");
+  }
+
+  /**
+   * Writes the string with HTML special characters masked; the runs between them are written as
+   * they are, so no masked copy of the string is created
+   *
+   * @param out usually the Writer of a page
+   */
+  public static void appendMasked(Appendable out, String s) throws IOException {
+    int first = indexOfMaskedChar(s, 0);
+    if (first == -1) {
+      appendRun(out, s, 0, s.length());
+    } else {
+      appendMasked(out, s, first);
+    }
+  }
+
+  /**
+   * @param first index of the first character to mask
+   * @methodtype helper
+   */
+  protected static void appendMasked(Appendable out, String s, int first) throws IOException {
+    int start = 0;
+    for (int i = first; i != -1; i = indexOfMaskedChar(s, start)) {
+      appendRun(out, s, start, i);
       char c = s.charAt(i);
       if (c == '&') {
-        result.append("&amp;");
+        out.append("&amp;");
       } else if (c == '"') {
-        result.append("&quot;");
+        out.append("&quot;");
       } else if (c == '<') {
-        result.append("&lt;");
-      } else if (c == '>') {
-        result.append("&gt;");
+        out.append("&lt;");
       } else {
-        result.append(c);
+        out.append("&gt;");
       }
+      start = i + 1;
     }
+    appendRun(out, s, start, s.length());
+  }
 
-    return result.toString();
+  /**
+   * @return index of the next character to mask, -1 if there is none
+   * @methodtype helper
+   */
+  protected static int indexOfMaskedChar(String s, int start) {
+    for (int i = start, length = s.length(); i < length; i++) {
+      char c = s.charAt(i);
+      if (c == '&' || c == '"' || c == '<' || c == '>') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Appends part of the string; a Writer gets it without a substring
+   *
+   * @methodtype helper
+   */
+  protected static void appendRun(Appendable out, String s, int start, int end)
+      throws IOException {
+    if (start == end) {
+      return;
+    }
+
+    if (out instanceof Writer) {
+      ((Writer) out).write(s, start, end - start);
+    } else {
+      out.append(s, start, end);
+    }
   }
 
 }
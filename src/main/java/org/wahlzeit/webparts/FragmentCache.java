@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.webparts;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.wahlzeit.utils.ParameterUtil;
+
+/**
+ * Keeps rendered WebParts which look the same for every user, like info parts. A fragment is
+ * keyed by its template, which includes the language, and the values it declares as its inputs.
+ * Fragments of a template are dropped if the template is invalidated or replaced by a newly
+ * loaded one.
+ */
+public class FragmentCache {
+
+  /**
+   * Default maximum number of fragments; more are rendered but not kept
+   */
+  public static final int DEFAULT_MAX_FRAGMENTS = 1000;
+
+  /**
+   * Separates the template name and the inputs in a key
+   */
+  protected static final char KEY_SEPARATOR = '\u0000';
+
+  /**
+   *
+   */
+  protected static final FragmentCache instance = new FragmentCache();
+
+  /**
+   *
+   */
+  protected final Map<String, Fragment> fragments = new ConcurrentHashMap<String, Fragment>();
+
+  protected volatile int maxFragments = DEFAULT_MAX_FRAGMENTS;
+
+  /**
+   * @methodtype get
+   */
+  public static FragmentCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * @return the rendered template without values
+   */
+  public Fragment getFragment(WebPartTemplate template) {
+    Map<String, String> none = Collections.emptyMap();
+    return getFragment(template, none);
+  }
+
+  /**
+   * Looks up the fragment or renders the template with the inputs as string values
+   *
+   * @param inputs all values the fragment depends on
+   */
+  public Fragment getFragment(WebPartTemplate template, Map<String, String> inputs) {
+    ParameterUtil.assertNotNull(template, "template");
+    ParameterUtil.assertNotNull(inputs, "inputs");
+
+    SortedMap<String, String> sortedInputs = new TreeMap<String, String>(inputs);
+    String key = asKey(template.getName(), sortedInputs);
+    Fragment result = fragments.get(key);
+    if (result != null && result.template == template) {
+      return result;
+    }
+
+    WebPart part = new WebPart(template);
+    for (Map.Entry<String, String> input : sortedInputs.entrySet()) {
+      part.addString(input.getKey(), input.getValue());
+    }
+    result = new Fragment(template, render(part));
+
+    if (fragments.size() < maxFragments || fragments.containsKey(key)) {
+      fragments.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Drops the fragments of the template, e.g. when it has changed
+   *
+   * @param templateName full name of the template including the language
+   */
+  public void invalidate(String templateName) {
+    String prefix = templateName + KEY_SEPARATOR;
+    for (Iterator<String> i = fragments.keySet().iterator(); i.hasNext(); ) {
+      if (i.next().startsWith(prefix)) {
+        i.remove();
+      }
+    }
+  }
+
+  /**
+   * Drops all fragments, e.g. when the configuration has changed
+   *
+   * @methodtype command
+   */
+  public void invalidateAll() {
+    fragments.clear();
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int size() {
+    return fragments.size();
+  }
+
+  /**
+   * @methodtype get
+   */
+  public int getMaxFragments() {
+    return maxFragments;
+  }
+
+  /**
+   * @methodtype set
+   */
+  public void setMaxFragments(int maxFragments) {
+    ParameterUtil.assertNumberInRange((double) maxFragments, 0.0, (double) Integer.MAX_VALUE,
+        "maxFragments");
+    this.maxFragments = maxFragments;
+  }
+
+  /**
+   * @methodtype conversion
+   */
+  protected static String asKey(String templateName, SortedMap<String, String> inputs) {
+    StringBuilder result = new StringBuilder(templateName).append(KEY_SEPARATOR);
+    for (Map.Entry<String, String> input : inputs.entrySet()) {
+      result.append(input.getKey()).append(KEY_SEPARATOR).append(input.getValue());
+      result.append(KEY_SEPARATOR);
+    }
+    return result.toString();
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected static String render(WebPart part) {
+    StringWriter result = new StringWriter();
+    try {
+      part.writeOn(result);
+    } catch (IOException ex) {
+      // a StringWriter does not throw
+      throw new IllegalStateException(ex);
+    }
+    return result.toString();
+  }
+
+  /**
+   * A rendered WebPart, kept as text and as UTF-8 bytes
+   */
+  public static class Fragment implements Writable {
+
+    protected final WebPartTemplate template;
+    protected final String text;
+    protected final byte[] bytes;
+
+    protected Fragment(WebPartTemplate template, String text) {
+      this.template = template;
+      this.text = text;
+      this.bytes = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     *
+     */
+    public void writeOn(Writer out) throws IOException {
+      if (out instanceof Utf8Writer) {
+        ((Utf8Writer) out).writeBytes(bytes);
+      } else {
+        out.write(text);
+      }
+    }
+
+    /**
+     * @methodtype get
+     */
+    public String asString() {
+      return text;
+    }
+  }
+
+}
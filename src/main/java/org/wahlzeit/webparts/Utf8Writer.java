@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2006-2017 by Fabian Arnold
+ *
+ * This file is part of the Wahlzeit photo rating application.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package org.wahlzeit.webparts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import org.wahlzeit.utils.ParameterUtil;
+
+/**
+ * A Writer encoding UTF-8 into a buffer it passes on to an OutputStream. Already encoded bytes,
+ * like the literal chunks of a {@link WebPartTemplate}, are written as they are, so only dynamic
+ * values are encoded per request. Not thread-safe, unlike most Writers.
+ */
+public class Utf8Writer extends Writer {
+
+  /**
+   *
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /**
+   * Replacement for unpaired surrogates, like String.getBytes does
+   */
+  protected static final byte REPLACEMENT = (byte) '?';
+
+  /**
+   *
+   */
+  protected final OutputStream out;
+  protected final byte[] buffer;
+  protected int count = 0;
+
+  /**
+   * Number of bytes passed on to the stream
+   */
+  protected long bytesWritten = 0;
+
+  /**
+   * High surrogate waiting for its low surrogate, 0 if none
+   */
+  protected char highSurrogate = 0;
+
+  /**
+   *
+   */
+  public Utf8Writer(OutputStream out) {
+    this(out, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   *
+   */
+  public Utf8Writer(OutputStream out, int bufferSize) {
+    ParameterUtil.assertNotNull(out, "out");
+    ParameterUtil.assertNumberInRange((double) bufferSize, 4.0, (double) Integer.MAX_VALUE,
+        "bufferSize");
+    this.out = out;
+    this.buffer = new byte[bufferSize];
+  }
+
+  /**
+   * Writes UTF-8 encoded bytes
+   *
+   * @methodtype command
+   */
+  public void writeBytes(byte[] bytes) throws IOException {
+    writeBytes(bytes, 0, bytes.length);
+  }
+
+  /**
+   * @methodtype command
+   */
+  public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+    flushSurrogate();
+    if (length > buffer.length - count) {
+      flushBuffer();
+      if (length >= buffer.length) {
+        out.write(bytes, offset, length);
+        bytesWritten += length;
+        return;
+      }
+    }
+    System.arraycopy(bytes, offset, buffer, count, length);
+    count += length;
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    writeChar((char) c);
+  }
+
+  @Override
+  public void write(String s, int offset, int length) throws IOException {
+    int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      // fast path for ASCII
+      if (highSurrogate == 0) {
+        int limit = Math.min(end, i + buffer.length - count);
+        char c;
+        while (i < limit && (c = s.charAt(i)) < 0x80) {
+          buffer[count++] = (byte) c;
+          i++;
+        }
+        if (count == buffer.length) {
+          flushBuffer();
+        }
+        if (i == end) {
+          break;
+        }
+      }
+      writeChar(s.charAt(i++));
+    }
+  }
+
+  @Override
+  public void write(char[] chars, int offset, int length) throws IOException {
+    for (int i = offset, end = offset + length; i < end; i++) {
+      writeChar(chars[i]);
+    }
+  }
+
+  /**
+   * Writes the buffered bytes and flushes the stream
+   */
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flushSurrogate();
+    flush();
+    out.close();
+  }
+
+  /**
+   * @return number of bytes written to the stream so far, without the buffered ones
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void writeChar(char c) throws IOException {
+    if (buffer.length - count < 4) {
+      flushBuffer();
+    }
+
+    if (highSurrogate != 0) {
+      if (Character.isLowSurrogate(c)) {
+        int codePoint = Character.toCodePoint(highSurrogate, c);
+        highSurrogate = 0;
+        buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+        buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+        return;
+      }
+      highSurrogate = 0;
+      buffer[count++] = REPLACEMENT;
+    }
+
+    if (c < 0x80) {
+      buffer[count++] = (byte) c;
+    } else if (c < 0x800) {
+      buffer[count++] = (byte) (0xc0 | (c >> 6));
+      buffer[count++] = (byte) (0x80 | (c & 0x3f));
+    } else if (Character.isHighSurrogate(c)) {
+      highSurrogate = c;
+    } else if (Character.isLowSurrogate(c)) {
+      buffer[count++] = REPLACEMENT;
+    } else {
+      buffer[count++] = (byte) (0xe0 | (c >> 12));
+      buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+      buffer[count++] = (byte) (0x80 | (c & 0x3f));
+    }
+  }
+
+  /**
+   * Replaces a high surrogate which is not followed by a low surrogate
+   *
+   * @methodtype helper
+   */
+  protected void flushSurrogate() throws IOException {
+    if (highSurrogate != 0) {
+      highSurrogate = 0;
+      if (count == buffer.length) {
+        flushBuffer();
+      }
+      buffer[count++] = REPLACEMENT;
+    }
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void flushBuffer() throws IOException {
+    if (count > 0) {
+      out.write(buffer, 0, count);
+      bytesWritten += count;
+      count = 0;
+    }
+  }
+
+}
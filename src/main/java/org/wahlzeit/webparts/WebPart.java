@@ -22,7 +22,6 @@ package org.wahlzeit.webparts;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashMap;
 import java.util.Map;
 import org.wahlzeit.utils.EnumValue;
 import org.wahlzeit.utils.HtmlUtil;
@@ -31,6 +30,7 @@ import org.wahlzeit.utils.HtmlUtil;
  * A WebPart is a Writable formatted as HTML, working off a template.
  * A WebPart has its data set from a client using key/value pairs.
  * A WebPart has a recursive structure; it may contain further WebParts.
+ * The values are kept by the slot ids of the template; values for keys without a slot are ignored.
  */
 public class WebPart implements Writable {
 
@@ -40,19 +40,24 @@ public class WebPart implements Writable {
   protected WebPartTemplate template = null;
 
   /**
-   *
+   * Values indexed by slot id
    */
-  protected Map<String, Object> parts = new HashMap<String, Object>();
+  protected Object[] parts;
 
   /**
    *
    */
   public WebPart(WebPartTemplate myTemplate) {
     template = myTemplate;
+    parts = new Object[myTemplate.getSlotIdCount()];
   }
 
+  /**
+   *
+   */
   public Object getValue(String key) {
-    return parts.get(key);
+    int slotId = template.getSlotId(key);
+    return slotId != -1 ? parts[slotId] : null;
   }
 
   /**
@@ -69,7 +74,7 @@ public class WebPart implements Writable {
    */
   public void maskAndAddString(String key, String value) {
     if (value != null) {
-      putValue(key, HtmlUtil.maskForWeb(value));
+      putValue(key, asMaskedValue(value));
     }
   }
 
@@ -89,7 +94,7 @@ public class WebPart implements Writable {
   public void maskAndAddStringFromArgs(Map args, String key) {
     Object value = args.get(key);
     if (value != null) {
-      addString(key, HtmlUtil.maskForWeb(value.toString()));
+      maskAndAddString(key, value.toString());
     }
   }
 
@@ -111,9 +116,9 @@ public class WebPart implements Writable {
   public void maskAndAddStringFromArgsWithDefault(Map args, String key, String defval) {
     Object value = args.get(key);
     if (value != null) {
-      addString(key, HtmlUtil.maskForWeb(value.toString()));
+      maskAndAddString(key, value.toString());
     } else {
-      addString(key, HtmlUtil.maskForWeb(defval));
+      maskAndAddString(key, defval);
     }
   }
 
@@ -164,12 +169,23 @@ public class WebPart implements Writable {
     }
   }
 
+  /**
+   * @return the value if there is nothing to mask, otherwise a value masked when written
+   * @methodtype conversion
+   */
+  protected static Object asMaskedValue(String value) {
+    return HtmlUtil.isMaskFree(value) ? value : new MaskedValue(value);
+  }
+
   /**
    *
    */
   protected void putValue(String key, Object value) {
     if (value != null) {
-      parts.put(key, value);
+      int slotId = template.getSlotId(key);
+      if (slotId != -1) {
+        parts[slotId] = value;
+      }
     }
   }
 
@@ -177,33 +193,68 @@ public class WebPart implements Writable {
    *
    */
   public void writeOn(Writer out) throws IOException {
-    String tmpl = template.asString();
-    String[] keys = template.getKeys();
-    int[] slots = template.getSlots();
-
-    int start = 0;
-    for (int i = 0; i < keys.length; i++) {
-      int index = slots[i];
-      out.write(tmpl, start, index - start);
-
-      String key = keys[i];
-      if (key != null) {
-        Object object = parts.get(key);
-        if (object != null) {
-          if (object instanceof Writable) {
-            Writable part = (Writable) object;
-            part.writeOn(out);
-          } else {
-            String value = object.toString();
-            out.write(value);
-          }
-        }
-      }
+    if (out instanceof Utf8Writer) {
+      writeOn((Utf8Writer) out);
+      return;
+    }
 
-      start = index;
+    String[] chunks = template.chunks;
+    int[] slots = template.slots;
+
+    out.write(chunks[0]);
+    for (int i = 0; i < slots.length; i++) {
+      writeValue(parts[slots[i]], out);
+      out.write(chunks[i + 1]);
     }
+  }
 
-    out.write(tmpl, start, tmpl.length() - start);
+  /**
+   * Writes the literal chunks as they are, only the values are encoded
+   */
+  public void writeOn(Utf8Writer out) throws IOException {
+    byte[][] chunks = template.byteChunks;
+    int[] slots = template.slots;
+
+    out.writeBytes(chunks[0]);
+    for (int i = 0; i < slots.length; i++) {
+      writeValue(parts[slots[i]], out);
+      out.writeBytes(chunks[i + 1]);
+    }
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void writeValue(Object value, Writer out) throws IOException {
+    if (value instanceof Writable) {
+      ((Writable) value).writeOn(out);
+    } else if (value != null) {
+      out.write(value.toString());
+    }
+  }
+
+  /**
+   * A string which is masked for HTML while being written
+   */
+  protected static class MaskedValue implements Writable {
+
+    protected final String value;
+
+    protected MaskedValue(String value) {
+      this.value = value;
+    }
+
+    public void writeOn(Writer out) throws IOException {
+      HtmlUtil.appendMasked(out, value);
+    }
+
+    /**
+     * @return the masked value
+     */
+    @Override
+    public String toString() {
+      return HtmlUtil.maskForWeb(value);
+    }
   }
 
 }
@@ -20,30 +20,61 @@
 
 package org.wahlzeit.webparts;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A WebPartTmpl is a template for a WebPart.
  * It gets initialized once and is read-only after that.
+ *
+ * Initializing compiles the source into literal chunks and the slots between them. Every distinct
+ * key gets a slot id, so a WebPart keeps its values in an array indexed by slot id and renders by
+ * alternating chunks and slot values. The chunks are also kept UTF-8 encoded for rendering to a
+ * {@link Utf8Writer}.
  */
 public class WebPartTemplate {
 
   /**
    *
    */
-  protected String name;
+  protected static final String SLOT_START = "{$";
+  protected static final char SLOT_END = '}';
 
   /**
    *
    */
-  protected String template;
+  protected String name;
+
+  /**
+   * Literal text; chunks[i] precedes the i-th slot, the last chunk follows the last slot
+   */
+  protected String[] chunks = {""};
+
+  /**
+   * The chunks encoded as UTF-8
+   */
+  protected byte[][] byteChunks = {{}};
+
+  /**
+   * Slot id of each slot in template order
+   */
+  protected int[] slots = {};
+
+  /**
+   * Key of each slot id
+   */
+  protected String[] keys = {};
 
   /**
    *
    */
-  protected String[] keys = null;
-  protected int[] slots = null;
+  protected Map<String, Integer> slotIds = Collections.emptyMap();
 
   /**
    *
@@ -56,39 +87,84 @@ public class WebPartTemplate {
    * @methodtype initialization
    */
   public void initialize(String source) {
-    List<String> keyList = new LinkedList<String>();
-    List<Integer> slotList = new LinkedList<Integer>();
-
-    StringBuffer buffer = new StringBuffer(source);
+    List<String> chunkList = new ArrayList<String>();
+    List<String> slotKeyList = new ArrayList<String>();
+
+    int start = 0;
+    while (true) {
+      int nextSlot = source.indexOf(SLOT_START, start);
+      int endSlot = nextSlot == -1 ? -1 : source.indexOf(SLOT_END, nextSlot);
+      if (endSlot == -1) {
+        break;
+      }
 
-    for (int index = 0; index != -1; ) {
-      int nextSlot = buffer.indexOf("{$", index);
-      if (nextSlot != -1) {
-        int endSlot = buffer.indexOf("}", nextSlot);
-        if (endSlot != -1) {
-          String key = buffer.substring(nextSlot + 2, endSlot);
+      chunkList.add(source.substring(start, nextSlot));
+      slotKeyList.add(source.substring(nextSlot + SLOT_START.length(), endSlot));
+      start = endSlot + 1;
+    }
+    chunkList.add(source.substring(start));
 
-          keyList.add(key);
-          slotList.add(nextSlot);
+    initialize(chunkList, slotKeyList);
+  }
 
-          buffer.replace(nextSlot, endSlot + 1, "");
-          index = nextSlot;
+  /**
+   * Renders the part into this template; only the slots of the given keys remain, the part's
+   * values for these keys are replaced. Unlike parsing, this keeps text like "{$" in values.
+   *
+   * @methodtype initialization
+   */
+  public void initialize(WebPart part, String... slotKeys) {
+    final Recorder recorder = new Recorder();
+    for (final String key : slotKeys) {
+      part.addWritable(key, new Writable() {
+        public void writeOn(Writer out) throws IOException {
+          recorder.addSlot(key);
         }
-        index = endSlot;
-      } else {
-        index = -1;
+      });
+    }
+
+    try {
+      part.writeOn(recorder);
+    } catch (IOException ex) {
+      // the recorder does not throw
+      throw new IllegalStateException(ex);
+    }
+
+    recorder.chunks.add(recorder.text.toString());
+    initialize(recorder.chunks, recorder.slotKeys);
+  }
+
+  /**
+   * @param chunkList literal text, one more than slots
+   * @param slotKeyList key of each slot in template order
+   * @methodtype initialization
+   */
+  protected void initialize(List<String> chunkList, List<String> slotKeyList) {
+    List<String> keyList = new ArrayList<String>();
+    Map<String, Integer> slotIdMap = new HashMap<String, Integer>();
+
+    int[] newSlots = new int[slotKeyList.size()];
+    for (int i = 0; i < newSlots.length; i++) {
+      String key = slotKeyList.get(i);
+      Integer slotId = slotIdMap.get(key);
+      if (slotId == null) {
+        slotId = keyList.size();
+        slotIdMap.put(key, slotId);
+        keyList.add(key);
       }
+      newSlots[i] = slotId;
     }
 
-    int length = keyList.size();
-    keys = new String[length];
-    slots = new int[length];
-    for (int i = 0; i < length; i++) {
-      keys[i] = keyList.get(i);
-      slots[i] = slotList.get(i);
+    byte[][] newByteChunks = new byte[chunkList.size()][];
+    for (int i = 0; i < newByteChunks.length; i++) {
+      newByteChunks[i] = chunkList.get(i).getBytes(StandardCharsets.UTF_8);
     }
 
-    template = buffer.toString();
+    chunks = chunkList.toArray(new String[chunkList.size()]);
+    byteChunks = newByteChunks;
+    slots = newSlots;
+    keys = keyList.toArray(new String[keyList.size()]);
+    slotIds = Collections.unmodifiableMap(slotIdMap);
   }
 
   /**
@@ -99,24 +175,75 @@ public class WebPartTemplate {
   }
 
   /**
-   *
+   * @return id of the slot for the key, -1 if the template has no such slot
    */
-  public String asString() {
-    return template;
+  public int getSlotId(String key) {
+    Integer result = slotIds.get(key);
+    return result != null ? result : -1;
   }
 
   /**
-   *
+   * @return number of distinct slot ids
    */
-  public String[] getKeys() {
-    return keys; // @FIXME needs cloning?
+  public int getSlotIdCount() {
+    return keys.length;
   }
 
   /**
    *
    */
-  public int[] getSlots() {
-    return slots; // @FIXME needs cloning?
+  public String getKey(int slotId) {
+    return keys[slotId];
+  }
+
+  /**
+   * @return the source without its slots
+   */
+  public String asString() {
+    StringBuilder result = new StringBuilder();
+    for (String chunk : chunks) {
+      result.append(chunk);
+    }
+    return result.toString();
+  }
+
+  /**
+   * Collects the text written between slots
+   */
+  protected static class Recorder extends Writer {
+
+    protected final StringBuilder text = new StringBuilder();
+    protected final List<String> chunks = new ArrayList<String>();
+    protected final List<String> slotKeys = new ArrayList<String>();
+
+    /**
+     * Ends the current chunk
+     */
+    protected void addSlot(String key) {
+      chunks.add(text.toString());
+      text.setLength(0);
+      slotKeys.add(key);
+    }
+
+    @Override
+    public void write(String s, int offset, int length) {
+      text.append(s, offset, offset + length);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      text.append(chars, offset, length);
+    }
+
+    @Override
+    public void flush() {
+      // nothing to flush
+    }
+
+    @Override
+    public void close() {
+      // nothing to close
+    }
   }
 
 }
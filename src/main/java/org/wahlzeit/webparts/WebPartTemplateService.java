@@ -24,8 +24,32 @@ import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import org.wahlzeit.services.ConfigDir;
 import org.wahlzeit.services.LogBuilder;
@@ -33,6 +57,10 @@ import org.wahlzeit.services.LogBuilder;
 /**
  * The WebPartTemplateService creates WebPartTemplates upon request by reading them from disk.
  * It requires configuration with a template directory and uses the following naming convention: tmplDir/language/part-type/part-name.html
+ *
+ * Templates can be preloaded in parallel at startup. If watching is started, changed template
+ * files are reloaded and the new template replaces the old one in a single step; requests keep
+ * using the template they got. The time each template took to load is kept.
  */
 public class WebPartTemplateService {
 
@@ -41,14 +69,37 @@ public class WebPartTemplateService {
    */
   protected static final WebPartTemplateService instance = new WebPartTemplateService();
   private static final Logger log = Logger.getLogger(WebPartTemplateService.class.getName());
+
+  /**
+   *
+   */
+  protected static final String TEMPLATE_FILE_ENDING = ".html";
+
   /**
    *
    */
-  protected Map<String, WebPartTemplate> templates = new HashMap<String, WebPartTemplate>();
+  protected final Map<String, WebPartTemplate> templates =
+      new ConcurrentHashMap<String, WebPartTemplate>();
+
+  /**
+   * Load time of each template in microseconds
+   */
+  protected final Map<String, Long> loadTimes = new ConcurrentHashMap<String, Long>();
+
+  /**
+   * Incremented whenever a loaded template is replaced
+   */
+  protected final AtomicLong revision = new AtomicLong();
+
   /**
    *
    */
-  protected ConfigDir templatesDir = null;
+  protected volatile ConfigDir templatesDir = null;
+
+  /**
+   *
+   */
+  protected WatchService watchService = null;
 
   /**
    *
@@ -68,50 +119,324 @@ public class WebPartTemplateService {
    *
    */
   public WebPartTemplate getTemplate(String lang, String name) {
-    String shortName = lang + File.separator + name;
+    return getTemplate(lang + File.separator + name);
+  }
+
+  /**
+   * @param shortName language and name of the template
+   */
+  protected WebPartTemplate getTemplate(String shortName) {
     WebPartTemplate result = templates.get(shortName);
 
     if (result == null) {
+      // loads the template only once, even if requested by several threads
+      result = templates.computeIfAbsent(shortName, new Function<String, WebPartTemplate>() {
+        @Override
+        public WebPartTemplate apply(String key) {
+          return loadTemplate(key);
+        }
+      });
+    }
+
+    return result;
+  }
+
+  /**
+   * Loads all templates of the templates directory, using several threads if available
+   *
+   * @return number of loaded templates
+   */
+  public int preloadTemplates(ThreadFactory threadFactory) {
+    long start = System.nanoTime();
+    List<String> shortNames = new ArrayList<String>(getTemplateShortNames());
+
+    int threads = Math.min(Runtime.getRuntime().availableProcessors(), shortNames.size());
+    if (threads > 1) {
+      loadTemplatesInParallel(shortNames, threads, threadFactory);
+    }
+    for (String shortName : shortNames) {
+      // picks up what has not been loaded in parallel
+      getTemplate(shortName);
+    }
+
+    log.config(LogBuilder.createSystemMessage().
+        addAction("Preload templates").
+        addParameter("templates", templates.size()).
+        addParameter("time (ms)", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    return templates.size();
+  }
+
+  /**
+   * @methodtype helper
+   */
+  protected void loadTemplatesInParallel(List<String> shortNames, int threads,
+      ThreadFactory threadFactory) {
+    ExecutorService executor = null;
+    try {
+      executor = Executors.newFixedThreadPool(threads, threadFactory);
+      List<Future<WebPartTemplate>> results = new ArrayList<Future<WebPartTemplate>>();
+      for (final String shortName : shortNames) {
+        results.add(executor.submit(new Callable<WebPartTemplate>() {
+          @Override
+          public WebPartTemplate call() {
+            return getTemplate(shortName);
+          }
+        }));
+      }
+      for (Future<WebPartTemplate> result : results) {
+        result.get();
+      }
+    } catch (Exception ex) {
+      // e.g. a platform without threads; the remaining templates are loaded sequentially
+      log.warning(LogBuilder.createSystemMessage().
+          addException("Loading templates in parallel failed", ex));
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Reads and compiles a template; the default file takes precedence over the custom one
+   *
+   * @return the template, null if it cannot be read
+   */
+  protected WebPartTemplate loadTemplate(String shortName) {
+    long start = System.nanoTime();
+    String fileName = getTemplatesDir().getAbsoluteConfigFileName(
+        shortName + TEMPLATE_FILE_ENDING);
+    log.config(LogBuilder.createSystemMessage().
+        addAction("open html template file").
+        addParameter("file name", fileName));
+
+    try {
+      String source = Files.toString(new File(fileName), Charsets.UTF_8);
+      WebPartTemplate result = new WebPartTemplate(shortName);
+      result.initialize(source);
+      loadTimes.put(shortName, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+      log.config(LogBuilder.createSystemMessage().addAction("Initialize template"));
+      return result;
+    } catch (IOException ioex) {
+      log.warning(LogBuilder.createSystemMessage().
+          addParameter("template name", shortName).
+          addException("Problem loading template", ioex));
+      return null;
+    }
+  }
+
+  /**
+   * Loads the template again and replaces the old one, if it had been loaded
+   *
+   * @methodtype command
+   */
+  public void reloadTemplate(String shortName) {
+    if (!templates.containsKey(shortName)) {
+      return;
+    }
+
+    WebPartTemplate template = loadTemplate(shortName);
+    if (template != null) {
+      templates.put(shortName, template);
+    } else {
+      templates.remove(shortName);
+    }
+
+    revision.incrementAndGet();
+    FragmentCache.getInstance().invalidate(shortName);
+    log.info(LogBuilder.createSystemMessage().
+        addAction("Reload template").
+        addParameter("template name", shortName));
+  }
+
+  /**
+   * Names of all template files, as language and name
+   *
+   * @methodtype get
+   */
+  protected Set<String> getTemplateShortNames() {
+    final Set<String> result = new TreeSet<String>();
+    for (final Path root : getTemplateRoots()) {
       try {
-        loadTemplate(shortName);
-        result = templates.get(shortName);
+        java.nio.file.Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            String shortName = asShortName(root, file);
+            if (shortName != null) {
+              result.add(shortName);
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
       } catch (IOException ioex) {
         log.warning(LogBuilder.createSystemMessage().
-            addParameter("template name", shortName).
-            addException("Problem loading template", ioex).toString());
+            addParameter("directory", root).
+            addException("Problem listing templates", ioex));
       }
     }
+    return result;
+  }
 
+  /**
+   * @return the existing default and custom directories
+   */
+  protected List<Path> getTemplateRoots() {
+    List<Path> result = new ArrayList<Path>();
+    for (String dirName : new String[]{ConfigDir.DEFAULT_DIR_NAME, ConfigDir.CUSTOM_DIR_NAME}) {
+      File dir = new File(getTemplatesDir().asString(), dirName);
+      if (dir.isDirectory()) {
+        result.add(dir.toPath());
+      }
+    }
     return result;
   }
 
   /**
+   * @return language and name of the template file, null if it is no template
+   * @methodtype conversion
+   */
+  protected static String asShortName(Path root, Path file) {
+    Path relative = root.relativize(file);
+    String fileName = relative.getFileName().toString();
+    if (relative.getNameCount() < 2 || !fileName.endsWith(TEMPLATE_FILE_ENDING)) {
+      return null;
+    }
+
+    StringBuilder result = new StringBuilder(relative.getName(0).toString());
+    result.append(File.separator);
+    for (int i = 1; i < relative.getNameCount(); i++) {
+      if (i > 1) {
+        result.append('/');
+      }
+      result.append(relative.getName(i).toString());
+    }
+    result.setLength(result.length() - TEMPLATE_FILE_ENDING.length());
+    return result.toString();
+  }
+
+  /**
+   * Watches the template directories and reloads changed templates
    *
+   * @methodtype command
    */
-  protected void loadTemplate(String shortName) throws IOException {
-    WebPartTemplate template = new WebPartTemplate(shortName);
-    String fileName = getTemplatesDir().getAbsoluteConfigFileName(shortName + ".html");
-    log.config(LogBuilder.createSystemMessage().
-        addAction("open html template file").
-        addParameter("file name", fileName).toString());
-    File file = new File(fileName);
+  public synchronized void startWatching(ThreadFactory threadFactory) throws IOException {
+    if (watchService != null) {
+      return;
+    }
 
-    try {
-      String source = Files.toString(file, Charsets.UTF_8);
-      //String source = Resources.toString(Resources.getResource(fileName), Charsets.UTF_8);
+    final WatchService newWatchService = FileSystems.getDefault().newWatchService();
+    final Map<WatchKey, Path> roots = new HashMap<WatchKey, Path>();
+    for (Path root : getTemplateRoots()) {
+      registerDirectories(newWatchService, root, root, roots);
+    }
 
-      if (source != null) {
-        template.initialize(source);
-        log.config(LogBuilder.createSystemMessage().addAction("Initialize template").toString());
+    Thread watcher = threadFactory.newThread(new Runnable() {
+      @Override
+      public void run() {
+        watchTemplates(newWatchService, roots);
       }
+    });
+    watcher.setName("template watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+    watchService = newWatchService;
+  }
 
-      templates.put(shortName, template);
-    } catch (IOException e) {
+  /**
+   * @methodtype command
+   */
+  public synchronized void stopWatching() {
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException ioex) {
+        // ignore, watcher stops anyway
+      }
+      watchService = null;
+    }
+  }
+
+  /**
+   * Registers the directory and its subdirectories with the root they belong to
+   *
+   * @methodtype helper
+   */
+  protected void registerDirectories(final WatchService watcher, final Path root, Path dir,
+      final Map<WatchKey, Path> roots) throws IOException {
+    java.nio.file.Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attributes)
+          throws IOException {
+        WatchKey key = subDir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        synchronized (roots) {
+          roots.put(key, root);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Loop of the watcher thread
+   */
+  protected void watchTemplates(WatchService watcher, Map<WatchKey, Path> roots) {
+    try {
+      while (true) {
+        WatchKey key = watcher.take();
+        Path root;
+        synchronized (roots) {
+          root = roots.get(key);
+        }
+
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW || root == null) {
+            continue;
+          }
+
+          Path file = dir.resolve((Path) event.context());
+          if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+              && java.nio.file.Files.isDirectory(file)) {
+            registerDirectories(watcher, root, file, roots);
+          }
+
+          String shortName = asShortName(root, file);
+          if (shortName != null) {
+            reloadTemplate(shortName);
+          }
+        }
+
+        if (!key.reset()) {
+          synchronized (roots) {
+            roots.remove(key);
+          }
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException ex) {
+      // stopped watching
+    } catch (IOException ioex) {
       log.warning(LogBuilder.createSystemMessage().
-          addException("I/O Error while reading Template file", e).toString());
+          addException("Watching templates failed", ioex));
     }
   }
 
+  /**
+   * @return load time of each loaded template in microseconds
+   */
+  public Map<String, Long> getLoadTimes() {
+    return Collections.unmodifiableMap(new HashMap<String, Long>(loadTimes));
+  }
+
+  /**
+   * @return number of templates replaced by reloading
+   */
+  public long getRevision() {
+    return revision.get();
+  }
+
   /**
    *
    */
@@ -120,10 +445,13 @@ public class WebPartTemplateService {
   }
 
   /**
-   *
+   * Drops all loaded templates, they are loaded from the new directory when needed
    */
   public void setTemplatesDir(ConfigDir newTemplatesDir) {
     templatesDir = newTemplatesDir;
+    templates.clear();
+    loadTimes.clear();
+    revision.incrementAndGet();
   }
 
 }
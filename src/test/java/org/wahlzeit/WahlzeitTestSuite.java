@@ -7,13 +7,15 @@ import org.wahlzeit.model.ModelTestSuite;
 import org.wahlzeit.model.persistence.PersistenceTestSuite;
 import org.wahlzeit.services.ServicesTestSuite;
 import org.wahlzeit.utils.UtilsTestSuite;
+import org.wahlzeit.webparts.WebPartsTestSuite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
         HandlersTestSuite.class,
         ModelTestSuite.class,
         ServicesTestSuite.class,
-        UtilsTestSuite.class
+        UtilsTestSuite.class,
+        WebPartsTestSuite.class
 })
 public class WahlzeitTestSuite {
 }
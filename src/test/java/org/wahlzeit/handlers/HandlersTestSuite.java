@@ -5,7 +5,9 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        TellFriendTest.class
+        PhotoPageCacheTest.class,
+        TellFriendTest.class,
+        WebPartHandlerManagerTest.class
 })
 public class HandlersTestSuite {
 }
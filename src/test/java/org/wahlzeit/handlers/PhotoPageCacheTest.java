@@ -0,0 +1,79 @@
+package org.wahlzeit.handlers;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+import org.wahlzeit.model.Photo;
+import org.wahlzeit.model.PhotoId;
+import org.wahlzeit.model.PhotoSize;
+import org.wahlzeit.model.PhotoStatus;
+import org.wahlzeit.model.Tags;
+import org.wahlzeit.testEnvironmentProvider.LocalDatastoreServiceTestConfigProvider;
+import org.wahlzeit.testEnvironmentProvider.RegisteredOfyEnvironmentProvider;
+import org.wahlzeit.webparts.WebPartTemplate;
+
+/**
+ * Test cases for the {@link PhotoPageCache}
+ */
+public class PhotoPageCacheTest {
+
+  @Rule
+  public TestRule chain = RuleChain.
+      outerRule(new LocalDatastoreServiceTestConfigProvider()).
+      around(new RegisteredOfyEnvironmentProvider());
+
+  private PhotoPageCache cache;
+  private Photo photo;
+  private WebPartTemplate page;
+  private String key;
+
+  @Before
+  public void setUp() {
+    cache = new PhotoPageCache();
+    photo = new Photo(PhotoId.getNextId());
+    photo.setStatus(PhotoStatus.VISIBLE);
+    page = new WebPartTemplate("pages/ShowPhotoPage");
+    page.initialize("page");
+    key = PhotoPageCache.asKey(photo.getId(), "en", PhotoSize.MEDIUM, "http://localhost/");
+    cache.putPage(key, photo, page);
+  }
+
+  @Test
+  public void testPageIsReused() {
+    Assert.assertSame(page, cache.getPage(key, photo));
+    String otherKey =
+        PhotoPageCache.asKey(photo.getId(), "de", PhotoSize.MEDIUM, "http://localhost/");
+    Assert.assertNull(cache.getPage(otherKey, photo));
+  }
+
+  @Test
+  public void testPraiseInvalidates() {
+    photo.addToPraise(5);
+    Assert.assertNull(cache.getPage(key, photo));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testTagsInvalidate() {
+    photo.setTags(new Tags("flower"));
+    Assert.assertNull(cache.getPage(key, photo));
+  }
+
+  @Test
+  public void testStatusInvalidates() {
+    photo.setStatus(PhotoStatus.FLAGGED);
+    Assert.assertNull(cache.getPage(key, photo));
+  }
+
+  @Test
+  public void testExplicitInvalidation() {
+    cache.invalidate(PhotoId.getNextId());
+    Assert.assertEquals(1, cache.size());
+    cache.invalidate(photo.getId());
+    Assert.assertEquals(0, cache.size());
+  }
+
+}
@@ -0,0 +1,96 @@
+package org.wahlzeit.handlers;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wahlzeit.model.PhotoId;
+
+/**
+ * Test cases for the routing of the {@link WebPartHandlerManager}
+ */
+public class WebPartHandlerManagerTest {
+
+  private WebPartHandlerManager manager;
+  private WebPageHandler indexHandler;
+  private WebPageHandler aboutHandler;
+  private WebFormHandler loginHandler;
+  private WebFormHandler nullFormHandler;
+
+  @Before
+  public void setUp() {
+    manager = new WebPartHandlerManager();
+    indexHandler = mock(WebPageHandler.class, withSettings().extraInterfaces(WebFormHandler.class));
+    aboutHandler = mock(WebPageHandler.class);
+    loginHandler = mock(WebFormHandler.class);
+    nullFormHandler = mock(WebFormHandler.class);
+
+    manager.addWebPartHandler(PartUtil.DEFAULT_PAGE_NAME, indexHandler);
+    manager.addWebPartHandler("about", aboutHandler);
+    manager.addWebPartHandler("aboutForm", loginHandler);
+    manager.addWebPartHandler(PartUtil.NULL_FORM_NAME, nullFormHandler);
+  }
+
+  @Test
+  public void testResolvePage() {
+    WebPartHandlerManager.Route<WebPageHandler> route = manager.resolvePage("/about.html");
+    Assert.assertSame(aboutHandler, route.getHandler());
+    Assert.assertEquals("about", route.getLink());
+
+    route = manager.resolvePage("/app/about");
+    Assert.assertSame(aboutHandler, route.getHandler());
+    Assert.assertSame(route, manager.resolvePage("/about.html"));
+  }
+
+  @Test
+  public void testPhotoIdsAndUnknownLinksGoToDefaultPage() {
+    PhotoId photoId = PhotoId.getNextId();
+    WebPartHandlerManager.Route<WebPageHandler> route =
+        manager.resolvePage("/" + photoId.asString() + ".html");
+    Assert.assertSame(indexHandler, route.getHandler());
+    Assert.assertEquals(PartUtil.DEFAULT_PAGE_NAME, route.getName());
+    // the link is the string of the id, not a copy cut out of the URI
+    Assert.assertSame(photoId.asString(), route.getLink());
+
+    // leading zeros make no id string
+    String paddedId = "x0" + photoId.asString().substring(1);
+    route = manager.resolvePage("/" + paddedId + ".html");
+    Assert.assertSame(indexHandler, route.getHandler());
+    Assert.assertEquals(paddedId, route.getLink());
+    Assert.assertNull(PhotoId.getIdFromString(paddedId, 0, paddedId.length()));
+
+    route = manager.resolvePage("/abo.html");
+    Assert.assertSame(indexHandler, route.getHandler());
+    Assert.assertEquals("abo", route.getLink());
+
+    route = manager.resolvePage("/");
+    Assert.assertSame(indexHandler, route.getHandler());
+    Assert.assertEquals("", route.getLink());
+  }
+
+  @Test
+  public void testResolveForm() {
+    WebPartHandlerManager.Route<WebFormHandler> route = manager.resolveForm("/aboutForm.form");
+    Assert.assertSame(loginHandler, route.getHandler());
+    Assert.assertEquals("aboutForm", route.getLink());
+
+    // a page is no form, the default page handles it like before
+    route = manager.resolveForm("/about.form");
+    Assert.assertSame(indexHandler, route.getHandler());
+
+    route = manager.resolveForm("/about.html");
+    Assert.assertSame(nullFormHandler, route.getHandler());
+    Assert.assertEquals(PartUtil.NULL_FORM_NAME, route.getLink());
+  }
+
+  @Test
+  public void testTypedLookup() {
+    Assert.assertSame(aboutHandler, manager.getWebPageHandlerFor("about"));
+    Assert.assertSame(indexHandler, manager.getWebPageHandlerFor("aboutForm"));
+    Assert.assertSame(loginHandler, manager.getWebFormHandlerFor("aboutForm"));
+    Assert.assertSame(indexHandler, manager.getWebFormHandlerFor("about"));
+  }
+
+}
@@ -1,6 +1,9 @@
 package org.wahlzeit.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Test;
 
@@ -30,4 +33,34 @@ public class CheeseManagerTest {
 
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testHierarchy() {
+    CheeseManager manager = CheeseManager.getInstance();
+    CheeseType blue = manager.getCheeseType("Blue");
+    CheeseType roquefort = manager.getCheeseType("Roquefort", blue);
+    CheeseType gorgonzola = manager.getCheeseType("Gorgonzola", blue);
+    CheeseType piccante = manager.getCheeseType("Gorgonzola Piccante", gorgonzola);
+    CheeseType hard = manager.getCheeseType("Hard");
+
+    assertTrue(blue.isSubtype(piccante));
+    assertTrue(gorgonzola.isSubtype(piccante));
+    assertTrue(piccante.isSubtype(piccante));
+    assertFalse(roquefort.isSubtype(piccante));
+    assertFalse(piccante.isSubtype(blue));
+    assertFalse(hard.isSubtype(piccante));
+
+    int version = manager.getHierarchy().getVersion();
+    gorgonzola.setSupertype(hard);
+    assertTrue(manager.getHierarchy().getVersion() > version);
+    assertTrue(hard.isSubtype(piccante));
+    assertFalse(blue.isSubtype(piccante));
+    assertFalse(blue.getSubtypes().contains(gorgonzola));
+
+    try {
+      hard.setSupertype(piccante);
+      fail();
+    } catch (IllegalArgumentException ignored) {
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+package org.wahlzeit.model;
+
+import static org.wahlzeit.model.CheesefoodPhotoCondition.allOf;
+import static org.wahlzeit.model.CheesefoodPhotoCondition.anyOf;
+import static org.wahlzeit.model.CheesefoodPhotoCondition.withCheeseType;
+import static org.wahlzeit.model.CheesefoodPhotoCondition.withCookingDuration;
+import static org.wahlzeit.model.CheesefoodPhotoCondition.withDifficulty;
+import static org.wahlzeit.model.CheesefoodPhotoCondition.withOvenNeeded;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for the {@link CheesefoodPhotoIndex} and the {@link CheesefoodPhotoCondition}s
+ */
+public class CheesefoodPhotoIndexTest {
+
+  private CheesefoodPhotoIndex index;
+  private CheesefoodPhoto quickBlue;
+  private CheesefoodPhoto slowBlue;
+  private CheesefoodPhoto quickHard;
+
+  @Before
+  public void setUp() {
+    CheeseManager manager = CheeseManager.getInstance();
+    CheeseType blue = manager.getCheeseType("Index blue");
+    CheeseType gorgonzola = manager.getCheeseType("Index gorgonzola", blue);
+    CheeseType hard = manager.getCheeseType("Index hard");
+
+    index = new CheesefoodPhotoIndex();
+    quickBlue = createPhoto(1, gorgonzola, 1, 20, false);
+    slowBlue = createPhoto(2, blue, 2, 90, true);
+    quickHard = createPhoto(3, hard, 1, 15, false);
+  }
+
+  @Test
+  public void testFindByAttributes() {
+    Assert.assertEquals(ids(quickBlue, slowBlue), index.findByCheeseType(
+        CheeseManager.getInstance().getCheeseType("Index blue")));
+    Assert.assertEquals(ids(quickBlue, quickHard), index.findByDifficulty(1, 1));
+    Assert.assertEquals(ids(quickBlue, quickHard), index.findByCookingDuration(0, 30));
+    Assert.assertEquals(ids(slowBlue), index.findByOvenNeeded(true));
+    Assert.assertEquals(ids(), index.findByStoveNeeded(true));
+  }
+
+  @Test
+  public void testComposedConditions() {
+    CheesefoodPhotoCondition easyBlueUnder30 = allOf(withCheeseType("Index blue"),
+        withDifficulty(1, 2), withCookingDuration(0, 30));
+    Assert.assertEquals(ids(quickBlue), easyBlueUnder30.select(index));
+
+    CheesefoodPhotoCondition hardOrOven = anyOf(withCheeseType("Index hard"),
+        withOvenNeeded(true));
+    Assert.assertEquals(ids(slowBlue, quickHard), hardOrOven.select(index));
+  }
+
+  @Test
+  public void testUnknownCheeseTypeIsNotCreated() {
+    Assert.assertEquals(ids(), withCheeseType("Index unknown").select(index));
+    Assert.assertNull(CheeseManager.getInstance().findCheeseType("Index unknown"));
+  }
+
+  @Test
+  public void testDifficultyBeyondBounds() {
+    Assert.assertEquals(ids(quickBlue, slowBlue, quickHard), index.findByDifficulty(
+        CheesefoodPhoto.MIN_DIFFICULTY - 1, CheesefoodPhoto.MAX_DIFFICULTY + 1));
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    quickBlue.setCookingDuration(45);
+    index.update(quickBlue);
+    Assert.assertEquals(ids(quickHard), index.findByCookingDuration(0, 30));
+    Assert.assertEquals(ids(quickBlue), index.findByCookingDuration(40, 50));
+
+    index.remove(quickHard.getId());
+    Assert.assertEquals(ids(), index.findByCookingDuration(0, 30));
+    Assert.assertEquals(2, index.size());
+  }
+
+  private CheesefoodPhoto createPhoto(int id, CheeseType type, int difficulty, int duration,
+      boolean ovenNeeded) {
+    CheesefoodPhoto photo = new CheesefoodPhoto(new PhotoId(id));
+    photo.setCheeses(Arrays.asList(type.newCheesefood(100, 6)));
+    photo.setDifficulty(difficulty);
+    photo.setCookingDuration(duration);
+    photo.setOvenNeeded(ovenNeeded);
+    index.update(photo);
+    return photo;
+  }
+
+  private Set<PhotoId> ids(Photo... photos) {
+    Set<PhotoId> result = new HashSet<>();
+    for (Photo photo : photos) {
+      result.add(photo.getId());
+    }
+    return result;
+  }
+}
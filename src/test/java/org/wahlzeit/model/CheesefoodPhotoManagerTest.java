@@ -2,6 +2,7 @@ package org.wahlzeit.model;
 
 import static org.junit.Assert.*;
 
+import java.util.Collections;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -21,4 +22,26 @@ public class CheesefoodPhotoManagerTest {
     CheesefoodPhotoManager cfpm = CheesefoodPhotoManager.getInstance();
     Assert.assertNotNull(cfpm);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testUpdateMaintainsIndexes() {
+    CheesefoodPhotoManager cfpm = CheesefoodPhotoManager.getInstance();
+    CheesefoodPhoto photo = new CheesefoodPhoto(PhotoId.getNextId());
+    cfpm.doAddPhoto(photo);
+
+    photo.setDifficulty(CheesefoodPhoto.MAX_DIFFICULTY);
+    cfpm.updateCheesefoodIndex(photo);
+    Assert.assertTrue(cfpm.getCheesefoodIndex().findByDifficulty(
+        CheesefoodPhoto.MAX_DIFFICULTY, CheesefoodPhoto.MAX_DIFFICULTY).contains(photo.getId()));
+
+    Coordinate origin = CartesianCoordinate.create(12, 34, 56);
+    photo.setLocation(new Location(origin));
+    Assert.assertTrue(cfpm.findPhotoIdsWithinDistance(origin, 0).isEmpty());
+
+    cfpm.updateLocation(photo);
+    Assert.assertEquals(Collections.singletonList(photo.getId()),
+        cfpm.findPhotoIdsWithinDistance(origin, 0));
+    Assert.assertTrue(
+        PhotoManager.getInstance().findPhotoIdsWithinDistance(origin, 0).isEmpty());
+  }
+}
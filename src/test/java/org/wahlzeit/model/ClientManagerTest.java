@@ -0,0 +1,65 @@
+package org.wahlzeit.model;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for the nickname registry of the {@link ClientManager}
+ */
+public class ClientManagerTest {
+
+  private ClientManager manager;
+
+  @Before
+  public void setUp() {
+    manager = new ClientManager() {
+    };
+  }
+
+  @Test
+  public void testRename() {
+    manager.reserveNickname("alice");
+    manager.changeNickname("alice", "bob");
+    Assert.assertFalse(manager.isNicknameUsed("alice"));
+    Assert.assertTrue(manager.isNicknameUsed("bob"));
+
+    manager.reserveNickname("alice");
+    try {
+      manager.changeNickname("alice", "bob");
+      Assert.fail("Nickname bob is used twice");
+    } catch (IllegalArgumentException ignored) {
+    }
+    Assert.assertTrue(manager.isNicknameUsed("alice"));
+  }
+
+  @Test
+  public void testConcurrentReserve() throws InterruptedException {
+    final int threadCount = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicInteger reserved = new AtomicInteger();
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            manager.reserveNickname("carol");
+            reserved.incrementAndGet();
+          } catch (IllegalArgumentException | InterruptedException ignored) {
+          }
+        }
+      });
+      threads[i].start();
+    }
+
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(1, reserved.get());
+  }
+}
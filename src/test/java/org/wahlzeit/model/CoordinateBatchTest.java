@@ -0,0 +1,92 @@
+package org.wahlzeit.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compares the batch distance calculation with the distances of single coordinates
+ */
+public class CoordinateBatchTest {
+
+  private static final double EPSILON = 0.000001;
+
+  @Test
+  public void testDistances() {
+    Random random = new Random(7);
+    CoordinateBatch batch = new CoordinateBatch(1);
+    List<Coordinate> coordinates = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      Coordinate coordinate;
+      if (i % 2 == 0) {
+        coordinate = SphericCoordinate.create(random.nextDouble() * 180 - 90,
+            random.nextDouble() * 360 - 180, random.nextDouble() * 10000);
+      } else {
+        coordinate = CartesianCoordinate.create(random.nextDouble() * 100,
+            random.nextDouble() * 100, random.nextDouble() * 100);
+      }
+      Assert.assertEquals(i, batch.add(coordinate));
+      coordinates.add(coordinate);
+    }
+
+    SphericCoordinate origin = SphericCoordinate.create(12, 34, 5000);
+    double[] distances = DistanceCalculator.distances(origin, batch, null);
+
+    Assert.assertEquals(300, batch.size());
+    for (int i = 0; i < coordinates.size(); i++) {
+      Assert.assertEquals(origin.getDistance(coordinates.get(i)), distances[i], EPSILON);
+      if (coordinates.get(i) instanceof SphericCoordinate) {
+        Assert.assertEquals(DistanceCalculator
+                .sphericDistance(origin, (SphericCoordinate) coordinates.get(i)), distances[i],
+            EPSILON);
+      }
+    }
+  }
+
+  @Test
+  public void testIndexesByDistance() {
+    CoordinateBatch batch = new CoordinateBatch();
+    batch.add(CartesianCoordinate.create(3, 0, 0));
+    batch.add(NoWhereCoordinate.create());
+    batch.add(CartesianCoordinate.create(1, 0, 0));
+    batch.add(CartesianCoordinate.create(0, 2, 0));
+
+    Assert.assertArrayEquals(new int[]{2, 3, 0, 1},
+        batch.getIndexesByDistance(CartesianCoordinate.create(0, 0, 0)));
+
+    double[] distances = batch.getDistances(NoWhereCoordinate.create(), new double[4]);
+    Assert.assertEquals(Double.POSITIVE_INFINITY, distances[0], 0);
+  }
+
+  @Test
+  public void testIndexesByDistanceOfManyCoordinates() {
+    Random random = new Random(11);
+    CoordinateBatch batch = new CoordinateBatch();
+    for (int i = 0; i < 2000; i++) {
+      // few distinct values, so many distances are equal
+      batch.add(CartesianCoordinate.create(random.nextInt(20), random.nextInt(20), 0));
+    }
+    final double[] distances = batch.getDistances(CartesianCoordinate.create(0, 0, 0), null);
+
+    Integer[] expected = new Integer[batch.size()];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = i;
+    }
+    Arrays.sort(expected, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Double.compare(distances[a], distances[b]);
+      }
+    });
+
+    int[] indexes = batch.getIndexesByDistance(CartesianCoordinate.create(0, 0, 0));
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(expected[i].intValue(), indexes[i]);
+    }
+  }
+
+}
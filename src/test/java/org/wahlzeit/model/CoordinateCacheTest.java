@@ -0,0 +1,83 @@
+package org.wahlzeit.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Provides tests for the {@link CoordinateCache} used by the coordinate value objects
+ */
+public class CoordinateCacheTest {
+
+  /**
+   * Tests if all threads get the same instance for the same components
+   */
+  @Test
+  public void testConcurrentCreation() throws Exception {
+    final int count = 2000;
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<CartesianCoordinate[]>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        results.add(executor.submit(new Callable<CartesianCoordinate[]>() {
+          @Override
+          public CartesianCoordinate[] call() {
+            CartesianCoordinate[] coordinates = new CartesianCoordinate[count];
+            for (int i = 0; i < count; i++) {
+              coordinates[i] = CartesianCoordinate.create(i, -i, 0.5 * i);
+            }
+            return coordinates;
+          }
+        }));
+      }
+
+      CartesianCoordinate[] expected = results.get(0).get();
+      for (Future<CartesianCoordinate[]> result : results) {
+        CartesianCoordinate[] actual = result.get();
+        for (int i = 0; i < count; i++) {
+          Assert.assertSame(expected[i], actual[i]);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Tests if the cache keeps distinct instances for distinct components
+   */
+  @Test
+  public void testDistinctInstances() {
+    CoordinateCache<SphericCoordinate> cache = new CoordinateCache<SphericCoordinate>() {
+      @Override
+      protected boolean hasComponents(SphericCoordinate coordinate, double c1, double c2,
+          double c3) {
+        return coordinate.getLatitude() == c1 && coordinate.getLongitude() == c2
+            && coordinate.getRadius() == c3;
+      }
+
+      @Override
+      protected SphericCoordinate doCreate(double c1, double c2, double c3) {
+        return SphericCoordinate.create(c1, c2, c3);
+      }
+    };
+
+    List<SphericCoordinate> coordinates = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      coordinates.add(cache.get(i % 90, i % 180, i));
+    }
+
+    Assert.assertEquals(1000, cache.size());
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertSame(coordinates.get(i), cache.get(i % 90, i % 180, i));
+    }
+    Assert.assertSame(cache.get(0.0, 0.0, 0.0), cache.get(-0.0, 0.0, 0.0));
+    Assert.assertSame(cache.get(0.0, -0.0, -0.0), cache.get(-0.0, 0.0, 0.0));
+  }
+
+}
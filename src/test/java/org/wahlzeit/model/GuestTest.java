@@ -6,10 +6,17 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.RuleChain;
 import org.wahlzeit.testEnvironmentProvider.LocalDatastoreServiceTestConfigProvider;
+import org.wahlzeit.services.ObjectManager;
+import org.wahlzeit.services.OfyService;
 import org.wahlzeit.testEnvironmentProvider.RegisteredOfyEnvironmentProvider;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test class for {@link Guest}.
@@ -59,4 +66,66 @@ public class GuestTest {
 	protected void testGetGuestFromUserManager(String name) {
 		assertNotNull(UserManager.getInstance().getClientById(name));
 	}
+
+	@Test
+	public void testGuestIsOnlyPersistedWithPraiseHistory() {
+		ObjectifyService.run(new Work<Void>() {
+			@Override
+			public Void run() {
+				UserManager userManager = UserManager.getInstance();
+				Guest guest = new Guest();
+				userManager.saveClient(guest);
+				assertTrue(userManager.isEphemeral(guest));
+				assertNull(loadClient(guest.getId()));
+
+				guest.addPraisedPhotoId(new PhotoId(4711));
+				assertFalse(userManager.isEphemeral(guest));
+				userManager.saveClient(guest);
+				assertNotNull(loadClient(guest.getId()));
+
+				userManager.deleteClient(guest);
+				assertNull(loadClient(guest.getId()));
+				return null;
+			}
+		});
+	}
+
+	@Test
+	public void testRestoreGuest() {
+		ObjectifyService.run(new Work<Void>() {
+			@Override
+			public Void run() {
+				UserManager userManager = UserManager.getInstance();
+				Guest ephemeralGuest = new Guest();
+				userManager.deleteClient(ephemeralGuest);
+				Client restored = userManager.restoreGuest(ephemeralGuest.getId());
+				assertNotSame(ephemeralGuest, restored);
+				assertTrue(restored instanceof Guest);
+				assertSame(restored, userManager.getClientById(restored.getId()));
+				userManager.deleteClient(restored);
+
+				Guest praisingGuest = new Guest();
+				praisingGuest.addPraisedPhotoId(new PhotoId(4712));
+				userManager.saveClient(praisingGuest);
+				userManager.idClientMap.remove(praisingGuest.getId());
+				restored = userManager.restoreGuest(praisingGuest.getId());
+				assertEquals(praisingGuest.getId(), restored.getId());
+				assertEquals(1, restored.getPraisedPhotoIds().size());
+				userManager.deleteClient(restored);
+
+				// a user which does not exist any more is replaced by a new guest
+				restored = userManager.restoreGuest("deleted user");
+				assertTrue(restored instanceof Guest);
+				assertFalse("deleted user".equals(restored.getId()));
+				userManager.deleteClient(restored);
+				return null;
+			}
+		});
+	}
+
+	protected Client loadClient(String id) {
+		OfyService.ofy().clear();
+		return OfyService.ofy().load().type(Client.class).parent(ObjectManager.applicationRootKey)
+				.id(id).now();
+	}
 }
@@ -11,13 +11,24 @@ import org.wahlzeit.model.persistence.PersistenceTestSuite;
         ConverterTestSuite.class,
         AccessRightsTest.class,
         CartesianCoordinateTest.class,
+        CheeseManagerTest.class,
+        CheesefoodPhotoIndexTest.class,
+        CheesefoodPhotoManagerTest.class,
+        ClientManagerTest.class,
+        CoordinateBatchTest.class,
+        CoordinateCacheTest.class,
         SphericCoordinateTest.class,
         FlagReasonTest.class,
         GenderTest.class,
         GuestTest.class,
         LocationTest.class,
+        PhotoCaseManagerTest.class,
         PhotoFilterTest.class,
+        PhotoLocationIndexTest.class,
         TagsTest.class,
+        UserManagerTest.class,
+        UserSessionCacheTest.class,
+        UserSessionStateTest.class,
         UserStatusTest.class,
         ValueTest.class
 })
@@ -0,0 +1,79 @@
+package org.wahlzeit.model;
+
+import com.googlecode.objectify.ObjectifyService;
+import com.googlecode.objectify.Work;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.wahlzeit.testEnvironmentProvider.LocalDatastoreServiceTestConfigProvider;
+import org.wahlzeit.testEnvironmentProvider.RegisteredOfyEnvironmentProvider;
+
+/**
+ * Test cases for the age ordered open cases of the {@link PhotoCaseManager}
+ */
+public class PhotoCaseManagerTest {
+
+  @ClassRule
+  public static RuleChain ruleChain = RuleChain.
+      outerRule(new LocalDatastoreServiceTestConfigProvider()).
+      around(new RegisteredOfyEnvironmentProvider());
+
+  private PhotoCaseManager manager;
+  private List<PhotoCase> cases;
+
+  @Before
+  public void setUp() {
+    manager = ObjectifyService.run(new Work<PhotoCaseManager>() {
+      @Override
+      public PhotoCaseManager run() {
+        return new PhotoCaseManager();
+      }
+    });
+    cases = new ArrayList<>();
+    // add in shuffled order, two cases share a creation time
+    long[] creationTimes = {300, 100, 200, 100, 400};
+    for (long creationTime : creationTimes) {
+      PhotoCase photoCase = new PhotoCase(new Photo());
+      photoCase.createdOn = creationTime;
+      manager.doAddPhotoCase(photoCase);
+      cases.add(photoCase);
+    }
+  }
+
+  @Test
+  public void testPaging() {
+    List<PhotoCase> firstPage = manager.getOpenPhotoCasesByDescendingAge(null, 2);
+    Assert.assertEquals(2, firstPage.size());
+    Assert.assertSame(cases.get(1), firstPage.get(0));
+    Assert.assertSame(cases.get(3), firstPage.get(1));
+
+    String cursor = PhotoCaseManager.getCursor(firstPage.get(1));
+    manager.doRemovePhotoCase(firstPage.get(1));
+    List<PhotoCase> secondPage = manager.getOpenPhotoCasesByDescendingAge(cursor, 10);
+    Assert.assertEquals(3, secondPage.size());
+    Assert.assertSame(cases.get(2), secondPage.get(0));
+    Assert.assertSame(cases.get(0), secondPage.get(1));
+    Assert.assertSame(cases.get(4), secondPage.get(2));
+    Assert.assertEquals(4, manager.getNoOpenPhotoCases());
+  }
+
+  @Test
+  public void testAscendingAge() {
+    PhotoCase[] result = manager.getOpenPhotoCasesByAscendingAge();
+    Assert.assertEquals(cases.size(), result.length);
+    for (int i = 1; i < result.length; i++) {
+      Assert.assertTrue(result[i - 1].getCreationTime() >= result[i].getCreationTime());
+    }
+    Assert.assertSame(cases.get(4), result[0]);
+  }
+
+  @Test
+  public void testInvalidCursor() {
+    Assert.assertEquals(5, manager.getOpenPhotoCasesByDescendingAge("garbage", 10).size());
+    Assert.assertEquals(0, manager.getOpenPhotoCasesByDescendingAge("", 0).size());
+  }
+}
@@ -19,15 +19,31 @@
  */
 package org.wahlzeit.model;
 
+import com.googlecode.objectify.ObjectifyService;
+import com.googlecode.objectify.Work;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Before;
+import org.junit.ClassRule;
 import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.wahlzeit.services.OfyService;
+import org.wahlzeit.testEnvironmentProvider.LocalDatastoreServiceTestConfigProvider;
+import org.wahlzeit.testEnvironmentProvider.RegisteredOfyEnvironmentProvider;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 public class PhotoFilterTest {
 
+	@ClassRule
+	public static RuleChain ruleChain = RuleChain.
+			outerRule(new LocalDatastoreServiceTestConfigProvider()).
+			around(new RegisteredOfyEnvironmentProvider());
+
 	private PhotoFilter photoFilter;
 
 	@Before
@@ -84,4 +100,70 @@ public class PhotoFilterTest {
 		assertTrue(photoFilter.processedPhotoIds.isEmpty());
 	}
 
+	/**
+	 * The installed factory creates cheesefood filters, they have to see the photos as changed
+	 * through the photo manager
+	 */
+	@Test
+	public void testCheesefoodFilterUsesPhotoManager() {
+		PhotoManager photoManager = PhotoManager.getInstance();
+		Photo photo = new Photo(PhotoId.getNextId());
+		photoManager.doAddPhoto(photo);
+		try {
+			PhotoFilter filter = new CheesefoodPhotoFilter();
+			filter.generateDisplayablePhotoIds();
+			assertTrue(filter.getDisplayablePhotoIds().contains(photo.getId()));
+
+			photo.setStatus(PhotoStatus.FLAGGED);
+			filter.generateDisplayablePhotoIds();
+			assertFalse(filter.getDisplayablePhotoIds().contains(photo.getId()));
+		} finally {
+			photoManager.getPhotoCache().remove(photo.getId());
+		}
+	}
+
+	/**
+	 * The nearest photos are chosen among the tagged ones, not tagged ones closer to the origin
+	 * must not take their places
+	 */
+	@Test
+	public void testTagAndLocationCondition() {
+		final PhotoManager photoManager = PhotoManager.getInstance();
+		final List<Photo> photos = new ArrayList<Photo>();
+		for (int i = 1; i <= 20; i++) {
+			Photo photo = new Photo(PhotoId.getNextId());
+			photo.setLocation(new Location(CartesianCoordinate.create(i, 0, 0)));
+			photoManager.doAddPhoto(photo);
+			photos.add(photo);
+		}
+		try {
+			ObjectifyService.run(new Work<Void>() {
+				@Override
+				public Void run() {
+					for (Photo photo : photos.subList(10, 20)) {
+						OfyService.ofy().save().entity(new Tag("tg:faraway", photo.getIdAsString())).now();
+					}
+
+					photoFilter.setTags(new Tags("faraway"));
+					photoFilter.setLocationCondition(CartesianCoordinate.create(0, 0, 0),
+							Double.POSITIVE_INFINITY, 3);
+					photoFilter.generateDisplayablePhotoIds();
+					assertEquals(Arrays.asList(photos.get(10).getId(), photos.get(11).getId(),
+							photos.get(12).getId()), photoFilter.getDisplayablePhotoIds());
+
+					photoFilter.setLocationCondition(CartesianCoordinate.create(0, 0, 0), 11.5, 3);
+					photoFilter.generateDisplayablePhotoIds();
+					assertEquals(Arrays.asList(photos.get(10).getId()),
+							photoFilter.getDisplayablePhotoIds());
+					return null;
+				}
+			});
+		} finally {
+			for (Photo photo : photos) {
+				photoManager.getPhotoCache().remove(photo.getId());
+				photoManager.getLocationIndex().remove(photo.getId());
+			}
+		}
+	}
+
 }
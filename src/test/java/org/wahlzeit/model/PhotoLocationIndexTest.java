@@ -0,0 +1,97 @@
+package org.wahlzeit.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the results of the {@link PhotoLocationIndex} with a search over all photos
+ */
+public class PhotoLocationIndexTest {
+
+  private static final double EARTH_RADIUS = 6371.0;
+
+  private PhotoLocationIndex index;
+  private List<Photo> photos;
+
+  @Before
+  public void setUp() {
+    index = new PhotoLocationIndex();
+    photos = new ArrayList<>();
+
+    Random random = new Random(42);
+    for (int i = 1; i <= 500; i++) {
+      Photo photo = new Photo(new PhotoId(i));
+      photo.setLocation(new Location(SphericCoordinate.create(random.nextDouble() * 180 - 90,
+          random.nextDouble() * 360 - 180, EARTH_RADIUS)));
+      photos.add(photo);
+      index.update(photo);
+    }
+  }
+
+  @Test
+  public void testFindNearest() {
+    Coordinate origin = SphericCoordinate.create(49.57, 11.03, EARTH_RADIUS);
+
+    List<PhotoId> nearest = index.findNearest(origin, 10);
+
+    Assert.assertEquals(10, nearest.size());
+    Assert.assertEquals(bruteForce(origin, Double.POSITIVE_INFINITY).subList(0, 10), nearest);
+  }
+
+  @Test
+  public void testFindWithinDistance() {
+    Coordinate origin = SphericCoordinate.create(-20.0, 140.0, EARTH_RADIUS);
+
+    for (double distance : new double[]{0, 500, 2000, 8000, 20000}) {
+      Assert.assertEquals(bruteForce(origin, distance), index.findWithinDistance(origin, distance));
+    }
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    Photo photo = photos.get(0);
+    Coordinate origin = CartesianCoordinate.create(1, 2, 3);
+
+    photo.getLocation().setCoordinate(origin);
+    index.update(photo);
+    Assert.assertEquals(photo.getId(), index.findNearest(origin, 1).get(0));
+
+    photo.getLocation().setCoordinate(NoWhereCoordinate.create());
+    index.update(photo);
+    Assert.assertEquals(499, index.size());
+    Assert.assertNotEquals(photo.getId(), index.findNearest(origin, 1).get(0));
+
+    index.remove(photos.get(1).getId());
+    Assert.assertEquals(498, index.findWithinDistance(origin, Double.POSITIVE_INFINITY).size());
+    Assert.assertTrue(index.findNearest(NoWhereCoordinate.create(), 5).isEmpty());
+  }
+
+  private List<PhotoId> bruteForce(final Coordinate origin, double maxDistance) {
+    List<Photo> sorted = new ArrayList<>();
+    for (Photo photo : photos) {
+      if (photo.getLocation().getCoordinate().getDistance(origin) <= maxDistance) {
+        sorted.add(photo);
+      }
+    }
+    Collections.sort(sorted, new Comparator<Photo>() {
+      @Override
+      public int compare(Photo a, Photo b) {
+        return Double.compare(a.getLocation().getCoordinate().getDistance(origin),
+            b.getLocation().getCoordinate().getDistance(origin));
+      }
+    });
+
+    List<PhotoId> result = new ArrayList<>();
+    for (Photo photo : sorted) {
+      result.add(photo.getId());
+    }
+    return result;
+  }
+
+}
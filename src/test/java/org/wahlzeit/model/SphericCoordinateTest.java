@@ -56,4 +56,16 @@ public class SphericCoordinateTest {
             SphericCoordinate.create(10, 10, 10));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testConversionIsLinked() {
+    SphericCoordinate spheric = SphericCoordinate.create(48.1, 11.6, 6371);
+
+    CartesianCoordinate cartesian = spheric.asCartesianCoordinate();
+
+    Assert.assertSame(cartesian, spheric.asCartesianCoordinate());
+    Assert.assertSame(spheric, cartesian.asSphericCoordinate());
+    Assert.assertSame(spheric, spheric.asSphericCoordinate());
+    Assert.assertSame(cartesian, cartesian.asCartesianCoordinate());
+  }
+
+}
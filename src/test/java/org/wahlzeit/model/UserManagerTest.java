@@ -0,0 +1,142 @@
+package org.wahlzeit.model;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.googlecode.objectify.ObjectifyService;
+import com.googlecode.objectify.Work;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.wahlzeit.services.OfyService;
+import org.wahlzeit.testEnvironmentProvider.LocalDatastoreServiceTestConfigProvider;
+import org.wahlzeit.testEnvironmentProvider.RegisteredOfyEnvironmentProvider;
+
+/**
+ * Test cases for loading users on demand in the {@link UserManager}
+ */
+public class UserManagerTest {
+
+  @ClassRule
+  public static RuleChain ruleChain = RuleChain.
+      outerRule(new LocalDatastoreServiceTestConfigProvider()).
+      around(new RegisteredOfyEnvironmentProvider());
+
+  @After
+  public void tearDown() {
+    UserManager.getInstance().setMaxCachedUsers(UserManager.DEFAULT_MAX_CACHED_USERS);
+  }
+
+  @Test
+  public void testIndexNickNames() {
+    final UserManager userManager = UserManager.getInstance();
+    ObjectifyService.run(new Work<Void>() {
+      @Override
+      public Void run() {
+        userManager.saveClient(new User("old1", "old one", "old1@example.com"));
+        return null;
+      }
+    });
+    userManager.removeClient(userManager.getUserById("old1"));
+
+    // a user saved before the nickname was indexed
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    try {
+      Entity entity = datastore.get(KeyFactory.createKey(UserManager.applicationRootKey,
+          "Client", "old1"));
+      entity.setUnindexedProperty(Client.NICK_NAME, entity.getProperty(Client.NICK_NAME));
+      datastore.put(entity);
+    } catch (Exception ex) {
+      throw new AssertionError(ex);
+    }
+
+    userManager.setNickNameIndexed(false);
+    Assert.assertNull(readUserByNickName("old one"));
+    userManager.indexNickNames();
+    Assert.assertTrue(userManager.isNickNameIndexed());
+    Assert.assertNotNull(readUserByNickName("old one"));
+  }
+
+  private static User readUserByNickName(final String nickName) {
+    return ObjectifyService.run(new Work<User>() {
+      @Override
+      public User run() {
+        return OfyService.ofy().load().type(User.class).ancestor(UserManager.applicationRootKey)
+            .filter(Client.NICK_NAME, nickName).first().now();
+      }
+    });
+  }
+
+  @Test
+  public void testLoadEvictedUser() {
+    final UserManager userManager = UserManager.getInstance();
+    Assert.assertTrue(userManager.isLoadingOnDemand());
+    // the manager is shared, users of other tests stay in memory
+    userManager.setMaxCachedUsers(userManager.recentUsers.size() + 2);
+
+    final User first = ObjectifyService.run(new Work<User>() {
+      @Override
+      public User run() {
+        // users with unsaved changes are never evicted
+        User first = new User("lazy1", "lazy one", "lazy1@example.com");
+        userManager.saveClient(first);
+        User second = new User("lazy2", "lazy two", "lazy2@example.com");
+        userManager.saveClient(second);
+        Assert.assertSame(first, userManager.idClientMap.get("lazy1"));
+        userManager.saveClient(new User("lazy3", "lazy three", "lazy3@example.com"));
+        return first;
+      }
+    });
+
+    // the first user got evicted, but is loaded again from the datastore
+    Assert.assertNull(userManager.idClientMap.get("lazy1"));
+    Assert.assertFalse(userManager.isNicknameUsed("lazy one"));
+    ObjectifyService.run(new Work<Void>() {
+      @Override
+      public Void run() {
+        User loaded = userManager.getUserById("lazy1");
+        Assert.assertNotNull(loaded);
+        Assert.assertNotSame(first, loaded);
+        Assert.assertEquals("lazy one", loaded.getNickName());
+        Assert.assertSame(loaded, userManager.getUserById("lazy1"));
+
+        // the second user got evicted now, its nickname is found in the datastore
+        Assert.assertFalse(userManager.isNicknameUsed("lazy two"));
+        try {
+          new User("lazy4", "lazy two", "lazy4@example.com");
+          Assert.fail("Nickname of a user is used twice");
+        } catch (IllegalArgumentException ignored) {
+        }
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void testMissingUserIsRemembered() {
+    final UserManager userManager = UserManager.getInstance();
+    ObjectifyService.run(new Work<Void>() {
+      @Override
+      public Void run() {
+        Assert.assertNull(userManager.getUserById("ghost1"));
+        Assert.assertTrue(userManager.isMissingUser("ghost1"));
+
+        // an expired id is looked up again
+        userManager.missingUsers.put("ghost1", System.nanoTime() - 1);
+        Assert.assertFalse(userManager.isMissingUser("ghost1"));
+        Assert.assertNull(userManager.getUserById("ghost1"));
+        Assert.assertTrue(userManager.isMissingUser("ghost1"));
+
+        // adding the user forgets the miss
+        User user = new User("ghost1", "ghost one", "ghost1@example.com");
+        userManager.saveClient(user);
+        Assert.assertFalse(userManager.isMissingUser("ghost1"));
+        Assert.assertSame(user, userManager.getUserById("ghost1"));
+        return null;
+      }
+    });
+  }
+}
@@ -0,0 +1,119 @@
+package org.wahlzeit.model;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.http.HttpSession;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for the {@link UserSessionCache}
+ */
+public class UserSessionCacheTest {
+
+  private long now = 0;
+  private UserSessionCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new UserSessionCache() {
+      @Override
+      protected long getCurrentTime() {
+        return now;
+      }
+    };
+  }
+
+  @Test
+  public void testReuse() {
+    UserSessionState state = createState();
+    HttpSession httpSession = createHttpSession("a", state, 60);
+    UserSession userSession = new UserSession("a", "", httpSession, "en");
+    cache.put(httpSession, userSession);
+
+    HttpSession sameSession = createHttpSession("a", state, 60);
+    Assert.assertSame(userSession, cache.get(sameSession));
+    userSession.attach(sameSession);
+    Assert.assertSame(state, userSession.getState());
+    Assert.assertFalse(state.isDirty());
+    Assert.assertNull(cache.get(createHttpSession("b", state, 60)));
+  }
+
+  @Test
+  public void testStateSavedElsewhereIsAdopted() {
+    UserSessionState state = createState();
+    HttpSession httpSession = createHttpSession("a", state, 60);
+    UserSession userSession = new UserSession("a", "", httpSession, "en");
+    cache.put(httpSession, userSession);
+
+    UserSessionState newerState = createState();
+    newerState.renewWriteToken();
+    HttpSession sameSession = createHttpSession("a", newerState, 60);
+    cache.get(sameSession).attach(sameSession);
+    Assert.assertSame(newerState, userSession.getState());
+  }
+
+  @Test
+  public void testStateSavedOnceByEachInstanceIsAdopted() {
+    UserSessionState state = createState();
+    HttpSession httpSession = createHttpSession("a", state, 60);
+    UserSession userSession = new UserSession("a", "", httpSession, "en");
+    userSession.getState().setHeading("here");
+    userSession.saveState();
+
+    // another instance saved its copy of the same state once, too
+    UserSessionState otherState = createState();
+    otherState.setHeading("there");
+    otherState.renewWriteToken();
+    userSession.attach(createHttpSession("a", otherState, 60));
+    Assert.assertSame(otherState, userSession.getState());
+  }
+
+  @Test
+  public void testExpiry() {
+    HttpSession httpSession = createHttpSession("a", createState(), 60);
+    cache.put(httpSession, new UserSession("a", "", httpSession, "en"));
+
+    now = 59 * 1000L;
+    Assert.assertNotNull(cache.get(httpSession));
+    now += 60 * 1000L;
+    Assert.assertNull(cache.get(httpSession));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEviction() {
+    cache.setMaxSessions(2);
+    for (String id : new String[]{"a", "b", "c"}) {
+      HttpSession httpSession = createHttpSession(id, createState(), 0);
+      cache.put(httpSession, new UserSession(id, "", httpSession, "en"));
+      if (id.equals("b")) {
+        Assert.assertNotNull(cache.get(createHttpSession("a", createState(), 0)));
+      }
+    }
+
+    Assert.assertEquals(2, cache.size());
+    Assert.assertNotNull(cache.get(createHttpSession("a", createState(), 0)));
+    Assert.assertNull(cache.get(createHttpSession("b", createState(), 0)));
+  }
+
+  private static UserSessionState createState() {
+    UserSessionState result = new UserSessionState();
+    result.setClientId("guest#0");
+    result.setName("a");
+    result.resetDirty();
+    return result;
+  }
+
+  private static HttpSession createHttpSession(String id, UserSessionState state,
+      int maxInactiveInterval) {
+    HttpSession result = mock(HttpSession.class);
+    when(result.getId()).thenReturn(id);
+    when(result.getAttribute(UserSession.STATE)).thenReturn(state);
+    when(result.getMaxInactiveInterval()).thenReturn(maxInactiveInterval);
+    return result;
+  }
+
+}
@@ -0,0 +1,107 @@
+package org.wahlzeit.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for the encoding and the change tracking of the {@link UserSessionState}
+ */
+public class UserSessionStateTest {
+
+  @Test
+  public void testDirtyTracking() {
+    UserSessionState state = new UserSessionState();
+    Assert.assertTrue(state.isDirty());
+
+    state.setClientId("guest#1");
+    state.setSavedArg("key", "value");
+    state.resetDirty();
+
+    state.setClientId("guest#1");
+    state.setSavedArg("key", "value");
+    state.clearPraisedPhotos();
+    state.setProcessingTime(42);
+    Assert.assertFalse(state.isDirty());
+
+    state.setHeading("heading");
+    Assert.assertTrue(state.isDirty());
+    state.resetDirty();
+
+    state.clearSavedArgs();
+    Assert.assertTrue(state.isDirty());
+    state.resetDirty();
+
+    state.setPhotoFilter(new PhotoFilter());
+    state.resetDirty();
+    state.getPhotoFilter();
+    Assert.assertFalse(state.isDirty());
+    state.getPhotoFilterForUpdate();
+    Assert.assertTrue(state.isDirty());
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    PhotoFilter filter = new PhotoFilter();
+    filter.setUserName("alice");
+    filter.addSkippedPhotoId(PhotoId.getIdFromInt(17));
+
+    UserSessionState state = new UserSessionState();
+    state.setName("session");
+    state.setClientId("guest#1");
+    state.setMessage("<p>Hällo</p>");
+    state.setPhotoId(PhotoId.getIdFromInt(4711));
+    state.setPhotoFilter(filter);
+    state.addPraisedPhoto(PhotoId.getIdFromInt(3));
+    state.addPraisedPhoto(PhotoId.getIdFromInt(1000));
+    state.setSavedArg("text", "value");
+    state.setSavedArg("array", new String[]{"a", "b"});
+    state.setProcessingTime(42);
+
+    UserSessionState copy = copy(state);
+    Assert.assertFalse(copy.isDirty());
+    Assert.assertTrue(copy.isInitialized());
+    Assert.assertEquals("session", copy.getName());
+    Assert.assertNull(copy.getSiteUrl());
+    Assert.assertEquals("guest#1", copy.getClientId());
+    Assert.assertNull(copy.getHeading());
+    Assert.assertEquals("<p>Hällo</p>", copy.getMessage());
+    Assert.assertEquals(PhotoId.getIdFromInt(4711), copy.getPhotoId());
+    Assert.assertEquals("alice", copy.getPhotoFilter().getUserName());
+    Assert.assertEquals(filter.getSkippedPhotoIds(), copy.getPhotoFilter().getSkippedPhotoIds());
+    Assert.assertTrue(copy.hasPraisedPhoto(PhotoId.getIdFromInt(3)));
+    Assert.assertTrue(copy.hasPraisedPhoto(PhotoId.getIdFromInt(1000)));
+    Assert.assertFalse(copy.hasPraisedPhoto(PhotoId.getIdFromInt(4)));
+    Assert.assertEquals("value", copy.getSavedArg("text"));
+    Assert.assertArrayEquals(new String[]{"a", "b"}, (String[]) copy.getSavedArg("array"));
+    Assert.assertEquals(42, copy.getProcessingTime());
+  }
+
+  @Test
+  public void testEmptyStateIsSmall() throws Exception {
+    Assert.assertTrue(serialize(new UserSessionState()).length < 100);
+    Assert.assertFalse(copy(new UserSessionState()).isInitialized());
+  }
+
+  private static UserSessionState copy(UserSessionState state) throws Exception {
+    return (UserSessionState) deserialize(serialize(state));
+  }
+
+  private static byte[] serialize(Object object) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(object);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) throws Exception {
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+    return in.readObject();
+  }
+
+}
@@ -127,4 +127,17 @@ public class ValueTest {
 		assert (test == PhotoId.getIdFromString(testString));
 	}
 
+	/**
+	 *
+	 */
+	@Test
+	public void testPhotoIdStringConversion() {
+		assertTrue("x1abz".equals(PhotoId.getFromInt(-1)));
+		for (int i = 0; i < 100000; i += 7) {
+			assertTrue(PhotoId.getFromString(PhotoId.getFromInt(i)) == i);
+		}
+		assertTrue(PhotoId.getFromString(PhotoId.getFromInt(Integer.MAX_VALUE - PhotoId.ID_START))
+				== Integer.MAX_VALUE - PhotoId.ID_START);
+	}
+
 }
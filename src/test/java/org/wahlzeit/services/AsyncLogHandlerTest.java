@@ -0,0 +1,131 @@
+package org.wahlzeit.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for the {@link AsyncLogHandler}
+ */
+public class AsyncLogHandlerTest {
+
+  @Test
+  public void testRecordsArePublishedInOrder() {
+    RecordingHandler target = new RecordingHandler();
+    AsyncLogHandler handler = new AsyncLogHandler(128, target);
+    handler.start(Executors.defaultThreadFactory());
+
+    for (int i = 0; i < 100; i++) {
+      handler.publish(new LogRecord(Level.INFO, "message " + i));
+    }
+    handler.close();
+
+    Assert.assertEquals(100, target.records.size());
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals("message " + i, target.records.get(i).getMessage());
+    }
+    Assert.assertTrue(target.isClosed);
+  }
+
+  @Test
+  public void testOverloadDropsOnlyLowSeverityRecords() {
+    RecordingHandler target = new RecordingHandler();
+    AsyncLogHandler handler = new AsyncLogHandler(4, target);
+    // a writer which never runs, so the buffer fills up
+    handler.start(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        return new Thread() {
+          @Override
+          public synchronized void start() {
+            // do nothing
+          }
+        };
+      }
+    });
+
+    for (int i = 0; i < 6; i++) {
+      handler.publish(new LogRecord(Level.INFO, "info " + i));
+    }
+    handler.publish(new LogRecord(Level.SEVERE, "severe"));
+
+    Assert.assertEquals(4, handler.getBufferedRecords());
+    Assert.assertEquals(2, handler.getDroppedRecords());
+    Assert.assertEquals(1, target.records.size());
+    Assert.assertEquals("severe", target.records.get(0).getMessage());
+
+    handler.flush();
+    Assert.assertEquals(0, handler.getBufferedRecords());
+    Assert.assertEquals(6, target.records.size());
+    Assert.assertEquals("info 0", target.records.get(1).getMessage());
+    Assert.assertTrue(target.records.get(5).getMessage().contains("dropped 2 records"));
+    Assert.assertTrue(target.flushCount > 0);
+  }
+
+  @Test
+  public void testWithoutWriterRecordsArePublishedSynchronously() {
+    RecordingHandler target = new RecordingHandler();
+    AsyncLogHandler handler = new AsyncLogHandler(4, target);
+    handler.start(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        throw new SecurityException("no threads");
+      }
+    });
+
+    handler.publish(new LogRecord(Level.FINE, "fine"));
+    Assert.assertEquals(1, target.records.size());
+    Assert.assertEquals(0, handler.getBufferedRecords());
+  }
+
+  @Test
+  public void testInterruptedWriterExits() throws Exception {
+    RecordingHandler target = new RecordingHandler();
+    AsyncLogHandler handler = new AsyncLogHandler(128, target);
+    final Thread[] writer = new Thread[1];
+    handler.start(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        writer[0] = new Thread(runnable);
+        return writer[0];
+      }
+    });
+
+    writer[0].interrupt();
+    writer[0].join(5000);
+    Assert.assertFalse(writer[0].isAlive());
+
+    handler.publish(new LogRecord(Level.INFO, "after interrupt"));
+    Assert.assertEquals(1, target.records.size());
+    Assert.assertEquals(0, handler.getBufferedRecords());
+  }
+
+  private static class RecordingHandler extends Handler {
+
+    private final List<LogRecord> records = new ArrayList<LogRecord>();
+    private int flushCount = 0;
+    private boolean isClosed = false;
+
+    @Override
+    public synchronized void publish(LogRecord record) {
+      records.add(record);
+    }
+
+    @Override
+    public synchronized void flush() {
+      flushCount++;
+    }
+
+    @Override
+    public void close() {
+      isClosed = true;
+    }
+  }
+
+}
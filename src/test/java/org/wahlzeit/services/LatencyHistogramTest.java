@@ -0,0 +1,56 @@
+package org.wahlzeit.services;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for the {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketsKeepValuesWithinPrecision() {
+    for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456, 987654321}) {
+      int index = LatencyHistogram.getBucketIndex(value);
+      long highest = LatencyHistogram.getHighestValue(index);
+      Assert.assertTrue(highest >= value);
+      Assert.assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKETS);
+      Assert.assertEquals(index, LatencyHistogram.getBucketIndex(highest));
+      Assert.assertEquals(index + 1, LatencyHistogram.getBucketIndex(highest + 1));
+    }
+  }
+
+  @Test
+  public void testRecord() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 1000);
+    }
+    histogram.record(Long.MAX_VALUE);
+
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    Assert.assertEquals(101, snapshot.getCount());
+    Assert.assertEquals(10, snapshot.getCountAtMost(10000 + 10000 / 16));
+    Assert.assertEquals(100, snapshot.getCountAtMost(1000000 / 8 * 8));
+    Assert.assertEquals(101, snapshot.getCountAtMost(LatencyHistogram.MAX_VALUE));
+    Assert.assertArrayEquals(new long[]{0, 10, 100, 101}, snapshot.getCountsAtMost(
+        new long[]{999, 10000 + 10000 / 16, 1000000, LatencyHistogram.MAX_VALUE}));
+
+    long median = snapshot.getValueAtPercentile(50);
+    Assert.assertTrue(median >= 51000 && median <= 51000 + 51000 / 16);
+    Assert.assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getValueAtPercentile(100));
+
+    // later values do not change a snapshot
+    histogram.record(1);
+    Assert.assertEquals(101, snapshot.getCount());
+    Assert.assertEquals(102, histogram.getSnapshot().getCount());
+  }
+
+  @Test
+  public void testEmpty() {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().getSnapshot();
+    Assert.assertEquals(0, snapshot.getCount());
+    Assert.assertEquals(0, snapshot.getValueAtPercentile(99));
+  }
+
+}
@@ -12,6 +12,9 @@ import org.wahlzeit.testEnvironmentProvider.UserSessionProvider;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -173,4 +176,25 @@ public class LogBuilderTest {
 		expectedLogMessage = expectedLogMessage + INFO_SEPARATOR + ACTION + NAME_VALUE_SEPARATOR + null;
 		assertEquals(expectedLogMessage, logMessage);
 	}
+
+	@Test
+	public void testRenderedOnlyOnEmission() {
+		final int[] evaluations = {0};
+		Supplier<String> value = new Supplier<String>() {
+			@Override
+			public String get() {
+				evaluations[0]++;
+				return "Chewbacca";
+			}
+		};
+
+		Logger logger = Logger.getAnonymousLogger();
+		logger.setLevel(Level.INFO);
+		logger.config(LogBuilder.createSystemMessage().addParameter("Wookiee", value));
+		assertEquals(0, evaluations[0]);
+
+		String logMessage = LogBuilder.createSystemMessage().addParameter("Wookiee", value).get();
+		assertEquals(1, evaluations[0]);
+		assertTrue(logMessage.endsWith(INFO_SEPARATOR + "Wookiee" + NAME_VALUE_SEPARATOR + "Chewbacca"));
+	}
 }
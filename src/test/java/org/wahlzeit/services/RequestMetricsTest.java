@@ -0,0 +1,76 @@
+package org.wahlzeit.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for the {@link RequestMetrics}
+ */
+public class RequestMetricsTest {
+
+  @Test
+  public void testHandlerMetricsAreKeptPerHandlerAndMethod() {
+    RequestMetrics metrics = new RequestMetrics();
+    RequestMetrics.HandlerMetrics get = metrics.getHandlerMetrics("index", "GET");
+    Assert.assertSame(get, metrics.getHandlerMetrics("index", "GET"));
+    Assert.assertNotSame(get, metrics.getHandlerMetrics("index", "POST"));
+  }
+
+  @Test
+  public void testWriteOn() throws Exception {
+    RequestMetrics metrics = new RequestMetrics();
+    RequestMetrics.HandlerMetrics index = metrics.getHandlerMetrics("index", "GET");
+    index.recordRequest(2000000); // 2 ms
+    index.recordBytesWritten(512);
+    index.recordRequest(3000000000L); // 3 s
+    index.recordRedirect();
+    RequestMetrics.HandlerMetrics login = metrics.getHandlerMetrics("log\"in", "POST");
+    login.recordRequest(1000);
+    login.recordError();
+
+    StringBuilder out = new StringBuilder();
+    metrics.writeOn(out);
+    String text = out.toString();
+
+    Assert.assertTrue(text.contains("# TYPE wahlzeit_requests_total counter\n"));
+    Assert.assertTrue(text.contains("wahlzeit_requests_total{handler=\"index\",method=\"GET\"} 2\n"));
+    Assert.assertTrue(
+        text.contains("wahlzeit_request_errors_total{handler=\"log\\\"in\",method=\"POST\"} 1\n"));
+    Assert.assertTrue(
+        text.contains("wahlzeit_request_redirects_total{handler=\"index\",method=\"GET\"} 1\n"));
+    Assert.assertTrue(
+        text.contains("wahlzeit_response_bytes_total{handler=\"index\",method=\"GET\"} 512\n"));
+    Assert.assertTrue(text.contains("# TYPE wahlzeit_request_duration_seconds histogram\n"));
+    Assert.assertTrue(text.contains(
+        "wahlzeit_request_duration_seconds_bucket{handler=\"index\",method=\"GET\",le=\"0.001\"} 0\n"));
+    Assert.assertTrue(text.contains(
+        "wahlzeit_request_duration_seconds_bucket{handler=\"index\",method=\"GET\",le=\"0.0025\"} 1\n"));
+    Assert.assertTrue(text.contains(
+        "wahlzeit_request_duration_seconds_bucket{handler=\"index\",method=\"GET\",le=\"+Inf\"} 2\n"));
+    Assert.assertTrue(text.contains(
+        "wahlzeit_request_duration_seconds_sum{handler=\"index\",method=\"GET\"} 3.002\n"));
+    Assert.assertTrue(text.contains(
+        "wahlzeit_request_duration_seconds_count{handler=\"index\",method=\"GET\"} 2\n"));
+    // sorted by method and handler
+    Assert.assertTrue(text.indexOf("method=\"GET\"") < text.indexOf("method=\"POST\""));
+  }
+
+  @Test
+  public void testWriteDurationsOn() throws Exception {
+    Map<String, Long> loadTimes = new HashMap<String, Long>();
+    loadTimes.put("page", 2500L);
+    loadTimes.put("banner", 1000000L);
+
+    StringBuilder out = new StringBuilder();
+    new RequestMetrics().writeDurationsOn(out, "template_load_seconds", "Load time", "template",
+        loadTimes);
+
+    Assert.assertEquals("# HELP wahlzeit_template_load_seconds Load time\n"
+        + "# TYPE wahlzeit_template_load_seconds gauge\n"
+        + "wahlzeit_template_load_seconds{template=\"banner\"} 1.0\n"
+        + "wahlzeit_template_load_seconds{template=\"page\"} 0.0025\n", out.toString());
+  }
+
+}
@@ -8,8 +8,11 @@ import org.wahlzeit.services.mailing.EmailServiceTestSuite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+    AsyncLogHandlerTest.class,
+    LatencyHistogramTest.class,
     LogBuilderTest.class,
     EmailAddressTest.class,
+    RequestMetricsTest.class,
     EmailServiceTestSuite.class
 })
 public class ServicesTestSuite {
@@ -8,12 +8,11 @@ import org.wahlzeit.model.GermanModelConfig;
 import org.wahlzeit.model.Guest;
 import org.wahlzeit.model.LanguageConfigs;
 import org.wahlzeit.model.UserSession;
+import org.wahlzeit.model.UserSessionState;
 import org.wahlzeit.services.Language;
 import org.wahlzeit.services.SessionManager;
 
 import javax.servlet.http.HttpSession;
-import java.util.HashMap;
-import java.util.Map;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -32,7 +31,6 @@ public class UserSessionProvider extends ExternalResource {
 		LanguageConfigs.put(Language.GERMAN, new GermanModelConfig());
 
 		HttpSession httpSession = mock(HttpSession.class);
-		when(httpSession.getAttribute(UserSession.INITIALIZED)).thenReturn(UserSession.INITIALIZED);
 		String guestName = ObjectifyService.run(new Work<String>() {
 			@Override
 			public String run() {
@@ -41,11 +39,10 @@ public class UserSessionProvider extends ExternalResource {
 				return guest.getId();
 			}
 		});
-		when(httpSession.getAttribute(UserSession.CLIENT_ID)).thenReturn(guestName);
-
-		Map<String, Object> dummyMap = new HashMap<String, Object>();
-		dummyMap.put(UserSession.MESSAGE, "dummy Message");
-		when(httpSession.getAttribute(UserSession.SAVED_ARGS)).thenReturn(dummyMap);
+		UserSessionState state = new UserSessionState();
+		state.setClientId(guestName);
+		state.setSavedArg(UserSession.MESSAGE, "dummy Message");
+		when(httpSession.getAttribute(UserSession.STATE)).thenReturn(state);
 
 		UserSession userSession = new UserSession(USER_SESSION_NAME, "", httpSession, "en");
 		SessionManager.setThreadLocalSession(userSession);
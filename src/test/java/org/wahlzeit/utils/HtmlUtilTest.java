@@ -0,0 +1,44 @@
+package org.wahlzeit.utils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for the masking and the builders of the {@link HtmlUtil}
+ */
+public class HtmlUtilTest {
+
+  @Test
+  public void testMaskForWeb() {
+    String plain = "nothing to mask";
+    Assert.assertSame(plain, HtmlUtil.maskForWeb(plain));
+    Assert.assertEquals("&lt;a href=&quot;x&quot;&gt;Tom &amp; Jerry&lt;/a&gt;",
+        HtmlUtil.maskForWeb("<a href=\"x\">Tom & Jerry</a>"));
+    Assert.assertEquals("&amp;&amp;", HtmlUtil.maskForWeb("&&"));
+    Assert.assertEquals("", HtmlUtil.maskForWeb(""));
+  }
+
+  @Test
+  public void testAppendMasked() throws IOException {
+    StringWriter writer = new StringWriter();
+    HtmlUtil.appendMasked(writer, "a<b");
+    HtmlUtil.appendMasked(writer, " & c");
+    Assert.assertEquals("a&lt;b &amp; c", writer.toString());
+
+    StringBuilder builder = new StringBuilder();
+    HtmlUtil.appendMasked(builder, "\"quoted\"");
+    Assert.assertEquals("&quot;quoted&quot;", builder.toString());
+  }
+
+  @Test
+  public void testBuilders() {
+    Assert.assertEquals("<a href=\"l\" rel=\"nofollow\">b</a>", HtmlUtil.asHref("l", "b"));
+    Assert.assertEquals("<img src=\"i.png\" />", HtmlUtil.asImg("i.png"));
+    Assert.assertEquals("<img src=\"i.png\" width=\"10\" height=\"20\" />",
+        HtmlUtil.asImg("i.png", 10, 20));
+    Assert.assertEquals("<p>text</p>", HtmlUtil.asP("text"));
+  }
+
+}
@@ -5,6 +5,7 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+        HtmlUtilTest.class,
         StringUtilTest.class,
         VersionTest.class
 })
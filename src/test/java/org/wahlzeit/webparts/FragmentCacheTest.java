@@ -0,0 +1,90 @@
+package org.wahlzeit.webparts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wahlzeit.webparts.FragmentCache.Fragment;
+
+/**
+ * Test cases for the {@link FragmentCache}
+ */
+public class FragmentCacheTest {
+
+  private FragmentCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new FragmentCache();
+  }
+
+  @Test
+  public void testFragmentIsReused() throws IOException {
+    WebPartTemplate template = createTemplate("en/infos/About", "<p>Über {$name}</p>");
+    Fragment fragment = cache.getFragment(template);
+
+    Assert.assertSame(fragment, cache.getFragment(template));
+    Assert.assertEquals("<p>Über </p>", fragment.asString());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Utf8Writer out = new Utf8Writer(bytes);
+    fragment.writeOn(out);
+    out.close();
+    Assert.assertEquals("<p>Über </p>", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+
+    StringWriter text = new StringWriter();
+    fragment.writeOn(text);
+    Assert.assertEquals("<p>Über </p>", text.toString());
+  }
+
+  @Test
+  public void testInputsAreKeys() {
+    WebPartTemplate template = createTemplate("en/infos/About", "<p>{$name}</p>");
+    Map<String, String> alice = new HashMap<String, String>();
+    alice.put("name", "alice");
+    Map<String, String> bob = new HashMap<String, String>();
+    bob.put("name", "bob");
+
+    Assert.assertEquals("<p>alice</p>", cache.getFragment(template, alice).asString());
+    Assert.assertEquals("<p>bob</p>", cache.getFragment(template, bob).asString());
+    Assert.assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testInvalidation() {
+    WebPartTemplate english = createTemplate("en/infos/About", "about");
+    WebPartTemplate german = createTemplate("de/infos/About", "über");
+    Fragment fragment = cache.getFragment(english);
+    cache.getFragment(german);
+
+    cache.invalidate("en/infos/About");
+    Assert.assertEquals(1, cache.size());
+    Assert.assertNotSame(fragment, cache.getFragment(english));
+
+    WebPartTemplate reloaded = createTemplate("en/infos/About", "about us");
+    Assert.assertEquals("about us", cache.getFragment(reloaded).asString());
+
+    cache.invalidateAll();
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testMaxFragments() {
+    cache.setMaxFragments(1);
+    cache.getFragment(createTemplate("en/a", "a"));
+    Assert.assertEquals("b", cache.getFragment(createTemplate("en/b", "b")).asString());
+    Assert.assertEquals(1, cache.size());
+  }
+
+  private static WebPartTemplate createTemplate(String name, String source) {
+    WebPartTemplate result = new WebPartTemplate(name);
+    result.initialize(source);
+    return result;
+  }
+
+}
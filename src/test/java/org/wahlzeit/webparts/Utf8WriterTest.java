@@ -0,0 +1,70 @@
+package org.wahlzeit.webparts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for the {@link Utf8Writer}
+ */
+public class Utf8WriterTest {
+
+  private static final String TEXT = "ascii, Grüße, 日本語, 😀 and more ascii";
+
+  @Test
+  public void testEncodingMatchesString() throws IOException {
+    for (int bufferSize : new int[]{4, 5, 7, 64, 8192}) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      Utf8Writer out = new Utf8Writer(bytes, bufferSize);
+      out.write(TEXT);
+      out.write(TEXT.toCharArray());
+      out.write('!');
+      out.close();
+
+      String expected = TEXT + TEXT + "!";
+      Assert.assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+    }
+  }
+
+  @Test
+  public void testSurrogatePairAcrossWrites() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Utf8Writer out = new Utf8Writer(bytes);
+    out.write("a\uD83D");
+    out.write("\uDE00b");
+    out.close();
+
+    Assert.assertArrayEquals("a😀b".getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+  }
+
+  @Test
+  public void testUnpairedSurrogates() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Utf8Writer out = new Utf8Writer(bytes);
+    out.write("\uDE00a\uD83D");
+    out.writeBytes(new byte[]{'b'});
+    out.write("\uD83D");
+    out.close();
+
+    Assert.assertEquals("?a?b?", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testLargeBytesBypassBuffer() throws IOException {
+    byte[] large = new byte[100];
+    Arrays.fill(large, (byte) 'x');
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Utf8Writer out = new Utf8Writer(bytes, 16);
+    out.write("ab");
+    out.writeBytes(large);
+    out.write("cd");
+    out.close();
+
+    Assert.assertEquals("ab" + new String(large, StandardCharsets.US_ASCII) + "cd",
+        new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+}
@@ -0,0 +1,99 @@
+package org.wahlzeit.webparts;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wahlzeit.services.ConfigDir;
+
+/**
+ * Test cases for loading and reloading templates by the {@link WebPartTemplateService}
+ */
+public class WebPartTemplateServiceTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private WebPartTemplateService service;
+  private File aboutFile;
+
+  @Before
+  public void setUp() throws IOException {
+    aboutFile = writeTemplate("default", "en", "infos", "AboutInfo", "about {$name}");
+    writeTemplate("default", "de", "infos", "AboutInfo", "über {$name}");
+    writeTemplate("custom", "en", "pages", "CustomPage", "custom");
+    folder.newFile("templates/default/en/README.txt");
+
+    service = new WebPartTemplateService();
+    service.setTemplatesDir(new ConfigDir(folder.getRoot().getPath(), "templates"));
+  }
+
+  @After
+  public void tearDown() {
+    service.stopWatching();
+  }
+
+  @Test
+  public void testPreload() {
+    Assert.assertEquals(3, service.preloadTemplates(Executors.defaultThreadFactory()));
+    Assert.assertEquals(3, service.getLoadTimes().size());
+
+    WebPartTemplate template = service.getTemplate("de", "infos/AboutInfo");
+    Assert.assertEquals("über ", template.asString());
+    Assert.assertSame(template, service.getTemplate("de", "infos/AboutInfo"));
+    Assert.assertEquals("custom", service.getTemplate("en", "pages/CustomPage").asString());
+  }
+
+  @Test
+  public void testMissingTemplate() {
+    Assert.assertNull(service.getTemplate("en", "infos/MissingInfo"));
+  }
+
+  @Test
+  public void testReload() throws IOException {
+    WebPartTemplate template = service.getTemplate("en", "infos/AboutInfo");
+    long revision = service.getRevision();
+
+    write(aboutFile, "about us {$name}");
+    service.reloadTemplate("en" + File.separator + "infos/AboutInfo");
+
+    WebPartTemplate reloaded = service.getTemplate("en", "infos/AboutInfo");
+    Assert.assertNotSame(template, reloaded);
+    Assert.assertEquals("about us ", reloaded.asString());
+    Assert.assertEquals(revision + 1, service.getRevision());
+  }
+
+  @Test
+  public void testWatching() throws Exception {
+    service.preloadTemplates(Executors.defaultThreadFactory());
+    service.startWatching(Executors.defaultThreadFactory());
+
+    write(aboutFile, "watched {$name}");
+    long end = System.currentTimeMillis() + 20000;
+    while (!service.getTemplate("en", "infos/AboutInfo").asString().equals("watched ")) {
+      Assert.assertTrue("template not reloaded", System.currentTimeMillis() < end);
+      Thread.sleep(50);
+    }
+  }
+
+  private File writeTemplate(String dir, String lang, String type, String name, String source)
+      throws IOException {
+    File typeDir = new File(folder.getRoot(), "templates/" + dir + "/" + lang + "/" + type);
+    typeDir.mkdirs();
+    File result = new File(typeDir, name + ".html");
+    write(result, source);
+    return result;
+  }
+
+  private static void write(File file, String source) throws IOException {
+    Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
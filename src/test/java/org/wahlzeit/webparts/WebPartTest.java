@@ -0,0 +1,91 @@
+package org.wahlzeit.webparts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test cases for compiling a {@link WebPartTemplate} and rendering a {@link WebPart}
+ */
+public class WebPartTest {
+
+  @Test
+  public void testCompile() {
+    WebPartTemplate template = createTemplate("<p>{$a}{$b}, {$a}</p>{$open");
+
+    Assert.assertEquals(2, template.getSlotIdCount());
+    Assert.assertEquals(0, template.getSlotId("a"));
+    Assert.assertEquals(1, template.getSlotId("b"));
+    Assert.assertEquals(-1, template.getSlotId("c"));
+    Assert.assertEquals("b", template.getKey(1));
+    Assert.assertEquals("<p>, </p>{$open", template.asString());
+  }
+
+  @Test
+  public void testWriteOn() throws IOException {
+    WebPart part = new WebPart(createTemplate("<p>{$a}{$b}, {$a}</p>{$inner}"));
+    part.addString("a", "x");
+    part.addString("c", "ignored");
+    WebPart inner = new WebPart(createTemplate("[{$b}]"));
+    inner.maskAndAddString("b", "<y>");
+    part.addWritable("inner", inner);
+
+    Assert.assertEquals("x", part.getValue("a"));
+    Assert.assertNull(part.getValue("c"));
+    Assert.assertEquals("<p>x, x</p>[&lt;y&gt;]", render(part));
+  }
+
+  @Test
+  public void testWriteOnUtf8Writer() throws IOException {
+    WebPart part = new WebPart(createTemplate("<p>Grüße {$a}</p>{$inner}"));
+    part.addString("a", "日本 \uD83D\uDE00");
+    WebPart inner = new WebPart(createTemplate("[{$b}]"));
+    inner.addString("b", "ä");
+    part.addWritable("inner", inner);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Utf8Writer out = new Utf8Writer(bytes, 4);
+    part.writeOn(out);
+    out.close();
+
+    Assert.assertArrayEquals(render(part).getBytes(StandardCharsets.UTF_8), bytes.toByteArray());
+  }
+
+  @Test
+  public void testCompileFromWebPart() throws IOException {
+    WebPart part = new WebPart(createTemplate("<p>{$a}</p>{$time}<p>{$b}</p>{$time}"));
+    part.addString("a", "{$b}");
+    part.addString("b", "b");
+    part.addString("time", "early");
+
+    WebPartTemplate template = new WebPartTemplate("rendered");
+    template.initialize(part, "time");
+    Assert.assertEquals(1, template.getSlotIdCount());
+
+    WebPart rendered = new WebPart(template);
+    rendered.addString("time", "late");
+    Assert.assertEquals("<p>{$b}</p>late<p>b</p>late", render(rendered));
+  }
+
+  @Test
+  public void testWithoutSlots() throws IOException {
+    Assert.assertEquals("", render(new WebPart(createTemplate(""))));
+    Assert.assertEquals("plain", render(new WebPart(createTemplate("plain"))));
+  }
+
+  private static WebPartTemplate createTemplate(String source) {
+    WebPartTemplate result = new WebPartTemplate("test");
+    result.initialize(source);
+    return result;
+  }
+
+  private static String render(Writable writable) throws IOException {
+    StringWriter out = new StringWriter();
+    writable.writeOn(out);
+    return out.toString();
+  }
+
+}
@@ -0,0 +1,14 @@
+package org.wahlzeit.webparts;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+        FragmentCacheTest.class,
+        Utf8WriterTest.class,
+        WebPartTemplateServiceTest.class,
+        WebPartTest.class
+})
+public class WebPartsTestSuite {
+}